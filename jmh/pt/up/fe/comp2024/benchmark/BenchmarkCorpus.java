@@ -0,0 +1,161 @@
+package pt.up.fe.comp2024.benchmark;
+
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.utils.ReportUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Java-- sources used as input of the benchmarks, with the results of each stage already computed.
+ * <p>
+ * The corpus is made of the .jmm files of the tests, and of the Java-- samples in libs-jmm. Each benchmark of a stage
+ * runs over the units that got to that stage without errors, so tests of semantic errors are only parsed and analysed.
+ */
+public class BenchmarkCorpus {
+
+    private static final List<String> JMM_FOLDERS = List.of("test/pt/up/fe/comp");
+    private static final List<String> SAMPLE_FOLDERS = List.of("libs-jmm/java");
+
+    private final List<Unit> units;
+
+    /**
+     * A source file, and the results of the stages it went through.
+     */
+    public static class Unit {
+
+        private final File file;
+        private final String code;
+        private final Map<String, String> config;
+
+        private JmmParserResult parserResult;
+        private JmmSemanticsResult semanticsResult;
+        private OllirResult ollirResult;
+
+        Unit(File file, String code, Map<String, String> config) {
+            this.file = file;
+            this.code = code;
+            this.config = config;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public Map<String, String> getConfig() {
+            return config;
+        }
+
+        public JmmParserResult getParserResult() {
+            return parserResult;
+        }
+
+        public JmmSemanticsResult getSemanticsResult() {
+            return semanticsResult;
+        }
+
+        public OllirResult getOllirResult() {
+            return ollirResult;
+        }
+    }
+
+    private BenchmarkCorpus(List<Unit> units) {
+        this.units = units;
+    }
+
+    /**
+     * Reads the corpus and runs all the stages over it.
+     *
+     * @param projectDir root folder of the project, the folders of the corpus are relative to it
+     * @return
+     */
+    public static BenchmarkCorpus load(File projectDir) {
+        var files = new ArrayList<File>();
+        for (var folder : JMM_FOLDERS) {
+            files.addAll(SpecsIo.getFilesRecursive(new File(projectDir, folder), "jmm"));
+        }
+        // only the top-level samples, the packages have Java classes that are not Java--
+        for (var folder : SAMPLE_FOLDERS) {
+            files.addAll(SpecsIo.getFiles(new File(projectDir, folder), "java"));
+        }
+
+        if (files.isEmpty()) {
+            throw new RuntimeException("Could not find the benchmark corpus in '" + projectDir.getAbsolutePath()
+                    + "', run the benchmarks from the root of the project");
+        }
+
+        // stable order between runs
+        files.sort(Comparator.comparing(File::getPath));
+
+        var units = new ArrayList<Unit>();
+        for (var file : files) {
+            var config = CompilerConfig.forInputFile(CompilerConfig.getDefault(), file);
+            var unit = new Unit(file, SpecsIo.read(file), config);
+            runStages(unit);
+            units.add(unit);
+        }
+
+        return new BenchmarkCorpus(units);
+    }
+
+    private static void runStages(Unit unit) {
+        var config = unit.config;
+
+        try {
+            var parserResult = new JmmParserImpl().parse(unit.code, config);
+            if (ReportUtils.anyError(parserResult.getReports())) {
+                return;
+            }
+            unit.parserResult = parserResult;
+
+            // analyse a copy of the tree, the stages may annotate it
+            var semanticsResult = new JmmAnalysisImpl().semanticAnalysis(
+                    new JmmParserImpl().parse(unit.code, config));
+            if (ReportUtils.anyError(semanticsResult.getReports())) {
+                return;
+            }
+            unit.semanticsResult = semanticsResult;
+
+            var ollirResult = new JmmOptimizationImpl().toOllir(semanticsResult);
+            if (ReportUtils.anyError(ollirResult.getReports())) {
+                return;
+            }
+            unit.ollirResult = ollirResult;
+        } catch (RuntimeException e) {
+            // units that crash a stage are only used by the benchmarks of the stages before it
+        }
+    }
+
+    /**
+     * @return all the units, including the ones that do not parse
+     */
+    public List<Unit> getUnits() {
+        return units;
+    }
+
+    public List<Unit> getParsed() {
+        return units.stream().filter(unit -> unit.parserResult != null).toList();
+    }
+
+    public List<Unit> getAnalysed() {
+        return units.stream().filter(unit -> unit.semanticsResult != null).toList();
+    }
+
+    public List<Unit> getOllir() {
+        return units.stream().filter(unit -> unit.ollirResult != null).toList();
+    }
+}
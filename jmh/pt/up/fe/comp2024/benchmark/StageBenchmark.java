@@ -0,0 +1,100 @@
+package pt.up.fe.comp2024.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.backend.JasminGenerator;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.optimization.OllirGeneratorVisitor;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of each stage of the compiler over the whole benchmark corpus.
+ * <p>
+ * One operation compiles every unit of the corpus that reaches the stage, using the results of the previous stages
+ * computed during setup. Run with 'gradle jmh', which also reports the allocation rate of each benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class StageBenchmark {
+
+    private List<BenchmarkCorpus.Unit> parsed;
+    private List<BenchmarkCorpus.Unit> analysed;
+    private List<BenchmarkCorpus.Unit> ollir;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        var corpus = BenchmarkCorpus.load(new File(System.getProperty("jmm.projectDir", ".")));
+
+        parsed = corpus.getParsed();
+        analysed = corpus.getAnalysed();
+        ollir = corpus.getOllir();
+
+        if (ollir.isEmpty()) {
+            throw new RuntimeException("No unit of the benchmark corpus compiles to OLLIR");
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        for (var unit : parsed) {
+            blackhole.consume(new JmmParserImpl().parse(unit.getCode(), unit.getConfig()));
+        }
+    }
+
+    @Benchmark
+    public void symbolTable(Blackhole blackhole) {
+        for (var unit : parsed) {
+            blackhole.consume(JmmSymbolTableBuilder.build(unit.getParserResult().getRootNode()));
+        }
+    }
+
+    @Benchmark
+    public void semanticAnalysis(Blackhole blackhole) {
+        for (var unit : parsed) {
+            blackhole.consume(new JmmAnalysisImpl().semanticAnalysis(unit.getParserResult()));
+        }
+    }
+
+    @Benchmark
+    public void ollirGenerator(Blackhole blackhole) {
+        for (var unit : analysed) {
+            var semanticsResult = unit.getSemanticsResult();
+            var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable());
+            blackhole.consume(visitor.visit(semanticsResult.getRootNode()));
+        }
+    }
+
+    @Benchmark
+    public void optimize(Blackhole blackhole) {
+        for (var unit : ollir) {
+            blackhole.consume(new JmmOptimizationImpl().optimize(unit.getOllirResult()));
+        }
+    }
+
+    @Benchmark
+    public void jasmin(Blackhole blackhole) {
+        for (var unit : ollir) {
+            blackhole.consume(new JasminGenerator(unit.getOllirResult()).build());
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.utils.Formatter;
+import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.specs.util.utilities.StringLines;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Compiles several Java-- files in parallel, on a bounded work-stealing pool.
+ * <p>
+ * Files are scheduled from largest to smallest, so that a single big file does not hold up the end of the run.
+ */
+public class BatchCompiler {
+
+    private static final String JMM_EXTENSION = "jmm";
+
+    private final Map<String, String> config;
+    private final int threads;
+    private final JmmCompiler compiler;
+
+    public BatchCompiler(Map<String, String> config) {
+        this(config, new JmmCompiler());
+    }
+
+    BatchCompiler(Map<String, String> config, JmmCompiler compiler) {
+        this.config = config;
+        this.threads = CompilerConfig.getThreads(config);
+        this.compiler = compiler;
+    }
+
+    /**
+     * Collects the files to compile.
+     *
+     * @param batchInput a directory, which is searched recursively for .jmm files, or a file that lists one path per
+     *                   line. Relative paths in a list are resolved against the folder of the list
+     * @return
+     */
+    public static List<File> getInputFiles(File batchInput) {
+        if (batchInput.isDirectory()) {
+            return SpecsIo.getFilesRecursive(batchInput, JMM_EXTENSION);
+        }
+
+        var files = new ArrayList<File>();
+        for (var line : StringLines.getLines(SpecsIo.read(batchInput))) {
+            var path = line.strip();
+
+            // skip empty lines and comments
+            if (path.isEmpty() || path.startsWith("#")) {
+                continue;
+            }
+
+            var file = new File(path);
+            if (!file.isAbsolute()) {
+                file = new File(batchInput.getAbsoluteFile().getParentFile(), path);
+            }
+
+            files.add(file);
+        }
+
+        return files;
+    }
+
+    /**
+     * Compiles all the given files.
+     *
+     * @param files
+     * @return the result of each file, in the order they were given
+     */
+    public Map<File, CompilationResult> compile(List<File> files) {
+        var schedule = schedule(files);
+
+        var pool = new ForkJoinPool(threads);
+        try {
+            var tasks = new LinkedHashMap<File, ForkJoinTask<CompilationResult>>();
+            for (var file : schedule) {
+                tasks.put(file, pool.submit(() -> compileFile(file)));
+            }
+
+            var results = new LinkedHashMap<File, CompilationResult>();
+            for (var file : files) {
+                results.put(file, tasks.get(file).join());
+            }
+
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @param files
+     * @return the given files in the order they are compiled, from the largest to the smallest
+     */
+    static List<File> schedule(List<File> files) {
+        var schedule = new ArrayList<>(files);
+        schedule.sort(Comparator.comparingLong(File::length).reversed());
+
+        return schedule;
+    }
+
+    private CompilationResult compileFile(File file) {
+        var unitConfig = CompilerConfig.forInputFile(config, file);
+
+        if (!file.isFile()) {
+            var result = new CompilationResult();
+            result.addReport(Report.newError(Stage.OTHER, -1, -1, "Could not find input file '" + file + "'", null));
+            return result;
+        }
+
+        return compiler.compile(SpecsIo.read(file), unitConfig);
+    }
+
+    /**
+     * Prints the outcome of each file, followed by a summary.
+     *
+     * @param results
+     * @return the number of files that failed to compile
+     */
+    public static int printResults(Map<File, CompilationResult> results) {
+        int failed = 0;
+
+        for (var entry : results.entrySet()) {
+            var result = entry.getValue();
+
+            if (!result.hasErrors()) {
+                System.out.println("[OK] " + entry.getKey());
+                continue;
+            }
+
+            failed++;
+            System.out.println(Formatter.errorMsg("[ERROR] " + entry.getKey()));
+            for (var report : result.getReports()) {
+                System.out.println("   " + report);
+            }
+        }
+
+        System.out.println("Compiled " + (results.size() - failed) + " of " + results.size() + " files");
+
+        return failed;
+    }
+}
@@ -0,0 +1,152 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.backend.ClassFileResult;
+import pt.up.fe.comp2024.cache.CacheEntry;
+import pt.up.fe.comp2024.metrics.CompilerMetrics;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Results of running the pipeline over a single compilation unit.
+ * <p>
+ * Stages after the first one that reported an error are not executed, and their results are empty.
+ */
+public class CompilationResult {
+
+    private final List<Report> reports;
+
+    private JmmParserResult parserResult;
+    private JmmSemanticsResult semanticsResult;
+    private OllirResult ollirResult;
+    private JasminResult jasminResult;
+    private ClassFileResult classFileResult;
+
+    private CacheEntry cachedEntry;
+    private CompilerMetrics metrics;
+
+    public CompilationResult() {
+        this.reports = new ArrayList<>();
+        this.parserResult = null;
+        this.semanticsResult = null;
+        this.ollirResult = null;
+        this.jasminResult = null;
+        this.classFileResult = null;
+        this.cachedEntry = null;
+        this.metrics = null;
+    }
+
+    void setParserResult(JmmParserResult parserResult) {
+        this.parserResult = parserResult;
+        reports.addAll(parserResult.getReports());
+    }
+
+    void setSemanticsResult(JmmSemanticsResult semanticsResult) {
+        this.semanticsResult = semanticsResult;
+        reports.addAll(semanticsResult.getReports());
+    }
+
+    void setOllirResult(OllirResult ollirResult) {
+        this.ollirResult = ollirResult;
+        reports.addAll(ollirResult.getReports());
+    }
+
+    void setJasminResult(JasminResult jasminResult) {
+        this.jasminResult = jasminResult;
+        reports.addAll(jasminResult.getReports());
+    }
+
+    void setClassFileResult(ClassFileResult classFileResult) {
+        this.classFileResult = classFileResult;
+        reports.addAll(classFileResult.getReports());
+    }
+
+    void setCachedEntry(CacheEntry cachedEntry) {
+        this.cachedEntry = cachedEntry;
+    }
+
+    void setMetrics(CompilerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    void addReport(Report report) {
+        reports.add(report);
+    }
+
+    public Optional<JmmParserResult> getParserResult() {
+        return Optional.ofNullable(parserResult);
+    }
+
+    public Optional<JmmSemanticsResult> getSemanticsResult() {
+        return Optional.ofNullable(semanticsResult);
+    }
+
+    public Optional<OllirResult> getOllirResult() {
+        return Optional.ofNullable(ollirResult);
+    }
+
+    public Optional<JasminResult> getJasminResult() {
+        return Optional.ofNullable(jasminResult);
+    }
+
+    /**
+     * @return the class file, if the class file backend was selected in the config
+     */
+    public Optional<ClassFileResult> getClassFileResult() {
+        return Optional.ofNullable(classFileResult);
+    }
+
+    /**
+     * @return the name of the generated class, from whichever backend ran
+     */
+    public Optional<String> getClassName() {
+        if (classFileResult != null) {
+            return Optional.of(classFileResult.getClassName());
+        }
+
+        return getJasminResult().map(JasminResult::getClassName);
+    }
+
+    /**
+     * @return the cache entry the results were read from. When present, only the backend result is set
+     */
+    public Optional<CacheEntry> getCachedEntry() {
+        return Optional.ofNullable(cachedEntry);
+    }
+
+    /**
+     * @return the OLLIR code of the unit, either generated or read from the cache
+     */
+    public Optional<String> getOllirCode() {
+        if (cachedEntry != null) {
+            return Optional.of(cachedEntry.getOllirCode());
+        }
+
+        return getOllirResult().map(OllirResult::getOllirCode);
+    }
+
+    /**
+     * @return the cost of each stage, if metrics were enabled in the config
+     */
+    public Optional<CompilerMetrics> getMetrics() {
+        return Optional.ofNullable(metrics);
+    }
+
+    /**
+     * @return the reports of all the stages that were executed
+     */
+    public List<Report> getReports() {
+        return reports;
+    }
+
+    public boolean hasErrors() {
+        return ReportUtils.anyError(reports);
+    }
+}
@@ -1,5 +1,7 @@
 package pt.up.fe.comp2024;
 
+import pt.up.fe.comp2024.utils.Log;
+
 import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
@@ -10,6 +12,30 @@ public class CompilerConfig {
     private static final String INPUT_FILE = "inputFile";
     private static final String OPTIMIZE = "optimize";
     private static final String REGISTER = "registerAllocation";
+    private static final String BATCH_INPUT = "batchInput";
+    private static final String THREADS = "threads";
+    private static final String DAEMON_PORT = "daemonPort";
+    private static final String QUEUE_CAPACITY = "queueCapacity";
+    private static final String TIMEOUT = "timeout";
+    private static final String METRICS = "metrics";
+    private static final String CACHE_DIR = "cacheDir";
+    private static final String CACHE_SIZE = "cacheSize";
+    private static final String OUTPUT_DIR = "outputDir";
+    private static final String BACKEND = "backend";
+    private static final String PIPELINE = "pipeline";
+    private static final String LOG_LEVEL = "logLevel";
+    private static final String WARMUP = "warmup";
+    private static final String UNBUFFERED_TOKENS = "unbufferedTokens";
+    private static final String OUTLINE = "outline";
+    private static final String COMPACT_AST = "compactAst";
+
+    public static final String BACKEND_JASMIN = "jasmin";
+    public static final String BACKEND_CLASS = "class";
+
+    private static final int DEFAULT_DAEMON_PORT = 4242;
+    private static final int DEFAULT_QUEUE_CAPACITY = 64;
+    private static final long DEFAULT_TIMEOUT_MS = 30_000;
+    private static final long DEFAULT_CACHE_SIZE_MB = 256;
 
 
     static Map<String, String> shortToLong = new HashMap<>();
@@ -18,6 +44,22 @@ public class CompilerConfig {
         shortToLong.put("i", CompilerConfig.INPUT_FILE);
         shortToLong.put("o", CompilerConfig.OPTIMIZE);
         shortToLong.put("r", CompilerConfig.REGISTER);
+        shortToLong.put("b", CompilerConfig.BATCH_INPUT);
+        shortToLong.put("t", CompilerConfig.THREADS);
+        shortToLong.put("d", CompilerConfig.DAEMON_PORT);
+        shortToLong.put("q", CompilerConfig.QUEUE_CAPACITY);
+        shortToLong.put("w", CompilerConfig.TIMEOUT);
+        shortToLong.put("m", CompilerConfig.METRICS);
+        shortToLong.put("c", CompilerConfig.CACHE_DIR);
+        shortToLong.put("s", CompilerConfig.CACHE_SIZE);
+        shortToLong.put("j", CompilerConfig.OUTPUT_DIR);
+        shortToLong.put("g", CompilerConfig.BACKEND);
+        shortToLong.put("p", CompilerConfig.PIPELINE);
+        shortToLong.put("l", CompilerConfig.LOG_LEVEL);
+        shortToLong.put("u", CompilerConfig.WARMUP);
+        shortToLong.put("k", CompilerConfig.UNBUFFERED_TOKENS);
+        shortToLong.put("e", CompilerConfig.OUTLINE);
+        shortToLong.put("a", CompilerConfig.COMPACT_AST);
     }
 
 
@@ -32,6 +74,287 @@ public class CompilerConfig {
         return Optional.of(new File(inputFile));
     }
 
+    /**
+     * @param config
+     * @return the directory, or the file listing one source path per line, to compile in batch mode
+     */
+    public static Optional<File> getBatchInput(Map<String, String> config) {
+        var batchInput = config.get(BATCH_INPUT);
+
+        if (batchInput == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new File(batchInput));
+    }
+
+    /**
+     * @param config
+     * @return the number of worker threads used in batch mode, defaults to the number of available processors
+     */
+    public static int getThreads(Map<String, String> config) {
+        var threads = config.get(THREADS);
+
+        if (threads == null) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+
+        return Integer.parseInt(threads);
+    }
+
+    /**
+     * @param config
+     * @return true if batch mode should run the files through a pipeline of stages, instead of compiling each file
+     * in a single task
+     */
+    public static boolean isPipeline(Map<String, String> config) {
+        var pipeline = config.get(PIPELINE);
+        return pipeline != null && !pipeline.equals("false");
+    }
+
+    /**
+     * @param config
+     * @return the number of workers of each pipeline stage, given as '-p=read,parse,analysis,ollir,backend'. By default,
+     * one worker reads the files and each of the other stages uses the number of threads of batch mode
+     */
+    public static int[] getPipelineThreads(Map<String, String> config) {
+        var pipeline = config.getOrDefault(PIPELINE, "true");
+        int threads = getThreads(config);
+
+        if (pipeline.equals("true")) {
+            return new int[]{1, threads, threads, threads, threads};
+        }
+
+        var values = pipeline.split(",");
+        if (values.length != 5) {
+            throw new RuntimeException("Option '-p' expects the number of workers of the 5 stages, got '"
+                    + pipeline + "'");
+        }
+
+        var stageThreads = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            stageThreads[i] = Integer.parseInt(values[i].strip());
+        }
+
+        return stageThreads;
+    }
+
+    public static boolean isDaemon(Map<String, String> config) {
+        return config.containsKey(DAEMON_PORT);
+    }
+
+    /**
+     * @param config
+     * @return the local port the compile daemon listens on, '-d' without a value uses the default port
+     */
+    public static int getDaemonPort(Map<String, String> config) {
+        var port = config.getOrDefault(DAEMON_PORT, "true");
+
+        if (port.equals("true")) {
+            return DEFAULT_DAEMON_PORT;
+        }
+
+        return Integer.parseInt(port);
+    }
+
+    /**
+     * @param config
+     * @return how many compile requests the daemon accepts while all workers are busy, before turning clients away.
+     * In pipeline mode, the capacity of the queue in front of each stage
+     */
+    public static int getQueueCapacity(Map<String, String> config) {
+        return Integer.parseInt(config.getOrDefault(QUEUE_CAPACITY, String.valueOf(DEFAULT_QUEUE_CAPACITY)));
+    }
+
+    /**
+     * @param config
+     * @return the maximum time, in milliseconds, the daemon spends on a single compile request
+     */
+    public static long getTimeout(Map<String, String> config) {
+        return Long.parseLong(config.getOrDefault(TIMEOUT, String.valueOf(DEFAULT_TIMEOUT_MS)));
+    }
+
+    /**
+     * @param config
+     * @return true if per-stage metrics should be collected
+     */
+    public static boolean isMetrics(Map<String, String> config) {
+        var metrics = config.get(METRICS);
+        return metrics != null && !metrics.equals("false");
+    }
+
+    /**
+     * @param config
+     * @return the file where the JSON metrics summary is written, empty if it should be printed to the console
+     */
+    public static Optional<File> getMetricsOutput(Map<String, String> config) {
+        var metrics = config.get(METRICS);
+
+        if (metrics == null || metrics.equals("true") || metrics.equals("false")) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new File(metrics));
+    }
+
+    /**
+     * @param config
+     * @return the folder where the generated Jasmin files are written, empty if they should not be written.
+     * '-j' without a value uses the current folder
+     */
+    public static Optional<File> getOutputDir(Map<String, String> config) {
+        var outputDir = config.get(OUTPUT_DIR);
+
+        if (outputDir == null) {
+            return Optional.empty();
+        }
+
+        if (outputDir.equals("true")) {
+            return Optional.of(new File("."));
+        }
+
+        return Optional.of(new File(outputDir));
+    }
+
+    /**
+     * @param config
+     * @return the code generation backend, BACKEND_JASMIN (default) or BACKEND_CLASS
+     */
+    public static String getBackend(Map<String, String> config) {
+        var backend = config.getOrDefault(BACKEND, BACKEND_JASMIN);
+
+        if (!backend.equals(BACKEND_JASMIN) && !backend.equals(BACKEND_CLASS)) {
+            throw new RuntimeException("Option '-g' expects '" + BACKEND_JASMIN + "' or '" + BACKEND_CLASS
+                    + "', got '" + backend + "'");
+        }
+
+        return backend;
+    }
+
+    /**
+     * @param config
+     * @return true if class files should be generated directly from OLLIR, instead of going through Jasmin
+     */
+    public static boolean isClassFileBackend(Map<String, String> config) {
+        return getBackend(config).equals(BACKEND_CLASS);
+    }
+
+    /**
+     * @param config
+     * @return the level of the diagnostics written to the standard error, WARN by default. '-l' without a value
+     * enables DEBUG
+     */
+    public static Log.Level getLogLevel(Map<String, String> config) {
+        var logLevel = config.get(LOG_LEVEL);
+
+        if (logLevel == null) {
+            return Log.Level.WARN;
+        }
+
+        if (logLevel.equals("true")) {
+            return Log.Level.DEBUG;
+        }
+
+        try {
+            return Log.Level.valueOf(logLevel.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Option '-l' expects one of off, error, warn, info, debug or trace, got '"
+                    + logLevel + "'");
+        }
+    }
+
+    /**
+     * @param config
+     * @return how many times the bundled corpus is parsed at startup to warm up the parser, 0 by default. '-u'
+     * without a value parses it once
+     */
+    public static int getWarmupRounds(Map<String, String> config) {
+        var warmup = config.get(WARMUP);
+
+        if (warmup == null || warmup.equals("false")) {
+            return 0;
+        }
+
+        if (warmup.equals("true")) {
+            return 1;
+        }
+
+        try {
+            return Integer.parseInt(warmup);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Option '-u' expects true, false or a number of warm-up rounds, got '"
+                    + warmup + "'");
+        }
+    }
+
+    /**
+     * @param config
+     * @return true if the parser should read tokens from the lexer as it needs them, instead of buffering all the
+     * tokens of the input
+     */
+    public static boolean isUnbufferedTokens(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(UNBUFFERED_TOKENS, "false"));
+    }
+
+    /**
+     * @param config
+     * @return true if only the outline of the input should be parsed, to print its symbol table
+     */
+    public static boolean isOutline(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(OUTLINE, "false"));
+    }
+
+    /**
+     * @param config
+     * @return true if the parser should return a {@link pt.up.fe.comp2024.ast.CompactAst}, which uses less memory
+     * than the default tree
+     */
+    public static boolean isCompactAst(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(COMPACT_AST, "false"));
+    }
+
+    /**
+     * @param config
+     * @return the folder of the artifact cache, empty if compilation results should not be cached
+     */
+    public static Optional<File> getCacheDir(Map<String, String> config) {
+        var cacheDir = config.get(CACHE_DIR);
+
+        if (cacheDir == null || cacheDir.equals("false")) {
+            return Optional.empty();
+        }
+
+        // '-c' without a value uses a folder in the user home
+        if (cacheDir.equals("true")) {
+            return Optional.of(new File(System.getProperty("user.home"), ".jmm-cache"));
+        }
+
+        return Optional.of(new File(cacheDir));
+    }
+
+    /**
+     * @param config
+     * @return the maximum size of the artifact cache, in bytes
+     */
+    public static long getCacheSize(Map<String, String> config) {
+        var sizeMb = Long.parseLong(config.getOrDefault(CACHE_SIZE, String.valueOf(DEFAULT_CACHE_SIZE_MB)));
+        return sizeMb * 1024 * 1024;
+    }
+
+    /**
+     * Creates a copy of the given config, set up to compile the given input file.
+     *
+     * @param config
+     * @param inputFile
+     * @return
+     */
+    public static Map<String, String> forInputFile(Map<String, String> config, File inputFile) {
+        var unitConfig = new HashMap<>(config);
+        unitConfig.put(INPUT_FILE, inputFile.getAbsolutePath());
+
+        return unitConfig;
+    }
+
     public static boolean getOptimize(Map<String, String> config) {
         return Boolean.parseBoolean(config.getOrDefault(OPTIMIZE, "false"));
     }
@@ -89,9 +412,19 @@ public class CompilerConfig {
             config.put(getLongOpt(shortOption), value);
         }
 
+        // batch mode, input files are resolved by the batch compiler
+        if (config.containsKey(BATCH_INPUT)) {
+            return parseBatchArgs(config);
+        }
+
+        // daemon mode, input files are sent by the clients
+        if (config.containsKey(DAEMON_PORT)) {
+            return parseDaemonArgs(config);
+        }
+
         if (!config.containsKey(INPUT_FILE)) {
 
-            throw new RuntimeException("Expected an input file, use '-i=<PATH_TO_FILE>'");
+            throw new RuntimeException("Expected an input file, use '-i=<PATH_TO_FILE>' or '-b=<PATH_TO_DIR_OR_LIST>'");
         }
 
         // make sure we save the absolute path of the input file
@@ -106,9 +439,73 @@ public class CompilerConfig {
         // Verify if values are valid
         getOptimize(config);
         getRegisterAllocation(config);
+        verifyOutputArgs(config);
 
         return config;
     }
 
+    private static Map<String, String> parseBatchArgs(Map<String, String> config) {
 
+        var batchInput = new File(config.get(BATCH_INPUT));
+        if (!batchInput.exists()) {
+            throw new RuntimeException("Could not find batch input '" + batchInput + "'");
+        }
+
+        config.put(BATCH_INPUT, batchInput.getAbsolutePath());
+
+        // Verify if values are valid
+        getOptimize(config);
+        getRegisterAllocation(config);
+        if (getThreads(config) < 1) {
+            throw new RuntimeException("Option '-t' expects a positive number of threads");
+        }
+        if (isPipeline(config)) {
+            for (var stageThreads : getPipelineThreads(config)) {
+                if (stageThreads < 1) {
+                    throw new RuntimeException("Option '-p' expects a positive number of workers for each stage");
+                }
+            }
+            if (getQueueCapacity(config) < 1) {
+                throw new RuntimeException("Option '-q' expects a positive queue capacity");
+            }
+        }
+        verifyOutputArgs(config);
+
+        return config;
+    }
+
+    private static Map<String, String> parseDaemonArgs(Map<String, String> config) {
+
+        // Verify if values are valid
+        getOptimize(config);
+        getRegisterAllocation(config);
+        getDaemonPort(config);
+        if (getThreads(config) < 1) {
+            throw new RuntimeException("Option '-t' expects a positive number of threads");
+        }
+        if (getQueueCapacity(config) < 1) {
+            throw new RuntimeException("Option '-q' expects a positive queue capacity");
+        }
+        if (getTimeout(config) < 1) {
+            throw new RuntimeException("Option '-w' expects a positive timeout, in milliseconds");
+        }
+        verifyOutputArgs(config);
+
+        return config;
+    }
+
+    private static void verifyOutputArgs(Map<String, String> config) {
+        getBackend(config);
+        getLogLevel(config);
+        if (getWarmupRounds(config) < 0) {
+            throw new RuntimeException("Option '-u' expects a non-negative number of warm-up rounds");
+        }
+
+        // resolve the cache folder now, daemon clients may run from other folders
+        getCacheDir(config).ifPresent(cacheDir -> config.put(CACHE_DIR, cacheDir.getAbsolutePath()));
+
+        if (getCacheSize(config) < 1) {
+            throw new RuntimeException("Option '-s' expects a positive cache size, in megabytes");
+        }
+    }
 }
@@ -0,0 +1,200 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.backend.ClassFileBackendImpl;
+import pt.up.fe.comp2024.backend.ClassFileResult;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.cache.ArtifactCache;
+import pt.up.fe.comp2024.cache.CacheEntry;
+import pt.up.fe.comp2024.metrics.CompilerMetrics;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs all the stages of the compiler over a single compilation unit.
+ * <p>
+ * Every call uses fresh stage instances, so a JmmCompiler can be shared by several threads. If the config sets a cache
+ * folder, units that were already compiled with the same options are read from the cache instead.
+ */
+public class JmmCompiler {
+
+    private final Map<File, ArtifactCache> caches;
+
+    public JmmCompiler() {
+        this.caches = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Compiles the given code, stopping at the first stage that reports an error.
+     *
+     * @param code
+     * @param config
+     * @return the results of the stages that were executed
+     */
+    public CompilationResult compile(String code, Map<String, String> config) {
+        var result = new CompilationResult();
+
+        if (!CompilerConfig.isMetrics(config)) {
+            compile(code, config, result);
+            return result;
+        }
+
+        var metrics = new CompilerMetrics();
+        result.setMetrics(metrics);
+
+        metrics.attach();
+        try {
+            compile(code, config, result);
+        } finally {
+            metrics.detach();
+        }
+
+        return result;
+    }
+
+    private void compile(String code, Map<String, String> config, CompilationResult result) {
+        var cache = getCache(config);
+        if (cache.isEmpty()) {
+            compileStages(code, config, result);
+            return;
+        }
+
+        var key = getCacheKey(code, config);
+        if (loadCached(cache.get(), key, config, result)) {
+            return;
+        }
+
+        compileStages(code, config, result);
+        storeCached(cache.get(), key, result);
+    }
+
+    private void compileStages(String code, Map<String, String> config, CompilationResult result) {
+        try {
+            var parserResult = parse(code, config, result);
+            if (parserResult == null) {
+                return;
+            }
+
+            var semanticsResult = analyse(parserResult, result);
+            if (semanticsResult == null) {
+                return;
+            }
+
+            var ollirResult = toOllir(semanticsResult, result);
+            if (ollirResult == null) {
+                return;
+            }
+
+            generate(ollirResult, config, result);
+        } catch (Throwable e) {
+            // errors too, e.g. a StackOverflowError on a deep tree, are reported for this unit only
+            var exception = e instanceof Exception ? (Exception) e : new RuntimeException(e);
+            result.addReport(Report.newError(Stage.OTHER, -1, -1, "Exception during compilation", exception));
+        }
+    }
+
+    /**
+     * @param config
+     * @return the artifact cache set in the config, if any
+     */
+    Optional<ArtifactCache> getCache(Map<String, String> config) {
+        return CompilerConfig.getCacheDir(config).map(cacheDir -> caches.computeIfAbsent(cacheDir,
+                folder -> new ArtifactCache(folder, CompilerConfig.getCacheSize(config))));
+    }
+
+    String getCacheKey(String code, Map<String, String> config) {
+        return CompilerMetrics.measure("cacheKey", () -> ArtifactCache.getKey(code, config));
+    }
+
+    /**
+     * @return true if the unit was found in the cache, and its backend result was set
+     */
+    boolean loadCached(ArtifactCache cache, String key, Map<String, String> config, CompilationResult result) {
+        var cached = CompilerMetrics.measure("cacheGet", () -> cache.get(key));
+        if (cached.isEmpty()) {
+            return false;
+        }
+
+        var entry = cached.get();
+        result.setCachedEntry(entry);
+        if (CompilerConfig.isClassFileBackend(config)) {
+            result.setClassFileResult(new ClassFileResult(entry.getClassName(), entry.getClassFile(),
+                    entry.getReports()));
+        } else {
+            result.setJasminResult(new JasminResult(entry.getClassName(), entry.getJasminCode(),
+                    entry.getReports(), config));
+        }
+
+        return true;
+    }
+
+    void storeCached(ArtifactCache cache, String key, CompilationResult result) {
+        // only units without errors are cached, their warnings are given back on a hit
+        if (result.hasErrors() || result.getClassName().isEmpty()) {
+            return;
+        }
+
+        var entry = new CacheEntry(result.getClassName().get(),
+                result.getOllirResult().orElseThrow().getOllirCode(),
+                result.getJasminResult().map(JasminResult::getJasminCode).orElse(""),
+                result.getSemanticsResult().orElseThrow().getSymbolTable().print(),
+                result.getClassFileResult().map(ClassFileResult::getClassFile).orElse(new byte[0]),
+                result.getReports());
+        CompilerMetrics.measure("cachePut", () -> {
+            cache.put(key, entry);
+            return null;
+        });
+    }
+
+    // Each stage adds its result to the CompilationResult, and returns null if it reported an error
+
+    JmmParserResult parse(String code, Map<String, String> config, CompilationResult result) {
+        var parserResult = CompilerMetrics.measure("parse", () -> new JmmParserImpl().parse(code, config));
+        result.setParserResult(parserResult);
+
+        return ReportUtils.anyError(parserResult.getReports()) ? null : parserResult;
+    }
+
+    JmmSemanticsResult analyse(JmmParserResult parserResult, CompilationResult result) {
+        var semanticsResult = CompilerMetrics.measure("analysis",
+                () -> new JmmAnalysisImpl().semanticAnalysis(parserResult));
+        result.setSemanticsResult(semanticsResult);
+
+        return ReportUtils.anyError(semanticsResult.getReports()) ? null : semanticsResult;
+    }
+
+    OllirResult toOllir(JmmSemanticsResult semanticsResult, CompilationResult result) {
+        var optimization = new JmmOptimizationImpl();
+        var optimizedSemantics = CompilerMetrics.measure("optimizeAst",
+                () -> optimization.optimize(semanticsResult));
+        var ollirCode = CompilerMetrics.measure("ollir", () -> optimization.toOllir(optimizedSemantics));
+        var ollirResult = CompilerMetrics.measure("optimize", () -> optimization.optimize(ollirCode));
+        result.setOllirResult(ollirResult);
+
+        return ReportUtils.anyError(ollirResult.getReports()) ? null : ollirResult;
+    }
+
+    void generate(OllirResult ollirResult, Map<String, String> config, CompilationResult result) {
+        if (CompilerConfig.isClassFileBackend(config)) {
+            var classFileResult = CompilerMetrics.measure("classFile",
+                    () -> new ClassFileBackendImpl().toClassFile(ollirResult));
+            result.setClassFileResult(classFileResult);
+        } else {
+            var jasminResult = CompilerMetrics.measure("jasmin",
+                    () -> new JasminBackendImpl().toJasmin(ollirResult));
+            result.setJasminResult(jasminResult);
+        }
+    }
+}
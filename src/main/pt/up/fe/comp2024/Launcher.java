@@ -6,12 +6,25 @@ import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.backend.ClassFileBackendImpl;
+import pt.up.fe.comp2024.backend.ClassFileResult;
 import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.daemon.CompileDaemon;
+import pt.up.fe.comp2024.metrics.CompilerMetrics;
 import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
 import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.parser.OutlineParser;
+import pt.up.fe.comp2024.parser.ParserWarmup;
+import pt.up.fe.comp2024.parser.SourceReader;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+import pt.up.fe.comp2024.utils.Log;
 import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsSystem;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class Launcher {
@@ -20,30 +33,55 @@ public class Launcher {
         SpecsSystem.programStandardInit();
 
         Map<String, String> config = CompilerConfig.parseArgs(args);
+        Log.setLevel(CompilerConfig.getLogLevel(config));
+
+        var warmupRounds = CompilerConfig.getWarmupRounds(config);
+        if (warmupRounds > 0) {
+            ParserWarmup.warmUp(warmupRounds);
+        }
+
+        if (CompilerConfig.getBatchInput(config).isPresent()) {
+            compileBatch(config);
+            return;
+        }
+
+        if (CompilerConfig.isDaemon(config)) {
+            runDaemon(config);
+            return;
+        }
 
         var inputFile = CompilerConfig.getInputFile(config).orElseThrow();
         if (!inputFile.isFile()) {
             throw new RuntimeException("Option '-i' expects a path to an existing input file, got '" + args[0] + "'.");
         }
-        String code = SpecsIo.read(inputFile);
+
+        if (CompilerConfig.isOutline(config)) {
+            printOutline(inputFile, config);
+            return;
+        }
+
+        var metrics = new CompilerMetrics();
+        if (CompilerConfig.isMetrics(config)) {
+            metrics.attach();
+        }
 
         // Parsing stage
         JmmParserImpl parser = new JmmParserImpl();
-        JmmParserResult parserResult = parser.parse(code, config);
+        JmmParserResult parserResult = CompilerMetrics.measure("parse", () -> parser.parse(inputFile, config));
         TestUtils.noErrors(parserResult.getReports());
 
         // Print AST
-        System.out.println(parserResult.getRootNode().toTree());
+        Log.debug(() -> parserResult.getRootNode().toTree());
 
         // Semantic Analysis stage
         JmmAnalysisImpl sema = new JmmAnalysisImpl();
-        JmmSemanticsResult semanticsResult = sema.semanticAnalysis(parserResult);
+        JmmSemanticsResult semanticsResult = CompilerMetrics.measure("analysis", () -> sema.semanticAnalysis(parserResult));
         TestUtils.noErrors(semanticsResult.getReports());
 
 
         // Optimization stage
         JmmOptimizationImpl ollirGen = new JmmOptimizationImpl();
-        OllirResult ollirResult = ollirGen.toOllir(semanticsResult);
+        OllirResult ollirResult = CompilerMetrics.measure("ollir", () -> ollirGen.toOllir(semanticsResult));
         TestUtils.noErrors(ollirResult.getReports());
 
         // Print OLLIR code
@@ -51,11 +89,112 @@ public class Launcher {
 
         // Code generation stage
         JasminBackendImpl jasminGen = new JasminBackendImpl();
-        JasminResult jasminResult = jasminGen.toJasmin(ollirResult);
-        TestUtils.noErrors(jasminResult.getReports());
+        var outputDir = CompilerConfig.getOutputDir(config);
+        if (CompilerConfig.isClassFileBackend(config)) {
+            var classFileGen = new ClassFileBackendImpl();
+            ClassFileResult classFileResult = CompilerMetrics.measure("classFile",
+                    () -> classFileGen.toClassFile(ollirResult));
+            TestUtils.noErrors(classFileResult.getReports());
+            outputDir.ifPresent(classFileResult::write);
+        } else if (outputDir.isPresent()) {
+            // stream the code to the file, instead of building it in memory
+            var outputFile = getJasminFile(outputDir.get(), ollirResult.getOllirClass().getClassName());
+            var jasminReports = CompilerMetrics.measure("jasmin", () -> jasminGen.toJasminFile(ollirResult, outputFile));
+            TestUtils.noErrors(jasminReports);
+        } else {
+            JasminResult jasminResult = CompilerMetrics.measure("jasmin", () -> jasminGen.toJasmin(ollirResult));
+            TestUtils.noErrors(jasminResult.getReports());
+        }
+
+        metrics.detach();
+        if (CompilerConfig.isMetrics(config)) {
+            writeMetrics(Map.of(inputFile.getPath(), metrics), config);
+        }
 
         // Print Jasmin code
         //System.out.println(jasminResult.getJasminCode());
     }
 
+    /**
+     * Prints the symbol table of the given file, parsing only its outline.
+     */
+    private static void printOutline(File inputFile, Map<String, String> config) {
+        JmmParserResult outline;
+        try {
+            outline = OutlineParser.parse(SourceReader.read(inputFile), config);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read input file '" + inputFile + "'", e);
+        }
+        TestUtils.noErrors(outline.getReports());
+
+        System.out.println(JmmSymbolTableBuilder.build(outline.getRootNode()).print());
+    }
+
+    private static void compileBatch(Map<String, String> config) {
+        var inputFiles = BatchCompiler.getInputFiles(CompilerConfig.getBatchInput(config).orElseThrow());
+
+        Map<File, CompilationResult> results;
+        if (CompilerConfig.isPipeline(config)) {
+            var pipeline = new PipelineCompiler(config);
+            results = pipeline.compile(inputFiles);
+            pipeline.getStats().forEach(System.out::println);
+        } else {
+            results = new BatchCompiler(config).compile(inputFiles);
+        }
+
+        if (CompilerConfig.isMetrics(config)) {
+            var metrics = new LinkedHashMap<String, CompilerMetrics>();
+            results.forEach((file, result) -> result.getMetrics()
+                    .ifPresent(unitMetrics -> metrics.put(file.getPath(), unitMetrics)));
+            writeMetrics(metrics, config);
+        }
+
+        CompilerConfig.getOutputDir(config).ifPresent(outputDir -> writeOutputFiles(results.values(), outputDir));
+
+        int failed = BatchCompiler.printResults(results);
+        if (failed > 0) {
+            throw new RuntimeException(failed + " of " + results.size() + " files failed to compile");
+        }
+    }
+
+    private static void writeOutputFiles(Collection<CompilationResult> results, File outputDir) {
+        for (var result : results) {
+            result.getJasminResult().ifPresent(jasminResult ->
+                    SpecsIo.write(getJasminFile(outputDir, jasminResult.getClassName()), jasminResult.getJasminCode()));
+            result.getClassFileResult().ifPresent(classFileResult -> classFileResult.write(outputDir));
+        }
+    }
+
+    private static File getJasminFile(File outputDir, String className) {
+        SpecsIo.mkdir(outputDir);
+        return new File(outputDir, className + ".j");
+    }
+
+    private static void runDaemon(Map<String, String> config) {
+        try (var daemon = new CompileDaemon(config)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    daemon.close();
+                } catch (IOException e) {
+                    Log.error("Could not stop compile daemon: {}", e.getMessage());
+                }
+            }));
+
+            daemon.serve();
+        } catch (IOException e) {
+            throw new RuntimeException("Compile daemon stopped", e);
+        }
+    }
+
+    private static void writeMetrics(Map<String, CompilerMetrics> metrics, Map<String, String> config) {
+        var json = CompilerMetrics.toJson(metrics);
+
+        var output = CompilerConfig.getMetricsOutput(config);
+        if (output.isPresent()) {
+            SpecsIo.write(output.get(), json);
+        } else {
+            System.out.println(json);
+        }
+    }
+
 }
@@ -0,0 +1,373 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.metrics.CompilerMetrics;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Compiles several Java-- files as a pipeline, where each stage of the compiler has its own workers.
+ * <p>
+ * Stages hand units to the next stage through bounded queues, so reading and parsing the next files overlaps with the
+ * analysis and code generation of the previous ones. A full queue blocks the stage before it, which keeps the number
+ * of units in flight bounded. Units that report an error leave the pipeline at the stage that reported it.
+ */
+public class PipelineCompiler {
+
+    /**
+     * Names of the stages, in order.
+     */
+    public static final List<String> STAGES = List.of("read", "parse", "analysis", "ollir", "backend");
+
+    private static final Unit END = new Unit(-1, null, null);
+
+    private final Map<String, String> config;
+    private final int[] threads;
+    private final int queueCapacity;
+    private final JmmCompiler compiler;
+
+    private List<StageStats> stats;
+
+    public PipelineCompiler(Map<String, String> config) {
+        this(config, new JmmCompiler());
+    }
+
+    PipelineCompiler(Map<String, String> config, JmmCompiler compiler) {
+        this.config = config;
+        this.threads = CompilerConfig.getPipelineThreads(config);
+        this.queueCapacity = CompilerConfig.getQueueCapacity(config);
+        this.compiler = compiler;
+        this.stats = List.of();
+    }
+
+    /**
+     * A file going through the pipeline, with the results of the stages it went through.
+     */
+    private static class Unit {
+
+        private final int index;
+        private final File file;
+        private final Map<String, String> config;
+        private final CompilationResult result;
+
+        private String code;
+        private String cacheKey;
+
+        Unit(int index, File file, Map<String, String> config) {
+            this.index = index;
+            this.file = file;
+            this.config = config;
+            this.result = new CompilationResult();
+        }
+    }
+
+    /**
+     * Compiles all the given files.
+     *
+     * @param files
+     * @return the result of each file, in the order they were given
+     */
+    public Map<File, CompilationResult> compile(List<File> files) {
+        var results = new CompilationResult[files.size()];
+
+        var stages = new ArrayList<PipelineStage>();
+        for (int i = 0; i < STAGES.size(); i++) {
+            stages.add(new PipelineStage(STAGES.get(i), threads[i], queueCapacity, results));
+        }
+        for (int i = 0; i < stages.size() - 1; i++) {
+            stages.get(i).next = stages.get(i + 1);
+        }
+
+        stages.get(0).start(this::read);
+        stages.get(1).start(this::parse);
+        stages.get(2).start(this::analyse);
+        stages.get(3).start(this::toOllir);
+        stages.get(4).start(this::generate);
+
+        var first = stages.get(0);
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                var file = files.get(i);
+                var unit = new Unit(i, file, CompilerConfig.forInputFile(config, file));
+
+                if (CompilerConfig.isMetrics(config)) {
+                    unit.result.setMetrics(new CompilerMetrics());
+                }
+
+                first.queue.put(unit);
+            }
+
+            first.end();
+
+            for (var stage : stages) {
+                stage.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the pipeline", e);
+        }
+
+        stats = stages.stream().map(stage -> stage.stats).toList();
+
+        var resultsMap = new LinkedHashMap<File, CompilationResult>();
+        for (int i = 0; i < files.size(); i++) {
+            resultsMap.put(files.get(i), results[i]);
+        }
+
+        return resultsMap;
+    }
+
+    /**
+     * @return the statistics of each stage in the last call to compile, in stage order
+     */
+    public List<StageStats> getStats() {
+        return stats;
+    }
+
+    // Stages return true if the unit should go to the next stage
+
+    private boolean read(Unit unit) {
+        if (!unit.file.isFile()) {
+            unit.result.addReport(Report.newError(Stage.OTHER, -1, -1,
+                    "Could not find input file '" + unit.file + "'", null));
+            return false;
+        }
+
+        unit.code = CompilerMetrics.measure("read", () -> SpecsIo.read(unit.file));
+
+        var cache = compiler.getCache(unit.config);
+        if (cache.isEmpty()) {
+            return true;
+        }
+
+        unit.cacheKey = compiler.getCacheKey(unit.code, unit.config);
+        return !compiler.loadCached(cache.get(), unit.cacheKey, unit.config, unit.result);
+    }
+
+    private boolean parse(Unit unit) {
+        var parserResult = compiler.parse(unit.code, unit.config, unit.result);
+
+        // the source is not needed anymore, do not keep it while the unit waits in the queues
+        unit.code = null;
+
+        return parserResult != null;
+    }
+
+    private boolean analyse(Unit unit) {
+        return compiler.analyse(unit.result.getParserResult().orElseThrow(), unit.result) != null;
+    }
+
+    private boolean toOllir(Unit unit) {
+        return compiler.toOllir(unit.result.getSemanticsResult().orElseThrow(), unit.result) != null;
+    }
+
+    private boolean generate(Unit unit) {
+        compiler.generate(unit.result.getOllirResult().orElseThrow(), unit.config, unit.result);
+
+        if (unit.cacheKey != null) {
+            compiler.storeCached(compiler.getCache(unit.config).orElseThrow(), unit.cacheKey, unit.result);
+        }
+
+        return false;
+    }
+
+    /**
+     * Workers of a single stage, and the queue they take units from.
+     */
+    private static class PipelineStage {
+
+        private final int threads;
+        private final BlockingQueue<Unit> queue;
+        private final StageStats stats;
+        private final CompilationResult[] results;
+        private final List<Thread> workers;
+        private final AtomicInteger activeWorkers;
+
+        private PipelineStage next;
+
+        PipelineStage(String name, int threads, int queueCapacity, CompilationResult[] results) {
+            this.threads = threads;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.stats = new StageStats(name, threads);
+            this.results = results;
+            this.workers = new ArrayList<>();
+            this.activeWorkers = new AtomicInteger(threads);
+            this.next = null;
+        }
+
+        void start(Predicate<Unit> step) {
+            for (int i = 0; i < threads; i++) {
+                var worker = new Thread(() -> work(step), "pipeline-" + stats.getName() + "-" + (i + 1));
+                worker.setDaemon(true);
+                workers.add(worker);
+                worker.start();
+            }
+        }
+
+        /**
+         * Signals that no more units will be added to the queue of this stage.
+         */
+        void end() throws InterruptedException {
+            for (int i = 0; i < threads; i++) {
+                queue.put(END);
+            }
+        }
+
+        void join() throws InterruptedException {
+            for (var worker : workers) {
+                worker.join();
+            }
+        }
+
+        private void work(Predicate<Unit> step) {
+            try {
+                while (true) {
+                    long waitStart = System.nanoTime();
+                    var depth = queue.size();
+                    var unit = queue.take();
+                    stats.inputWaitNanos.addAndGet(System.nanoTime() - waitStart);
+
+                    if (unit == END) {
+                        break;
+                    }
+
+                    stats.recordDepth(depth);
+
+                    long busyStart = System.nanoTime();
+                    boolean forward = process(unit, step);
+                    stats.busyNanos.addAndGet(System.nanoTime() - busyStart);
+                    stats.processed.incrementAndGet();
+
+                    if (!forward || next == null) {
+                        results[unit.index] = unit.result;
+                        continue;
+                    }
+
+                    long putStart = System.nanoTime();
+                    next.queue.put(unit);
+                    stats.outputWaitNanos.addAndGet(System.nanoTime() - putStart);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                // the last worker to leave ends the next stage, however it leaves, or the next stage waits forever
+                if (activeWorkers.decrementAndGet() == 0 && next != null) {
+                    endNext();
+                }
+            }
+        }
+
+        private void endNext() {
+            try {
+                next.end();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private static boolean process(Unit unit, Predicate<Unit> step) {
+            var metrics = unit.result.getMetrics();
+            metrics.ifPresent(CompilerMetrics::attach);
+
+            try {
+                return step.test(unit);
+            } catch (Throwable e) {
+                // errors too, e.g. a StackOverflowError on a deep tree, would otherwise end the worker
+                var exception = e instanceof Exception ? (Exception) e : new RuntimeException(e);
+                unit.result.addReport(Report.newError(Stage.OTHER, -1, -1, "Exception during compilation", exception));
+                return false;
+            } finally {
+                metrics.ifPresent(CompilerMetrics::detach);
+            }
+        }
+    }
+
+    /**
+     * Queue and timing statistics of a pipeline stage.
+     */
+    public static class StageStats {
+
+        private final String name;
+        private final int threads;
+
+        private final AtomicInteger processed = new AtomicInteger();
+        private final AtomicInteger maxDepth = new AtomicInteger();
+        private final AtomicLong depthSum = new AtomicLong();
+        private final AtomicLong inputWaitNanos = new AtomicLong();
+        private final AtomicLong outputWaitNanos = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+
+        StageStats(String name, int threads) {
+            this.name = name;
+            this.threads = threads;
+        }
+
+        private void recordDepth(int depth) {
+            maxDepth.accumulateAndGet(depth, Math::max);
+            depthSum.addAndGet(depth);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public int getProcessed() {
+            return processed.get();
+        }
+
+        /**
+         * @return the largest number of units waiting in the input queue, seen when a unit was taken
+         */
+        public int getMaxQueueDepth() {
+            return maxDepth.get();
+        }
+
+        public double getAverageQueueDepth() {
+            return processed.get() == 0 ? 0 : (double) depthSum.get() / processed.get();
+        }
+
+        /**
+         * @return the time workers spent waiting for units, summed over all workers. High values mean the stage
+         * has more workers than it needs, or that the stages before it are too slow
+         */
+        public long getInputWaitNanos() {
+            return inputWaitNanos.get();
+        }
+
+        /**
+         * @return the time workers spent waiting for space in the queue of the next stage, summed over all workers.
+         * High values mean the next stage is the bottleneck
+         */
+        public long getOutputWaitNanos() {
+            return outputWaitNanos.get();
+        }
+
+        public long getBusyNanos() {
+            return busyNanos.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-9s threads=%-3d units=%-5d queue max=%-4d avg=%-6.1f" +
+                            " busy=%dms input stall=%dms output stall=%dms",
+                    name, threads, getProcessed(), getMaxQueueDepth(), getAverageQueueDepth(),
+                    busyNanos.get() / 1_000_000, inputWaitNanos.get() / 1_000_000,
+                    outputWaitNanos.get() / 1_000_000);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package pt.up.fe.comp2024.analysis;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.ast.ExprTypes;
 
 import java.util.List;
 
@@ -20,4 +21,16 @@ public interface AnalysisPass {
      */
     List<Report> analyze(JmmNode root, SymbolTable table);
 
+    /**
+     * Analyses the given node, with the types of its expressions found so far.
+     *
+     * @param root  the root node that will be visited for analysis
+     * @param table the symbol table
+     * @param types the types of the expressions of the tree
+     * @return a list of reports with the results of the analysis
+     */
+    default List<Report> analyze(JmmNode root, SymbolTable table, ExprTypes types) {
+        return analyze(root, table);
+    }
+
 }
\ No newline at end of file
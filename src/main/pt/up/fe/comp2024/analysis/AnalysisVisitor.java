@@ -2,8 +2,9 @@ package pt.up.fe.comp2024.analysis;
 
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.ast.ExprTypes;
+import pt.up.fe.comp2024.ast.PreorderKindVisitor;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -11,9 +12,10 @@ import java.util.List;
 /**
  *
  */
-public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Void> implements AnalysisPass {
+public abstract class AnalysisVisitor extends PreorderKindVisitor<SymbolTable, Void> implements AnalysisPass {
 
     private List<Report> reports;
+    private ExprTypes exprTypes;
 
     public AnalysisVisitor() {
         reports = new ArrayList<>();
@@ -28,8 +30,22 @@ public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Vo
         return reports;
     }
 
+    /**
+     * @return the types of the expressions of the tree being analysed
+     */
+    protected ExprTypes getExprTypes() {
+        return exprTypes;
+    }
+
     @Override
     public List<Report> analyze(JmmNode root, SymbolTable table) {
+        return analyze(root, table, new ExprTypes(table));
+    }
+
+    @Override
+    public List<Report> analyze(JmmNode root, SymbolTable table, ExprTypes types) {
+        exprTypes = types;
+
         // Visit the node
         visit(root, table);
 
@@ -8,6 +8,9 @@ import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2024.analysis.passes.UndeclaredVariable;
+import pt.up.fe.comp2024.ast.ExprTypes;
+import pt.up.fe.comp2024.metrics.CompilerMetrics;
+import pt.up.fe.comp2024.parser.OutlineParser;
 import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
 
 import java.util.ArrayList;
@@ -31,14 +34,19 @@ public class JmmAnalysisImpl implements JmmAnalysis {
 
         JmmNode rootNode = parserResult.getRootNode();
 
-        SymbolTable table = JmmSymbolTableBuilder.build(rootNode);
+        // the bodies of an outline are parsed now, the analysis and the symbol table need them
+        List<Report> reports = new ArrayList<>(OutlineParser.parseBodies(rootNode, parserResult.getConfig()));
 
-        List<Report> reports = new ArrayList<>();
+        SymbolTable table = CompilerMetrics.measure("symbolTable", () -> JmmSymbolTableBuilder.build(rootNode));
+
+        // the types of the expressions are found once, for the passes and the code generators
+        ExprTypes exprTypes = CompilerMetrics.measure("exprTypes", () -> ExprTypes.annotate(rootNode, table));
 
         // Visit all nodes in the AST
         for (var analysisPass : analysisPasses) {
             try {
-                var passReports = analysisPass.analyze(rootNode, table);
+                var passReports = CompilerMetrics.measure(analysisPass.getClass().getSimpleName(),
+                        () -> analysisPass.analyze(rootNode, table, exprTypes));
                 reports.addAll(passReports);
             } catch (Exception e) {
                 reports.add(Report.newError(Stage.SEMANTIC,
@@ -51,7 +59,7 @@ public class JmmAnalysisImpl implements JmmAnalysis {
 
         }
 
-        return new JmmSemanticsResult(parserResult, table, reports);
+        return new TypedSemanticsResult(parserResult, table, reports, exprTypes);
     }
 
 
@@ -0,0 +1,40 @@
+package pt.up.fe.comp2024.analysis;
+
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.ast.ExprTypes;
+
+import java.util.List;
+
+/**
+ * The result of the semantic analysis, with the types of the expressions found by the analysis, so the code
+ * generators read them instead of finding them again.
+ */
+public class TypedSemanticsResult extends JmmSemanticsResult {
+
+    private final ExprTypes exprTypes;
+
+    public TypedSemanticsResult(JmmParserResult parserResult, SymbolTable symbolTable, List<Report> reports,
+                                ExprTypes exprTypes) {
+        super(parserResult, symbolTable, reports);
+        this.exprTypes = exprTypes;
+    }
+
+    public ExprTypes getExprTypes() {
+        return exprTypes;
+    }
+
+    /**
+     * @param semanticsResult
+     * @return the types of the expressions of the given result, new ones if it was not built by the analysis
+     */
+    public static ExprTypes getExprTypes(JmmSemanticsResult semanticsResult) {
+        if (semanticsResult instanceof TypedSemanticsResult typedResult) {
+            return typedResult.getExprTypes();
+        }
+
+        return new ExprTypes(semanticsResult.getSymbolTable());
+    }
+}
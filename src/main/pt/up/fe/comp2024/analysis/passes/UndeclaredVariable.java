@@ -8,6 +8,8 @@ import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2024.analysis.AnalysisVisitor;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.utils.Log;
 import pt.up.fe.specs.util.SpecsCheck;
 
 import java.util.List;
@@ -23,6 +25,8 @@ import static pt.up.fe.comp2024.ast.TypeUtils.*;
 public class UndeclaredVariable extends AnalysisVisitor {
 
     private String currentMethod;
+    // id of the name of the current method, for the lookups in the symbol table
+    private int currentMethodId = -1;
 
     @Override
     public void buildVisitor() {
@@ -30,7 +34,6 @@ public class UndeclaredVariable extends AnalysisVisitor {
         addVisit(Kind.VAR_REF_EXPR, this::visitVarRefExpr);
         addVisit(Kind.BINARY_EXPR, this::checkBinaryExpression);
         addVisit(Kind.UNARY_EXPR, this::checkUnaryExpr);
-        addVisit(Kind.ARRAY_ACCESS, this::checkArrayAccess);
         addVisit(Kind.ASSIGN_STMT, this::checkAssignment);
         addVisit(Kind.IF_ELSE_STMT, this::visitIfElseStmt);
         addVisit(Kind.METHOD_CALL, this::checkMethodCall);
@@ -38,23 +41,23 @@ public class UndeclaredVariable extends AnalysisVisitor {
         addVisit(Kind.WHILE_STMT, this::visitWhileStmt);
     }
 
-    private Type getVariableType(String varName, SymbolTable symbolTable, String currentMethod) {
-        for (var var : symbolTable.getLocalVariables(currentMethod)) {
-            if (var.getName().equals(varName)) {
-                return var.getType();
-            }
+    private Type getVariableType(String varName, SymbolTable symbolTable) {
+        var table = JmmSymbolTable.of(symbolTable);
+        int nameId = table.getIdentifiers().getId(varName);
+
+        var var = table.getLocalVariable(currentMethodId, nameId);
+        if (var != null) {
+            return var.getType();
         }
 
-        for (var field : symbolTable.getFields()) {
-            if (field.getName().equals(varName)) {
-                return field.getType();
-            }
+        var field = table.getField(nameId);
+        if (field != null) {
+            return field.getType();
         }
 
-        for (var param : symbolTable.getParameters(currentMethod)) {
-            if (param.getName().equals(varName)) {
-                return param.getType();
-            }
+        var param = table.getParameter(currentMethodId, nameId);
+        if (param != null) {
+            return param.getType();
         }
 
         return null;
@@ -63,14 +66,14 @@ public class UndeclaredVariable extends AnalysisVisitor {
     private Void visitWhileStmt(JmmNode jmmNode, SymbolTable symbolTable) {
         JmmNode condition = jmmNode.getChildren().get(0);
 
-        if (condition.getKind().equals("VarRefExpr")) {
+        if (Kind.VAR_REF_EXPR.check(condition)) {
             visitVarRefExpr(condition, symbolTable);
 
             // Get the variable name
             String varName = condition.get("name");
 
             // Get the type of the variable from the symbol table
-            Type varType = getVariableType(varName, symbolTable, currentMethod);
+            Type varType = getVariableType(varName, symbolTable);
 
             // Check if the variable type is boolean
             if (!varType.getName().equals("boolean")) {
@@ -83,8 +86,8 @@ public class UndeclaredVariable extends AnalysisVisitor {
 
     private Void checkBracketExpr(JmmNode jmmNode, SymbolTable symbolTable) {
         JmmNode firstChild = jmmNode.getChildren().get(0);
-        Type firstType = getExprType(firstChild, symbolTable);
-        Type secondType = getExprType(jmmNode.getChildren().get(1), symbolTable);
+        Type firstType = getExprType(firstChild, getExprTypes());
+        Type secondType = getExprType(jmmNode.getChildren().get(1), getExprTypes());
         if (!firstType.isArray()) {
             addError("Array access is done over a non-array type", jmmNode);
         }
@@ -107,10 +110,10 @@ public class UndeclaredVariable extends AnalysisVisitor {
         // Get the type of the target
         Type targetType = null;
         try {
-            targetType = getExprType(target, table);
+            targetType = getExprType(target, getExprTypes());
         } catch (Exception e) {
             // Handle the exception
-            System.err.println("An error occurred while getting the variable expression type: " + e.getMessage());
+            Log.debug("An error occurred while getting the variable expression type: {}", e.getMessage());
         }
         if (targetType == null) {
             addError("Variable is undeclared", methodCall);
@@ -129,13 +132,8 @@ public class UndeclaredVariable extends AnalysisVisitor {
         }
 
         // Retrieve the method from the symbol table
-        var method = table.getMethods()
-                .stream()
-                .filter(m -> m.equals(methodName))
-                .findFirst()
-                .orElse(null);
-
-        if (method == null) {
+        var indexedTable = JmmSymbolTable.of(table);
+        if (!indexedTable.hasMethod(indexedTable.getIdentifiers().getId(methodName))) {
             addError("Method not found", methodCall);
             return null;
         }
@@ -161,7 +159,7 @@ public class UndeclaredVariable extends AnalysisVisitor {
                     var argument = children.get(i + 1);
                     var parameter = parameters.get(i);
 
-                    var argumentType = getExprType(argument, table);
+                    var argumentType = getExprType(argument, getExprTypes());
                     var parameterType = parameter.getType();
 
                     if (!argumentType.getName().equals(parameterType.getName())) {
@@ -177,15 +175,16 @@ public class UndeclaredVariable extends AnalysisVisitor {
 
     private Void visitMethodDecl(JmmNode method, SymbolTable table) {
         currentMethod = method.get("name");
+        currentMethodId = JmmSymbolTable.of(table).getIdentifiers().getId(currentMethod);
 
         // Get the parameters of the method
         List<JmmNode> parameters = method.getChildren().stream()
-                .filter(child -> "Param".equals(child.getKind()))
+                .filter(Kind.PARAM::check)
                 .toList();
 
         // Check if any parameter after varargs
         for (int i = 0; i < parameters.size(); i++) {
-            if ("Varargs".equals(parameters.get(i).getChild(0).getKind()) && i != parameters.size() - 1) {
+            if (Kind.VARARGS_TYPE.check(parameters.get(i).getChild(0)) && i != parameters.size() - 1) {
                 addError("Varargs parameter should be the last parameter", method);
             }
         }
@@ -204,7 +203,7 @@ public class UndeclaredVariable extends AnalysisVisitor {
             // Get the type of the last child
             Type lastChildType = null;
             try {
-                lastChildType = getExprType(lastChild, table);
+                lastChildType = getExprType(lastChild, getExprTypes());
             } catch (Exception e) {
                 addError("An error occurred while getting the expression type: " + e.getMessage(), lastChild);
                 return null;
@@ -237,11 +236,13 @@ public class UndeclaredVariable extends AnalysisVisitor {
         SpecsCheck.checkNotNull(currentMethod, () -> "Expected current method to be set");
 
         String varRefName = varRefExpr.get("name");
+        var indexedTable = JmmSymbolTable.of(table);
+        int nameId = indexedTable.getIdentifiers().getId(varRefName);
 
-        if (!isDeclaredLocally(varRefName, table)) {
-            if (!isField(varRefName, table)) {
-                if (!isParameter(varRefName, table)) {
-                    if (!isImportedClass(varRefName, table)) {
+        if (!isDeclaredLocally(nameId, indexedTable)) {
+            if (!isField(nameId, indexedTable)) {
+                if (!isParameter(nameId, indexedTable)) {
+                    if (!indexedTable.isImportedClass(nameId)) {
                         addUndeclaredVariableError(varRefExpr, varRefName);
                     }
                 }
@@ -251,29 +252,25 @@ public class UndeclaredVariable extends AnalysisVisitor {
         return null;
     }
 
-    private boolean isDeclaredLocally(String varName, SymbolTable table) {
-        return table.getLocalVariables(currentMethod).stream()
-                .anyMatch(varDecl -> varDecl.getName().equals(varName));
+    private boolean isDeclaredLocally(int nameId, JmmSymbolTable table) {
+        return table.getLocalVariable(currentMethodId, nameId) != null;
     }
 
-    private boolean isField(String varName, SymbolTable table) {
-        return table.getFields().stream()
-                .anyMatch(field -> field.getName().equals(varName));
+    private boolean isField(int nameId, JmmSymbolTable table) {
+        return table.getField(nameId) != null;
     }
 
-    private boolean isParameter(String varName, SymbolTable table) {
-        return table.getParameters(currentMethod).stream()
-                .anyMatch(param -> param.getName().equals(varName));
+    private boolean isParameter(int nameId, JmmSymbolTable table) {
+        return table.getParameter(currentMethodId, nameId) != null;
     }
 
     private boolean isImportedClass(String varName, SymbolTable table) {
-        return table.getImports().stream()
-                .anyMatch(imported -> (imported.endsWith(", " + varName + "]") || imported.equals("[" + varName + "]")));
+        return JmmSymbolTable.of(table).isImportedClass(varName);
     }
 
     private Void checkBinaryExpression(JmmNode binaryExpr, SymbolTable table) {
         try {
-            Type resultType = getBinExprType(binaryExpr, table);
+            Type resultType = getExprType(binaryExpr, getExprTypes());
         } catch (RuntimeException e) {
             addError(e.getMessage(), binaryExpr);
         }
@@ -283,7 +280,7 @@ public class UndeclaredVariable extends AnalysisVisitor {
 
     private Void checkUnaryExpr(JmmNode exprNode, SymbolTable table) {
         try {
-            Type resultType = getUnaryExprType(exprNode, table);
+            Type resultType = getExprType(exprNode, getExprTypes());
         } catch (RuntimeException e) {
             addError(e.getMessage(), exprNode);
         }
@@ -308,26 +305,12 @@ public class UndeclaredVariable extends AnalysisVisitor {
         );
     }
 
-    private Void checkArrayAccess(JmmNode arrayAccessNode, SymbolTable table) {
-        JmmNode arrayExpr = arrayAccessNode.getChildren().get(0);
-        JmmNode indexExpr = arrayAccessNode.getChildren().get(1);
-        Type arrayType = getExprType(arrayExpr, table);
-        if (!arrayType.isArray()) {
-            addError("Array access is done over a non-array type", arrayAccessNode);
-        }
-        Type indexType = getExprType(indexExpr, table);
-        if (!"int".equals(indexType.getName())) {
-            addError("Array access index is not of integer type", indexExpr);
-        }
-        return null;
-    }
-
     private Void checkAssignment(JmmNode node, SymbolTable table) {
         JmmNode leftOperand = node.getChildren().get(0);
-        Type leftType = getExprType(leftOperand, table);
+        Type leftType = getExprType(leftOperand, getExprTypes());
 
         JmmNode rightOperand = node.getChildren().get(1);
-        Type rightType = getExprType(rightOperand, table);
+        Type rightType = getExprType(rightOperand, getExprTypes());
 
 
         if ((!leftType.isArray() && rightType.isArray()) || (leftType.isArray() && !rightType.isArray())) {
@@ -338,11 +321,11 @@ public class UndeclaredVariable extends AnalysisVisitor {
             boolean flag = true;
             if (leftType.getName().equals("int")) {
                 flag = rightOperand.getChildren().stream()
-                        .allMatch(arrElement -> arrElement.getKind().equals("IntegerLiteral"));
+                        .allMatch(Kind.INTEGER_LITERAL::check);
             }
             if (leftType.getName().equals("boolean")) {
                 flag = rightOperand.getChildren().stream()
-                        .allMatch(arrElement -> arrElement.getKind().equals("TrueLiteral") || arrElement.getKind().equals("FalseLiteral"));
+                        .allMatch(arrElement -> Kind.check(arrElement, Kind.TRUE_LITERAL, Kind.FALSE_LITERAL));
             }
 
 
@@ -352,7 +335,7 @@ public class UndeclaredVariable extends AnalysisVisitor {
         }
 
 
-        Type helperType = new Type(table.getSuper(), false);
+        Type helperType = JmmSymbolTable.of(table).getTypes().getType(table.getSuper(), false);
 
         boolean isLeftAssignableToSuper = areTypesAssignable(leftType, helperType);
         boolean isRightAssignableToSuper = areTypesAssignable(rightType, helperType);
@@ -375,7 +358,7 @@ public class UndeclaredVariable extends AnalysisVisitor {
     //need to be recursive as well
     private Void visitIfElseStmt(JmmNode node, SymbolTable table) {
         JmmNode Condition = node.getChildren().get(0);
-        if(Condition.getKind().equals("BinaryExpr")){
+        if(Kind.BINARY_EXPR.check(Condition)){
             if (Condition.get("op").equals("+") || Condition.get("op").equals("-")
                     || Condition.get("op").equals("/") || Condition.get("op").equals("*")) {
                 addError("If condition doesn't support non boolean operations", Condition);
@@ -384,15 +367,15 @@ public class UndeclaredVariable extends AnalysisVisitor {
             JmmNode rightOp = Condition.getChild(1);
 
 
-            if (leftOp.getKind().equals("TrueLiteral") || rightOp.getKind().equals("FalseLiteral")) {
+            if (Kind.TRUE_LITERAL.check(leftOp) || Kind.FALSE_LITERAL.check(rightOp)) {
             } else {
                 addError("Type of the condition is not boolean", Condition);
             }
         }
-        if(Condition.getKind().equals("VarRefExpr")){
+        if(Kind.VAR_REF_EXPR.check(Condition)){
             visitVarRefExpr(Condition, table);
             String varName = Condition.get("name");
-            Type varType = getVariableType(varName, table, currentMethod);
+            Type varType = getVariableType(varName, table);
             if (!varType.getName().equals("boolean")) {
                 addError("Type of the condition is not boolean", Condition);
             }
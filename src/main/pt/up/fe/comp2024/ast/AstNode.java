@@ -0,0 +1,23 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+
+/**
+ * A node of the tree built by the parser, which resolves its {@link Kind} once, when it is created.
+ * <p>
+ * The Kind is not an attribute, so the tree prints and serializes the same as a tree of {@link JmmNodeImpl}.
+ */
+public class AstNode extends JmmNodeImpl implements KindedNode {
+
+    private final Kind kindEnum;
+
+    public AstNode(String kind) {
+        super(kind);
+        this.kindEnum = Kind.fromNodeName(kind);
+    }
+
+    @Override
+    public Kind getKindEnum() {
+        return kindEnum;
+    }
+}
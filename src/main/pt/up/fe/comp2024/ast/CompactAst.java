@@ -0,0 +1,417 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An AST stored as a structure of arrays, instead of one object with its own maps per node.
+ * <p>
+ * Nodes are numbered from 0 (the root), and each property of the nodes is an array indexed by that number: the kind,
+ * the parent, the range of children, the range of attributes and the source position. Kinds, attribute keys and
+ * attribute values are interned, so each distinct string is stored once per tree and nodes only keep its id.
+ * Attributes that are not strings (e.g. the list of names of an import) are kept in a separate object table.
+ * <p>
+ * The nodes are read through {@link CompactNode}, which implements {@link JmmNode}, so the visitors work on this tree
+ * like on the tree built by the parser.
+ */
+public class CompactAst {
+
+    /**
+     * Value of the positions that are not known.
+     */
+    public static final int NO_POSITION = -1;
+
+    private static final int POSITION_FIELDS = 4;
+    private static final int LINE_START = 0;
+    private static final int COL_START = 1;
+    private static final int LINE_END = 2;
+    private static final int COL_END = 3;
+
+    private static final Kind[] KINDS = Kind.values();
+
+    // interned strings: kinds, attribute keys and attribute values
+    private final String[] strings;
+    private final List<String>[] hierarchies;
+    private final Object[] objects;
+
+    private final int[] kinds;
+    private final int[] hierarchy;
+    private final int[] parents;
+
+    // children of node i are children[childStart[i] .. childStart[i + 1])
+    private final int[] childStart;
+    private final int[] children;
+
+    // attributes of node i are attrKeys/attrValues[attrStart[i] .. attrStart[i + 1]), values < 0 are objects
+    private final int[] attrStart;
+    private final int[] attrKeys;
+    private final int[] attrValues;
+
+    private final int[] positions;
+
+    private final CompactNode[] views;
+
+    private final Identifiers identifiers;
+
+    // Kind of each interned string, resolved the first time it is used as a kind: ordinal + 1, -1 if none
+    private final int[] kindOrdinals;
+
+    private CompactAst(Builder builder) {
+        int size = builder.size;
+
+        this.strings = builder.strings.toArray(new String[0]);
+        @SuppressWarnings("unchecked")
+        List<String>[] hierarchies = (List<String>[]) builder.hierarchies.toArray(new List<?>[0]);
+        this.hierarchies = hierarchies;
+        this.objects = builder.objects.toArray();
+
+        this.kinds = Arrays.copyOf(builder.kinds, size);
+        this.hierarchy = Arrays.copyOf(builder.hierarchy, size);
+        this.parents = Arrays.copyOf(builder.parents, size);
+        this.positions = Arrays.copyOf(builder.positions, size * POSITION_FIELDS);
+
+        // children were added in order, grouping them by parent keeps the order of siblings
+        this.childStart = new int[size + 1];
+        this.children = new int[Math.max(0, size - 1)];
+        for (int node = 1; node < size; node++) {
+            childStart[parents[node] + 1]++;
+        }
+        prefixSum(childStart);
+        var nextChild = Arrays.copyOf(childStart, size);
+        for (int node = 1; node < size; node++) {
+            children[nextChild[parents[node]]++] = node;
+        }
+
+        // same for the attributes, which were added in any order of nodes
+        int attributes = builder.attributes;
+        this.attrStart = new int[size + 1];
+        this.attrKeys = new int[attributes];
+        this.attrValues = new int[attributes];
+        for (int i = 0; i < attributes; i++) {
+            attrStart[builder.attrNodes[i] + 1]++;
+        }
+        prefixSum(attrStart);
+        var nextAttr = Arrays.copyOf(attrStart, size);
+        for (int i = 0; i < attributes; i++) {
+            int slot = nextAttr[builder.attrNodes[i]]++;
+            attrKeys[slot] = builder.attrKeys[i];
+            attrValues[slot] = builder.attrValues[i];
+        }
+
+        this.views = new CompactNode[size];
+        this.kindOrdinals = new int[strings.length];
+        this.identifiers = builder.identifiers;
+    }
+
+    private static void prefixSum(int[] counts) {
+        for (int i = 1; i < counts.length; i++) {
+            counts[i] += counts[i - 1];
+        }
+    }
+
+    /**
+     * @return the root of the tree
+     */
+    public CompactNode getRoot() {
+        return getNode(0);
+    }
+
+    /**
+     * @return the number of nodes in the tree
+     */
+    public int size() {
+        return kinds.length;
+    }
+
+    /**
+     * @param index
+     * @return the node with the given index, always the same object for the same index
+     */
+    public CompactNode getNode(int index) {
+        var node = views[index];
+        if (node == null) {
+            node = new CompactNode(this, index);
+            views[index] = node;
+        }
+
+        return node;
+    }
+
+    /**
+     * @return the identifiers numbered by the parser for this tree, or null if it has none
+     */
+    public Identifiers getIdentifiers() {
+        return identifiers;
+    }
+
+    /**
+     * @param id
+     * @return the interned string with the given id
+     */
+    public String getString(int id) {
+        return strings[id];
+    }
+
+    int getKindId(int node) {
+        return kinds[node];
+    }
+
+    Kind getKindEnum(int node) {
+        int id = kinds[node];
+        int ordinal = kindOrdinals[id];
+
+        if (ordinal == 0) {
+            var kind = Kind.fromNodeName(strings[id]);
+            ordinal = kind == null ? -1 : kind.ordinal() + 1;
+            kindOrdinals[id] = ordinal;
+        }
+
+        return ordinal < 0 ? null : KINDS[ordinal - 1];
+    }
+
+    String getKind(int node) {
+        return strings[kinds[node]];
+    }
+
+    List<String> getHierarchy(int node) {
+        return hierarchies[hierarchy[node]];
+    }
+
+    int getParent(int node) {
+        return parents[node];
+    }
+
+    int getNumChildren(int node) {
+        return childStart[node + 1] - childStart[node];
+    }
+
+    int getChild(int node, int index) {
+        return children[childStart[node] + index];
+    }
+
+    int getAttributeCount(int node) {
+        return attrStart[node + 1] - attrStart[node];
+    }
+
+    String getAttributeKey(int node, int index) {
+        return strings[attrKeys[attrStart[node] + index]];
+    }
+
+    /**
+     * @return the slot of the given attribute of the node, or -1 if the node does not have it
+     */
+    int findAttribute(int node, String key) {
+        for (int slot = attrStart[node]; slot < attrStart[node + 1]; slot++) {
+            // keys are interned, but the given key may not be the same instance
+            var slotKey = strings[attrKeys[slot]];
+            if (slotKey == key || slotKey.equals(key)) {
+                return slot;
+            }
+        }
+
+        return -1;
+    }
+
+    int getValueId(int slot) {
+        return attrValues[slot];
+    }
+
+    Object getValue(int slot) {
+        int value = attrValues[slot];
+        return value >= 0 ? strings[value] : objects[-value - 1];
+    }
+
+    int getLineStart(int node) {
+        return positions[node * POSITION_FIELDS + LINE_START];
+    }
+
+    int getColStart(int node) {
+        return positions[node * POSITION_FIELDS + COL_START];
+    }
+
+    int getLineEnd(int node) {
+        return positions[node * POSITION_FIELDS + LINE_END];
+    }
+
+    int getColEnd(int node) {
+        return positions[node * POSITION_FIELDS + COL_END];
+    }
+
+    /**
+     * @param key
+     * @return the index of the given position attribute in the positions of a node, -1 if it is not a position
+     */
+    static int getPositionField(String key) {
+        return switch (key) {
+            case "lineStart" -> LINE_START;
+            case "colStart" -> COL_START;
+            case "lineEnd" -> LINE_END;
+            case "colEnd" -> COL_END;
+            default -> -1;
+        };
+    }
+
+    static String getPositionKey(int field) {
+        return switch (field) {
+            case LINE_START -> NodePosition.LINE_START.getString();
+            case COL_START -> NodePosition.COL_START.getString();
+            case LINE_END -> NodePosition.LINE_END.getString();
+            default -> NodePosition.COL_END.getString();
+        };
+    }
+
+    int getPosition(int node, int field) {
+        return positions[node * POSITION_FIELDS + field];
+    }
+
+    /**
+     * Builds a compact tree node by node. Parents must be added before their children, and the children of a node in
+     * their order.
+     */
+    public static class Builder {
+
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> stringIds = new HashMap<>();
+        private final List<List<String>> hierarchies = new ArrayList<>();
+        private final Map<List<String>, Integer> hierarchyIds = new HashMap<>();
+        private final List<Object> objects = new ArrayList<>();
+
+        private int size = 0;
+        private int[] kinds = new int[64];
+        private int[] hierarchy = new int[64];
+        private int[] parents = new int[64];
+        private int[] positions = new int[64 * POSITION_FIELDS];
+
+        private int attributes = 0;
+        private int[] attrNodes = new int[128];
+        private int[] attrKeys = new int[128];
+        private int[] attrValues = new int[128];
+
+        private Identifiers identifiers = null;
+
+        /**
+         * Adds a node, without attributes and without a position.
+         *
+         * @param parent    the index of the parent, -1 for the root
+         * @param kind
+         * @param hierarchy the kind of the node followed by its super kinds
+         * @return the index of the new node
+         */
+        public int addNode(int parent, String kind, Iterable<String> hierarchy) {
+            if (parent < 0 ? size != 0 : parent >= size) {
+                throw new RuntimeException("Invalid parent " + parent + " for node " + size + " of kind " + kind);
+            }
+
+            if (size == kinds.length) {
+                int capacity = size * 2;
+                kinds = Arrays.copyOf(kinds, capacity);
+                this.hierarchy = Arrays.copyOf(this.hierarchy, capacity);
+                parents = Arrays.copyOf(parents, capacity);
+                positions = Arrays.copyOf(positions, capacity * POSITION_FIELDS);
+            }
+
+            int node = size++;
+            kinds[node] = intern(kind);
+            this.hierarchy[node] = internHierarchy(hierarchy);
+            parents[node] = parent;
+            Arrays.fill(positions, node * POSITION_FIELDS, (node + 1) * POSITION_FIELDS, NO_POSITION);
+
+            return node;
+        }
+
+        /**
+         * Sets the source position of a node.
+         */
+        public void setPosition(int node, int lineStart, int colStart, int lineEnd, int colEnd) {
+            int offset = node * POSITION_FIELDS;
+            positions[offset + LINE_START] = lineStart;
+            positions[offset + COL_START] = colStart;
+            positions[offset + LINE_END] = lineEnd;
+            positions[offset + COL_END] = colEnd;
+        }
+
+        /**
+         * Sets an attribute of a node. Position attributes are stored as numbers.
+         *
+         * @param node
+         * @param key
+         * @param value a String, or any other object
+         */
+        public void put(int node, String key, Object value) {
+            int positionField = getPositionField(key);
+            if (positionField >= 0 && value instanceof String position) {
+                positions[node * POSITION_FIELDS + positionField] = Integer.parseInt(position);
+                return;
+            }
+
+            if (attributes == attrNodes.length) {
+                int capacity = attributes * 2;
+                attrNodes = Arrays.copyOf(attrNodes, capacity);
+                attrKeys = Arrays.copyOf(attrKeys, capacity);
+                attrValues = Arrays.copyOf(attrValues, capacity);
+            }
+
+            attrNodes[attributes] = node;
+            attrKeys[attributes] = intern(key);
+            if (value instanceof String string) {
+                attrValues[attributes] = intern(string);
+            } else {
+                objects.add(value);
+                attrValues[attributes] = -objects.size();
+            }
+            attributes++;
+        }
+
+        /**
+         * @param identifiers the identifiers of the tree, see {@link CompactAst#getIdentifiers()}
+         */
+        public void setIdentifiers(Identifiers identifiers) {
+            this.identifiers = identifiers;
+        }
+
+        /**
+         * @return the tree, the builder should not be used after this
+         */
+        public CompactAst build() {
+            if (size == 0) {
+                throw new RuntimeException("Cannot build an empty tree");
+            }
+
+            return new CompactAst(this);
+        }
+
+        private int intern(String value) {
+            var id = stringIds.get(value);
+            if (id == null) {
+                id = strings.size();
+                strings.add(value);
+                stringIds.put(value, id);
+            }
+
+            return id;
+        }
+
+        private int internHierarchy(Iterable<String> kinds) {
+            var hierarchy = new ArrayList<String>();
+            for (var kind : kinds) {
+                hierarchy.add(strings.get(intern(kind)));
+            }
+
+            var id = hierarchyIds.get(hierarchy);
+            if (id == null) {
+                id = hierarchies.size();
+                var interned = List.copyOf(hierarchy);
+                hierarchies.add(interned);
+                hierarchyIds.put(interned, id);
+            }
+
+            return id;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.specs.util.SpecsCheck;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.stream.Collectors;
+
+/**
+ * A node of a {@link CompactAst}.
+ * <p>
+ * Reads go straight to the arrays of the tree. The tree itself is never changed: a node that is changed keeps its
+ * own children and attributes from then on, and only that node uses more memory.
+ */
+public class CompactNode implements KindedNode {
+
+    private final CompactAst ast;
+    private final int index;
+
+    // only set when the node was changed, or moved to another parent
+    private boolean parentChanged = false;
+    private JmmNode parent = null;
+    private List<JmmNode> children = null;
+    private Map<String, Object> attributes = null;
+
+    CompactNode(CompactAst ast, int index) {
+        this.ast = ast;
+        this.index = index;
+    }
+
+    /**
+     * @return the tree this node belongs to
+     */
+    public CompactAst getAst() {
+        return ast;
+    }
+
+    /**
+     * @return the index of this node in its tree
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the interned id of the kind of this node, the same for all nodes of the same kind in the tree
+     */
+    public int getKindId() {
+        return ast.getKindId(index);
+    }
+
+    @Override
+    public Kind getKindEnum() {
+        return ast.getKindEnum(index);
+    }
+
+    /**
+     * @param key
+     * @return the interned id of the value of the given attribute, or -1 if the value is not an interned string.
+     * Equal values of the same tree have the same id
+     */
+    public int getValueId(String key) {
+        if (attributes != null && attributes.containsKey(key)) {
+            return -1;
+        }
+
+        int slot = ast.findAttribute(index, key);
+        return slot < 0 ? -1 : Math.max(-1, ast.getValueId(slot));
+    }
+
+    /**
+     * @return the line where this node starts, or -1 if it is not known
+     */
+    public int getLineStart() {
+        return getPosition(0);
+    }
+
+    /**
+     * @return the column where this node starts, or -1 if it is not known
+     */
+    public int getColStart() {
+        return getPosition(1);
+    }
+
+    /**
+     * @return the line where this node ends, or -1 if it is not known
+     */
+    public int getLineEnd() {
+        return getPosition(2);
+    }
+
+    /**
+     * @return the column where this node ends, or -1 if it is not known
+     */
+    public int getColEnd() {
+        return getPosition(3);
+    }
+
+    private int getPosition(int field) {
+        if (attributes != null) {
+            var value = attributes.get(CompactAst.getPositionKey(field));
+            if (value != null) {
+                return Integer.parseInt(value.toString());
+            }
+        }
+
+        return ast.getPosition(index, field);
+    }
+
+    @Override
+    public String getKind() {
+        return ast.getKind(index);
+    }
+
+    @Override
+    public Collection<String> getHierarchy() {
+        return ast.getHierarchy(index);
+    }
+
+    @Override
+    public Collection<String> getAttributes() {
+        var keys = new LinkedHashSet<String>();
+
+        for (int field = 0; field < 4; field++) {
+            if (ast.getPosition(index, field) != CompactAst.NO_POSITION) {
+                keys.add(CompactAst.getPositionKey(field));
+            }
+        }
+
+        for (int i = 0; i < ast.getAttributeCount(index); i++) {
+            keys.add(ast.getAttributeKey(index, i));
+        }
+
+        if (attributes != null) {
+            keys.addAll(attributes.keySet());
+        }
+
+        return keys;
+    }
+
+    @Override
+    public boolean hasAttribute(String attribute) {
+        return findObject(attribute) != null;
+    }
+
+    @Override
+    public Object getObject(String attribute) {
+        var value = findObject(attribute);
+        SpecsCheck.checkNotNull(value, () -> "Node " + this + " does not contain attribute '" + attribute + "'");
+
+        return value;
+    }
+
+    private Object findObject(String attribute) {
+        if (attributes != null) {
+            var value = attributes.get(attribute);
+            if (value != null) {
+                return value;
+            }
+        }
+
+        int slot = ast.findAttribute(index, attribute);
+        if (slot >= 0) {
+            return ast.getValue(slot);
+        }
+
+        int positionField = CompactAst.getPositionField(attribute);
+        if (positionField >= 0) {
+            int position = ast.getPosition(index, positionField);
+            return position == CompactAst.NO_POSITION ? null : Integer.toString(position);
+        }
+
+        return null;
+    }
+
+    @Override
+    public Object putObject(String attribute, Object value) {
+        var previous = findObject(attribute);
+
+        if (attributes == null) {
+            attributes = new HashMap<>();
+        }
+        attributes.put(attribute, value);
+
+        return previous;
+    }
+
+    @Deprecated
+    @Override
+    public JmmNode getJmmParent() {
+        if (parentChanged) {
+            return parent;
+        }
+
+        int parentIndex = ast.getParent(index);
+        return parentIndex < 0 ? null : ast.getNode(parentIndex);
+    }
+
+    @Override
+    public List<JmmNode> getChildren() {
+        if (children != null) {
+            return children;
+        }
+
+        return new Children();
+    }
+
+    @Override
+    public int getNumChildren() {
+        return children != null ? children.size() : ast.getNumChildren(index);
+    }
+
+    @Override
+    public JmmNode getJmmChild(int index) {
+        return children != null ? children.get(index) : ast.getNode(ast.getChild(this.index, index));
+    }
+
+    @Override
+    public void add(JmmNode child, int index) {
+        ownChildren().add(index, child);
+        child.setParent(this);
+    }
+
+    @Override
+    public void setChild(JmmNode child, int index) {
+        var previous = ownChildren().set(index, child);
+        previous.removeParent();
+        child.setParent(this);
+    }
+
+    @Override
+    public JmmNode removeJmmChild(int index) {
+        var child = ownChildren().remove(index);
+        child.removeParent();
+
+        return child;
+    }
+
+    @Deprecated
+    @Override
+    public int removeJmmChild(JmmNode child) {
+        var children = ownChildren();
+        for (int i = 0; i < children.size(); i++) {
+            if (children.get(i) == child) {
+                removeJmmChild(i);
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    @Override
+    public JmmNode detach() {
+        var parent = getParent();
+        if (parent != null) {
+            parent.removeChild(this);
+        }
+
+        return this;
+    }
+
+    @Override
+    public void removeParent() {
+        setParent(null);
+    }
+
+    @Override
+    public void setParent(JmmNode parent) {
+        this.parentChanged = true;
+        this.parent = parent;
+    }
+
+    @Override
+    public JmmNode copyNode() {
+        var copy = new AstNode(getKind());
+        copy.setHierarchy(getHierarchy());
+        for (var attribute : getAttributes()) {
+            copy.putObject(attribute, getObject(attribute));
+        }
+
+        return copy;
+    }
+
+    private List<JmmNode> ownChildren() {
+        if (children == null) {
+            children = new ArrayList<>(new Children());
+        }
+
+        return children;
+    }
+
+    @Override
+    public String toString() {
+        var attributes = getAttributes().stream()
+                .filter(attribute -> CompactAst.getPositionField(attribute) < 0)
+                .map(attribute -> attribute + ": " + get(attribute))
+                .collect(Collectors.joining(", ", " (", ")"));
+
+        return getKind() + (attributes.equals(" ()") ? "" : attributes);
+    }
+
+    /**
+     * The children of a node that was not changed, read from the tree.
+     */
+    private class Children extends AbstractList<JmmNode> implements RandomAccess {
+
+        @Override
+        public JmmNode get(int index) {
+            return ast.getNode(ast.getChild(CompactNode.this.index, index));
+        }
+
+        @Override
+        public int size() {
+            return ast.getNumChildren(CompactNode.this.index);
+        }
+    }
+}
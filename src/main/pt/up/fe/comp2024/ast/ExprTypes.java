@@ -0,0 +1,103 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.utils.Log;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The types of the expressions of a tree, kept by node identity so that {@link TypeUtils#getExprType} finds the type
+ * of each expression once, however many times it is asked for it.
+ * <p>
+ * The analysis fills one with {@link #annotate} after the symbol table is built, and keeps it in its result (see
+ * {@link pt.up.fe.comp2024.analysis.TypedSemanticsResult}) for the passes and the code generators. Only the
+ * expressions whose type was found are kept, the ones that fail are tried again, and fail the same way, when asked for.
+ * The tree must not be changed after its types are found.
+ * <p>
+ * Not thread-safe, a compilation is only in one stage at a time.
+ */
+public class ExprTypes {
+
+    private final JmmSymbolTable table;
+
+    // some types are null, e.g. calls to methods that are not known
+    private final Map<JmmNode, Type> types = new IdentityHashMap<>();
+
+    /**
+     * @param table the symbol table the types are found with
+     */
+    public ExprTypes(SymbolTable table) {
+        // once, a table that is not a JmmSymbolTable is copied
+        this.table = JmmSymbolTable.of(table);
+    }
+
+    /**
+     * Finds the types of all the expressions of the given tree, from the leaves up, so the type of each expression is
+     * found from the types of its operands.
+     *
+     * @param root
+     * @param table
+     * @return the types of the expressions
+     */
+    public static ExprTypes annotate(JmmNode root, SymbolTable table) {
+        var types = new ExprTypes(table);
+
+        var visitor = new PostorderKindVisitor<Void, Void>() {
+            @Override
+            protected void buildVisitor() {
+                setDefaultVisit((node, unused) -> {
+                    annotateNode(node, types);
+                    return null;
+                });
+            }
+        };
+
+        visitor.visit(root);
+
+        return types;
+    }
+
+    private static void annotateNode(JmmNode node, ExprTypes types) {
+        var kind = Kind.of(node);
+        if (kind == null || !kind.isExpr()) {
+            return;
+        }
+
+        try {
+            TypeUtils.getExprType(node, types);
+        } catch (RuntimeException e) {
+            // reported by the analysis, if it asks for the type
+            Log.debug("No type for {}: {}", node.getKind(), e.getMessage());
+        }
+    }
+
+    /**
+     * @return the symbol table the types are found with
+     */
+    public JmmSymbolTable getTable() {
+        return table;
+    }
+
+    boolean contains(JmmNode expr) {
+        return types.containsKey(expr);
+    }
+
+    Type get(JmmNode expr) {
+        return types.get(expr);
+    }
+
+    void put(JmmNode expr, Type type) {
+        types.put(expr, type);
+    }
+
+    /**
+     * @return the number of expressions whose type was found
+     */
+    public int size() {
+        return types.size();
+    }
+}
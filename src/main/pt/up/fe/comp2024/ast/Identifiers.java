@@ -0,0 +1,84 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The identifiers of a compilation, numbered from 0 in the order they were first seen.
+ * <p>
+ * The parser numbers the identifiers of the program while it builds the AST, and the nodes share the one String of
+ * each identifier. The symbol table keeps its indexes by these ids, so a name is looked up once and the rest of the
+ * lookups are by id (see {@link pt.up.fe.comp2024.symboltable.JmmSymbolTable}).
+ * <p>
+ * Ids are added while the AST and the symbol tables of the compilation are built, and by any table built later from
+ * the same tree. Not thread-safe, a compilation is only in one stage at a time.
+ */
+public class Identifiers {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * @param node any node of a tree
+     * @return the identifiers numbered by the parser for the tree of the given node, or null if the tree was not built
+     * by the parser
+     */
+    public static Identifiers of(JmmNode node) {
+        var root = node;
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+
+        if (root instanceof CompactNode compactRoot) {
+            return compactRoot.getAst().getIdentifiers();
+        }
+        if (root instanceof RootNode rootNode) {
+            return rootNode.getIdentifiers();
+        }
+
+        return null;
+    }
+
+    /**
+     * @param name
+     * @return the id of the given name, a new one if the name was not seen before
+     */
+    public int intern(String name) {
+        var id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            ids.put(name, id);
+        }
+
+        return id;
+    }
+
+    /**
+     * @param name
+     * @return the id of the given name, or -1 if it was not seen before
+     */
+    public int getId(String name) {
+        var id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param id
+     * @return the name with the given id, the same String for all uses of the name
+     */
+    public String getName(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * @return the number of ids, one more than the last id
+     */
+    public int size() {
+        return names.size();
+    }
+}
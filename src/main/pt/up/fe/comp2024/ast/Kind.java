@@ -4,18 +4,24 @@ import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.specs.util.SpecsStrings;
 
 import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
+/**
+ * The kinds of the nodes of the AST, one for each rule of the grammar without labels and one for each label.
+ * <p>
+ * The rules with labels (e.g. stmt and expr) are only super kinds in the hierarchy of the nodes, and have no Kind.
+ */
 public enum Kind {
     PROGRAM,
     CLASS_DECL,
     VAR_DECL,
-    TYPE,
     METHOD_DECL,
     PARAM,
     ASSIGN_STMT,
     ARRAY_INIT_EXPR,
-    RETURN_STMT,
     BINARY_EXPR,
     INTEGER_LITERAL,
     THIS_LITERAL,
@@ -27,15 +33,35 @@ public enum Kind {
     NEW_OBJECT,
     NEW_BRACKET_EXPR,
     EXTENDS_DECL,
-    IMPORT_DECLARATION,
     SIMPLE_EXPR_STMT,
     METHOD_CALL,
-    ARRAY_ACCESS,
     IF_ELSE_STMT,
-    WHILE_STMT;
-
-    private static final Set<Kind> STATEMENTS = Set.of(ASSIGN_STMT, RETURN_STMT);
-    private static final Set<Kind> EXPRESSIONS = Set.of(BINARY_EXPR, INTEGER_LITERAL, VAR_REF_EXPR, UNARY_EXPR, ARRAY_ACCESS);
+    WHILE_STMT,
+    IMPORT_DECL,
+    BLOCK_STMT,
+    ARRAY_ASSIGN_STMT,
+    LENGTH_EXPR,
+    PARENT_EXPR,
+    ARRAY_TYPE("Array"),
+    VARARGS_TYPE("Varargs"),
+    BOOL_TYPE("Bool"),
+    INT_TYPE("Int"),
+    STRING_TYPE("String"),
+    ID_TYPE("Id");
+
+    private static final Set<Kind> STATEMENTS = EnumSet.of(ASSIGN_STMT, BLOCK_STMT, IF_ELSE_STMT, WHILE_STMT,
+            SIMPLE_EXPR_STMT, ARRAY_ASSIGN_STMT);
+    private static final Set<Kind> EXPRESSIONS = EnumSet.of(BINARY_EXPR, INTEGER_LITERAL, VAR_REF_EXPR, UNARY_EXPR,
+            METHOD_CALL, ARRAY_INIT_EXPR, BRACKET_EXPR, LENGTH_EXPR, NEW_BRACKET_EXPR, NEW_OBJECT, PARENT_EXPR,
+            TRUE_LITERAL, FALSE_LITERAL, THIS_LITERAL);
+
+    private static final Map<String, Kind> BY_NODE_NAME = new HashMap<>();
+
+    static {
+        for (Kind kind : values()) {
+            BY_NODE_NAME.put(kind.getNodeName(), kind);
+        }
+    }
 
     private final String name;
 
@@ -49,12 +75,33 @@ public enum Kind {
 
     public static Kind fromString(String kind) {
 
-        for (Kind k : Kind.values()) {
-            if (k.getNodeName().equals(kind)) {
-                return k;
-            }
+        var k = BY_NODE_NAME.get(kind);
+        if (k == null) {
+            throw new RuntimeException("Could not convert string '" + kind + "' to a Kind");
+        }
+
+        return k;
+    }
+
+    /**
+     * @param kind
+     * @return the Kind with the given node name, or null if there is none
+     */
+    public static Kind fromNodeName(String kind) {
+        return BY_NODE_NAME.get(kind);
+    }
+
+    /**
+     * @param node
+     * @return the Kind of the given node, or null if its kind is not one of these
+     */
+    public static Kind of(JmmNode node) {
+        // the nodes built by the parser resolve their kind once
+        if (node instanceof KindedNode kindedNode) {
+            return kindedNode.getKindEnum();
         }
-        throw new RuntimeException("Could not convert string '" + kind + "' to a Kind");
+
+        return BY_NODE_NAME.get(node.getKind());
     }
 
     public String getNodeName() {
@@ -87,7 +134,7 @@ public enum Kind {
      * @return
      */
     public boolean check(JmmNode node) {
-        return node.getKind().equals(getNodeName());
+        return of(node) == this;
     }
 
     /**
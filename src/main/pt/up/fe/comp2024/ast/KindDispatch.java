@@ -0,0 +1,55 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.Arrays;
+import java.util.function.BiFunction;
+
+/**
+ * The visit methods of a visitor, indexed by the ordinal of the {@link Kind} of the nodes.
+ * <p>
+ * The library visitors look up the visit method of every node by going through its hierarchy of kinds, with a string
+ * map lookup for each one. Nodes of the same kind always get the same method, so it is looked up once per kind and
+ * kept here.
+ */
+class KindDispatch<D, R> {
+
+    private final BiFunction<JmmNode, D, R>[] visits;
+
+    @SuppressWarnings("unchecked")
+    KindDispatch() {
+        this.visits = (BiFunction<JmmNode, D, R>[]) new BiFunction<?, ?, ?>[Kind.values().length];
+    }
+
+    /**
+     * @param node
+     * @return the visit method found before for the kind of the given node, or null if there is none yet
+     */
+    BiFunction<JmmNode, D, R> get(JmmNode node) {
+        var kind = Kind.of(node);
+
+        // kinds that are not in Kind are looked up every time
+        return kind == null ? null : visits[kind.ordinal()];
+    }
+
+    /**
+     * Keeps the visit method of the kind of the given node.
+     *
+     * @param node
+     * @param visit
+     */
+    void put(JmmNode node, BiFunction<JmmNode, D, R> visit) {
+        var kind = Kind.of(node);
+
+        if (kind != null) {
+            visits[kind.ordinal()] = visit;
+        }
+    }
+
+    /**
+     * Forgets the visit methods found so far, after the visitor changes them.
+     */
+    void clear() {
+        Arrays.fill(visits, null);
+    }
+}
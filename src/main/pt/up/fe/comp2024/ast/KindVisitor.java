@@ -0,0 +1,50 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.function.BiFunction;
+
+/**
+ * Visitor that finds the visit method of each node through a table indexed by its {@link Kind}.
+ *
+ * @see KindDispatch
+ */
+public abstract class KindVisitor<D, R> extends AJmmVisitor<D, R> {
+
+    // created on first use, the constructor of the superclass adds the visits before the fields of this class are set
+    private KindDispatch<D, R> dispatch;
+
+    @Override
+    public void addVisit(String kind, BiFunction<JmmNode, D, R> method) {
+        super.addVisit(kind, method);
+        clearDispatch();
+    }
+
+    @Override
+    public void setDefaultVisit(BiFunction<JmmNode, D, R> method) {
+        super.setDefaultVisit(method);
+        clearDispatch();
+    }
+
+    @Override
+    protected BiFunction<JmmNode, D, R> getVisit(JmmNode node) {
+        if (dispatch == null) {
+            dispatch = new KindDispatch<>();
+        }
+
+        var visit = dispatch.get(node);
+        if (visit == null) {
+            visit = super.getVisit(node);
+            dispatch.put(node, visit);
+        }
+
+        return visit;
+    }
+
+    private void clearDispatch() {
+        if (dispatch != null) {
+            dispatch.clear();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+/**
+ * A node that knows its {@link Kind}, so {@link Kind#of} does not look it up by name for every visit.
+ */
+public interface KindedNode extends JmmNode {
+
+    /**
+     * @return the Kind of this node, or null if its kind is not one of the known kinds
+     */
+    Kind getKindEnum();
+}
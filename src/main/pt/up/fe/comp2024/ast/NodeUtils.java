@@ -5,11 +5,17 @@ import pt.up.fe.comp.jmm.ast.JmmNode;
 public class NodeUtils {
 
     public static int getLine(JmmNode node) {
+        if (node instanceof CompactNode compactNode) {
+            return compactNode.getLineStart();
+        }
 
         return getIntegerAttribute(node, "lineStart", "-1");
     }
 
     public static int getColumn(JmmNode node) {
+        if (node instanceof CompactNode compactNode) {
+            return compactNode.getColStart();
+        }
 
         return getIntegerAttribute(node, "colStart", "-1");
     }
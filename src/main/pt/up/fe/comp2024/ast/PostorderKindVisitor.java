@@ -0,0 +1,112 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.PostorderJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.specs.util.SpecsCheck;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Postorder visitor that finds the visit method of each node through a table indexed by its {@link Kind}.
+ * <p>
+ * The nodes are visited in the same order and the results reduced in the same way as in {@link PostorderJmmVisitor},
+ * but the nodes still to visit are kept in an explicit stack instead of the call stack, so the depth of the tree is
+ * only limited by the heap. Visit methods that need the results of the children get them with
+ * {@link #getChildResult(int)} instead of visiting the children again.
+ *
+ * @see KindDispatch
+ */
+public abstract class PostorderKindVisitor<D, R> extends PostorderJmmVisitor<D, R> {
+
+    // created on first use, the constructor of the superclass adds the visits before the fields of this class are set
+    private KindDispatch<D, R> dispatch;
+
+    // results of the children of the node being visited
+    private List<R> childResults = List.of();
+
+    @Override
+    public void addVisit(String kind, BiFunction<JmmNode, D, R> method) {
+        super.addVisit(kind, method);
+        clearDispatch();
+    }
+
+    @Override
+    public void setDefaultVisit(BiFunction<JmmNode, D, R> method) {
+        super.setDefaultVisit(method);
+        clearDispatch();
+    }
+
+    @Override
+    public R visit(JmmNode jmmNode, D data) {
+        SpecsCheck.checkNotNull(jmmNode, () -> "Node should not be null");
+
+        var reduce = getReduce();
+        var stack = new ArrayDeque<VisitFrame<R>>();
+
+        // Postorder: 1st visit each children, then the node
+        stack.push(new VisitFrame<>(jmmNode, null, true));
+
+        while (true) {
+            var frame = stack.peek();
+
+            if (frame.hasNextChild()) {
+                stack.push(new VisitFrame<>(frame.nextChild(), null, true));
+                continue;
+            }
+
+            stack.pop();
+
+            var node = frame.getNode();
+
+            // visit methods may start other traversals, which have their own children
+            var previousResults = childResults;
+            childResults = frame.getChildResults();
+            R nodeResult;
+            try {
+                nodeResult = getVisit(node).apply(node, data);
+            } finally {
+                childResults = previousResults;
+            }
+
+            // No reduce function, just return result of the node
+            var result = reduce == null ? nodeResult : reduce.apply(nodeResult, frame.getChildResults());
+
+            if (stack.isEmpty()) {
+                return result;
+            }
+
+            stack.peek().addChildResult(result);
+        }
+    }
+
+    /**
+     * @param index
+     * @return the result of the child with the given index of the node being visited, which is visited before it
+     */
+    protected R getChildResult(int index) {
+        return childResults.get(index);
+    }
+
+    @Override
+    protected BiFunction<JmmNode, D, R> getVisit(JmmNode node) {
+        if (dispatch == null) {
+            dispatch = new KindDispatch<>();
+        }
+
+        var visit = dispatch.get(node);
+        if (visit == null) {
+            visit = super.getVisit(node);
+            dispatch.put(node, visit);
+        }
+
+        return visit;
+    }
+
+    private void clearDispatch() {
+        if (dispatch != null) {
+            dispatch.clear();
+        }
+    }
+}
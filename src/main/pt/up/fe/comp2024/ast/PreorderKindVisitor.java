@@ -0,0 +1,89 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.specs.util.SpecsCheck;
+
+import java.util.ArrayDeque;
+import java.util.function.BiFunction;
+
+/**
+ * Preorder visitor that finds the visit method of each node through a table indexed by its {@link Kind}.
+ * <p>
+ * The nodes are visited in the same order and the results reduced in the same way as in {@link PreorderJmmVisitor},
+ * but the nodes still to visit are kept in an explicit stack instead of the call stack, so the depth of the tree is
+ * only limited by the heap.
+ *
+ * @see KindDispatch
+ */
+public abstract class PreorderKindVisitor<D, R> extends PreorderJmmVisitor<D, R> {
+
+    // created on first use, the constructor of the superclass adds the visits before the fields of this class are set
+    private KindDispatch<D, R> dispatch;
+
+    @Override
+    public void addVisit(String kind, BiFunction<JmmNode, D, R> method) {
+        super.addVisit(kind, method);
+        clearDispatch();
+    }
+
+    @Override
+    public void setDefaultVisit(BiFunction<JmmNode, D, R> method) {
+        super.setDefaultVisit(method);
+        clearDispatch();
+    }
+
+    @Override
+    public R visit(JmmNode jmmNode, D data) {
+        SpecsCheck.checkNotNull(jmmNode, () -> "Node should not be null");
+
+        var reduce = getReduce();
+        var stack = new ArrayDeque<VisitFrame<R>>();
+
+        // Preorder: 1st visit the node, then its children
+        stack.push(new VisitFrame<>(jmmNode, getVisit(jmmNode).apply(jmmNode, data), reduce != null));
+
+        while (true) {
+            var frame = stack.peek();
+
+            if (frame.hasNextChild()) {
+                var child = frame.nextChild();
+                stack.push(new VisitFrame<>(child, getVisit(child).apply(child, data), reduce != null));
+                continue;
+            }
+
+            stack.pop();
+
+            // No reduce function, just return result of the node
+            var result = reduce == null ? frame.getNodeResult()
+                    : reduce.apply(frame.getNodeResult(), frame.getChildResults());
+
+            if (stack.isEmpty()) {
+                return result;
+            }
+
+            stack.peek().addChildResult(result);
+        }
+    }
+
+    @Override
+    protected BiFunction<JmmNode, D, R> getVisit(JmmNode node) {
+        if (dispatch == null) {
+            dispatch = new KindDispatch<>();
+        }
+
+        var visit = dispatch.get(node);
+        if (visit == null) {
+            visit = super.getVisit(node);
+            dispatch.put(node, visit);
+        }
+
+        return visit;
+    }
+
+    private void clearDispatch() {
+        if (dispatch != null) {
+            dispatch.clear();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package pt.up.fe.comp2024.ast;
+
+/**
+ * The root of a tree of {@link AstNode} built by the parser, which keeps the identifiers of the tree.
+ * <p>
+ * The identifiers are not an attribute, so the tree prints and serializes the same as before.
+ */
+public class RootNode extends AstNode {
+
+    private final Identifiers identifiers;
+
+    public RootNode(String kind, Identifiers identifiers) {
+        super(kind);
+        this.identifiers = identifiers;
+    }
+
+    /**
+     * @return the identifiers of the tree, see {@link Identifiers#of}
+     */
+    public Identifiers getIdentifiers() {
+        return identifiers;
+    }
+}
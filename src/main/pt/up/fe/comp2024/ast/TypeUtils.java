@@ -4,7 +4,10 @@ import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.TypeRegistry;
 
+import java.util.ArrayDeque;
 import java.util.Objects;
 
 public class TypeUtils {
@@ -12,6 +15,9 @@ public class TypeUtils {
     private static final String INT_TYPE_NAME = "int";
     private static final String FLOAT_TYPE_NAME = "float";
 
+    private static final Type INVALID_ARRAY_ACCESS = new Type("INVALIDARRACC", false);
+    private static final Type INVALID_BINARY_OP = new Type("INVALIDBINOP", false);
+
     public static String getIntTypeName() {
         return INT_TYPE_NAME;
     }
@@ -22,27 +28,109 @@ public class TypeUtils {
 
     /**
      * Gets the {@link Type} of an arbitrary expression.
+     * <p>
+     * The types of the operands are found before the types of the expressions that use them, with an explicit stack
+     * instead of recursion, so deeply nested expressions do not overflow the call stack. The types are the shared
+     * instances of the {@link TypeRegistry} of the table, so they can be compared with ==.
+     * <p>
+     * Nothing is kept between calls, see {@link #getExprType(JmmNode, ExprTypes)} to find the types of a tree once.
      *
      * @param expr
      * @param table
      * @return
      */
     public static Type getExprType(JmmNode expr, SymbolTable table) {
-        var kind = Kind.fromString(expr.getKind());
+        return getExprType(expr, new ExprTypes(table));
+    }
+
+    /**
+     * Gets the {@link Type} of an arbitrary expression, like {@link #getExprType(JmmNode, SymbolTable)}, reading and
+     * keeping the types of the expression and of its operands in the given types.
+     *
+     * @param expr
+     * @param types
+     * @return
+     */
+    public static Type getExprType(JmmNode expr, ExprTypes types) {
+        if (types.contains(expr)) {
+            return types.get(expr);
+        }
+
+        var indexedTable = types.getTable();
+
+        var stack = new ArrayDeque<JmmNode>();
+        stack.push(expr);
+
+        while (!stack.isEmpty()) {
+            var node = stack.peek();
+            var kind = getKind(node);
+
+            // the first operand without a type, if any
+            var operand = findOperandWithoutType(node, kind, types, indexedTable);
+            if (operand != null) {
+                stack.push(operand);
+                continue;
+            }
+
+            stack.pop();
+            types.put(node, getExprType(node, kind, types, indexedTable));
+        }
+
+        return types.get(expr);
+    }
+
+    private static Kind getKind(JmmNode expr) {
+        var kind = Kind.of(expr);
+
+        // not a known kind, fails the same way as before
+        return kind != null ? kind : Kind.fromString(expr.getKind());
+    }
+
+    /**
+     * @return the number of children of the expression, from the first, whose types are needed for its type
+     */
+    private static int getNumOperands(JmmNode expr, Kind kind, JmmSymbolTable table) {
+        return switch (kind) {
+            case BINARY_EXPR -> 2;
+            case UNARY_EXPR, NEW_BRACKET_EXPR, SIMPLE_EXPR_STMT, ASSIGN_STMT -> 1;
+            // the target is only needed for methods that are not of this class
+            case METHOD_CALL -> table.hasMethod(table.getIdentifiers().getId(expr.get("method"))) ? 0 : 1;
+            default -> 0;
+        };
+    }
+
+    private static JmmNode findOperandWithoutType(JmmNode expr, Kind kind, ExprTypes types, JmmSymbolTable table) {
+        int numOperands = getNumOperands(expr, kind, table);
+        for (int i = 0; i < numOperands; i++) {
+            var operand = expr.getChild(i);
+            if (!types.contains(operand)) {
+                return operand;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @param types the types of the operands of the expression
+     */
+    private static Type getExprType(JmmNode expr, Kind kind, ExprTypes types, JmmSymbolTable table) {
+        var registry = table.getTypes();
 
         Type type = switch (kind) {
-            case METHOD_CALL -> getMethodCallType(expr, table);
-            case BINARY_EXPR -> getBinExprType(expr, table);
-            case UNARY_EXPR -> getUnaryExprType(expr, table);
+            // the target has no type when it is not needed
+            case METHOD_CALL -> getMethodCallType(expr, types.get(expr.getChild(0)), table);
+            case BINARY_EXPR -> getBinExprType(expr, types.get(expr.getChild(0)), types.get(expr.getChild(1)));
+            case UNARY_EXPR -> getUnaryExprType(types.get(expr.getChild(0)));
             case VAR_REF_EXPR -> getVarExprType(expr, table);
             case BRACKET_EXPR -> getBracketExprType(expr, table);
-            case NEW_BRACKET_EXPR -> getNewBracketExprType(expr, table);
-            case NEW_OBJECT -> new Type(expr.get("name"), false);
-            case SIMPLE_EXPR_STMT, ASSIGN_STMT -> getExprType(expr.getChild(0), table);
-            case ARRAY_INIT_EXPR -> new Type("int", true);
-            case INTEGER_LITERAL -> new Type(INT_TYPE_NAME, false);
-            case THIS_LITERAL -> new Type(table.getClassName(), false);
-            case TRUE_LITERAL, FALSE_LITERAL -> new Type("boolean", false);
+            case NEW_BRACKET_EXPR -> registry.getType(types.get(expr.getChild(0)).getName(), true);
+            case NEW_OBJECT -> registry.getType(expr.get("name"), false);
+            case SIMPLE_EXPR_STMT, ASSIGN_STMT -> types.get(expr.getChild(0));
+            case INTEGER_LITERAL -> TypeRegistry.INT;
+            case ARRAY_INIT_EXPR -> TypeRegistry.INT_ARRAY;
+            case THIS_LITERAL -> registry.getType(table.getClassName(), false);
+            case TRUE_LITERAL, FALSE_LITERAL -> TypeRegistry.BOOLEAN;
             default -> throw new UnsupportedOperationException("Can't compute type for expression kind '" + kind + "'");
         };
 
@@ -54,71 +142,76 @@ public class TypeUtils {
         JmmNode firstChild = expr.getChildren().get(0);
         Type firstType = getVarExprType(firstChild, table);
         if (!firstType.isArray()) {
-            return new Type("INVALIDARRACC", false);
+            return INVALID_ARRAY_ACCESS;
         }
-        if ("VarRefExpr".equals(firstChild.getKind())) {
+        if (Kind.VAR_REF_EXPR.check(firstChild)) {
             String arrayName = firstChild.get("name");
 
             JmmNode parentNode = expr.getParent();
-            while (!"MethodDecl".equals(parentNode.getKind())) {
+            while (!Kind.METHOD_DECL.check(parentNode)) {
                 parentNode = parentNode.getParent();
             }
             parentMethodName = parentNode.get("name");
-            for (Symbol localVar : table.getLocalVariables(parentMethodName)) {
-                if (localVar.getName().equals(arrayName)) {
-                    String typeName = localVar.getType().getName().replaceFirst("V$", "");
-                    return new Type(typeName, false);
-                }
+            var indexedTable = JmmSymbolTable.of(table);
+            var registry = indexedTable.getTypes();
+            var identifiers = indexedTable.getIdentifiers();
+            int methodId = identifiers.getId(parentMethodName);
+            int arrayId = identifiers.getId(arrayName);
+            Symbol localVar = indexedTable.getLocalVariable(methodId, arrayId);
+            if (localVar != null) {
+                String typeName = localVar.getType().getName().replaceFirst("V$", "");
+                return registry.getType(typeName, false);
             }
-            for (Symbol param : table.getParameters(parentMethodName)) {
-                if (param.getName().equals(arrayName)) {
-                    String typeName = param.getType().getName().replaceFirst("V$", "");
-                    return new Type(typeName, false);
-                }
+            Symbol param = indexedTable.getParameter(methodId, arrayId);
+            if (param != null) {
+                String typeName = param.getType().getName().replaceFirst("V$", "");
+                return registry.getType(typeName, false);
             }
-            for (Symbol field : table.getFields()) {
-                if (field.getName().equals(arrayName)) {
-                    String typeName = field.getType().getName().replaceFirst("V$", "");
-                    return new Type(typeName, true);
-                }
+            Symbol field = indexedTable.getField(arrayId);
+            if (field != null) {
+                String typeName = field.getType().getName().replaceFirst("V$", "");
+                return registry.getType(typeName, true);
             }
         }
-        return new Type("INVALIDARRACC", false);
-    }
-
-    private static Type getNewBracketExprType(JmmNode expr, SymbolTable table) {
-        var varName = getExprType(expr.getChildren().get(0), table).getName();
-        return new Type(varName, true);
+        return INVALID_ARRAY_ACCESS;
     }
 
     // Verifica os operandos e o operador da expressão binária. Garante que ambos os operandos são do tipo int para operadores aritméticos.
     public static Type getBinExprType(JmmNode binaryExpr, SymbolTable table) {
         JmmNode leftOperand = binaryExpr.getChildren().get(0);
         JmmNode rightOperand = binaryExpr.getChildren().get(1);
+
+        return getBinExprType(binaryExpr, getExprType(leftOperand, table), getExprType(rightOperand, table));
+    }
+
+    private static Type getBinExprType(JmmNode binaryExpr, Type leftType, Type rightType) {
         String operator = binaryExpr.get("op");
 
-        Type leftType = getExprType(leftOperand, table);
-        Type rightType = getExprType(rightOperand, table);
+        if (leftType == null || rightType == null) {
+            // e.g. calls to methods that are not known
+            throw new RuntimeException("Operand of binary expression '" + binaryExpr + "' has no type");
+        }
 
+        // the types are shared, see getExprType
         switch (operator) {
             case "+", "-", "*", "/" -> {
-                if (!leftType.getName().equals(INT_TYPE_NAME) || !rightType.getName().equals(INT_TYPE_NAME) || leftType.isArray() || rightType.isArray()) {
-                    return new Type("INVALIDBINOP", false);
+                if (leftType != TypeRegistry.INT || rightType != TypeRegistry.INT) {
+                    return INVALID_BINARY_OP;
                 }
-                return new Type(INT_TYPE_NAME, false);
+                return TypeRegistry.INT;
             }
             case "<", "<=", ">", ">=", "==", "!=" -> {
-                if (!leftType.getName().equals(INT_TYPE_NAME) || !rightType.getName().equals(INT_TYPE_NAME) || leftType.isArray() || rightType.isArray()) {
-                    return new Type("INVALIDBINOP", false);
+                if (leftType != TypeRegistry.INT || rightType != TypeRegistry.INT) {
+                    return INVALID_BINARY_OP;
                 }
-                return new Type("boolean", false);
+                return TypeRegistry.BOOLEAN;
             }
 
             case "&&", "||" -> {
-                if (!leftType.getName().equals("boolean") || !rightType.getName().equals("boolean") || leftType.isArray() || rightType.isArray()) {
-                    return new Type("INVALIDBINOP", false);
+                if (leftType != TypeRegistry.BOOLEAN || rightType != TypeRegistry.BOOLEAN) {
+                    return INVALID_BINARY_OP;
                 }
-                return new Type("boolean", false);
+                return TypeRegistry.BOOLEAN;
             }
 
             default ->
@@ -129,7 +222,10 @@ public class TypeUtils {
     // Verifica se o tipo do operando é compatível com a expressão unária. Retorna o tipo do operando se for compatível.
     public static Type getUnaryExprType(JmmNode expr, SymbolTable table) {
         JmmNode operand = expr.getChildren().get(0);
-        Type operandType = getExprType(operand, table);
+        return getUnaryExprType(getExprType(operand, table));
+    }
+
+    private static Type getUnaryExprType(Type operandType) {
         if (!isCompatibleWithUnaryExpr(operandType)) {
             throw new RuntimeException("Unary expression operand must have compatible type");
         }
@@ -143,24 +239,38 @@ public class TypeUtils {
     public static Type getMethodCallType(JmmNode methodCall, SymbolTable table) {
         String methodName = methodCall.get("method");
         // Check methods
-        if (table.getMethods().contains(methodName)) {
-            return table.getReturnType(methodName);
+        var indexedTable = JmmSymbolTable.of(table);
+        int methodId = indexedTable.getIdentifiers().getId(methodName);
+        if (indexedTable.hasMethod(methodId)) {
+            return indexedTable.getReturnType(methodId);
         }
 
         // Check the type of the target object
         JmmNode target = methodCall.getChildren().get(0);
 
-        Type targetType = getExprType(target, table);
+        return getMethodCallType(methodCall, getExprType(target, table), table);
+    }
+
+    /**
+     * @param targetType the type of the target object, only used for methods that are not of this class
+     */
+    private static Type getMethodCallType(JmmNode methodCall, Type targetType, SymbolTable table) {
+        String methodName = methodCall.get("method");
+        var indexedTable = JmmSymbolTable.of(table);
+        var identifiers = indexedTable.getIdentifiers();
+        int methodId = identifiers.getId(methodName);
+        // Check methods
+        if (indexedTable.hasMethod(methodId)) {
+            return indexedTable.getReturnType(methodId);
+        }
+
         if (targetType == null) {
             throw new IllegalArgumentException("Target type cannot be null");
         }
 
-        String formattedTargetTypeName = "[" + targetType.getName() + "]";
-
-
-        // Check if the target type is in the imports
-        if (table.getImports().contains(formattedTargetTypeName)) {
-            return new Type("V", false);
+        // Check if the target type is in the imports, on its own
+        if (indexedTable.hasImport(identifiers.getId(targetType.getName()))) {
+            return indexedTable.getTypes().getType("V", false);
         }
 
         return null;
@@ -171,36 +281,35 @@ public class TypeUtils {
         String varName = varRefExpr.get("name");
         String parentMethodName;
         JmmNode parentNode = varRefExpr.getParent();
-        while (!"MethodDecl".equals(parentNode.getKind())) {
+        while (!Kind.METHOD_DECL.check(parentNode)) {
             parentNode = parentNode.getParent();
         }
         parentMethodName = parentNode.get("name");
-        for (Symbol localVar : table.getLocalVariables(parentMethodName)) {
-            if (localVar.getName().equals(varName)) {
-                return localVar.getType();
-            }
+        var indexedTable = JmmSymbolTable.of(table);
+        var identifiers = indexedTable.getIdentifiers();
+        int methodId = identifiers.getId(parentMethodName);
+        int varId = identifiers.getId(varName);
+        Symbol localVar = indexedTable.getLocalVariable(methodId, varId);
+        if (localVar != null) {
+            return localVar.getType();
         }
         // Check parameters
-        for (Symbol param : table.getParameters(parentMethodName)) {
-            if (param.getName().equals(varName)) {
-                return param.getType();
-            }
+        Symbol param = indexedTable.getParameter(methodId, varId);
+        if (param != null) {
+            return param.getType();
         }
-        for (Symbol field : table.getFields()) {
-            if (field.getName().equals(varName)) {
-                return field.getType();
-            }
+        Symbol field = indexedTable.getField(varId);
+        if (field != null) {
+            return field.getType();
         }
-        for (String imported : table.getImports()) {
-            if (imported.endsWith(", " + varName + "]") || imported.equals("[" + varName + "]")) {
-                return new Type(varName, false);
-            }
+        if (indexedTable.isImportedClass(varId)) {
+            return indexedTable.getTypes().getType(varName, false);
         }
-        if (table.getMethods().contains(varName)) {
-            return table.getReturnType(varName);
+        if (indexedTable.hasMethod(varId)) {
+            return indexedTable.getReturnType(varId);
         }
         if (table.getClassName().equals(varName)) {
-            return new Type(table.getClassName(), false);
+            return indexedTable.getTypes().getType(table.getClassName(), false);
         }
         throw new IllegalArgumentException("Variable '" + varName + "' not found");
     }
@@ -215,6 +324,10 @@ public class TypeUtils {
             return false;
         }
 
+        if (sourceType == destinationType) {
+            return true;
+        }
+
         if (sourceType.getName().equals("V") || destinationType.getName().equals("V")) {
             return true;
         }
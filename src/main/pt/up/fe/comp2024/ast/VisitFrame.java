@@ -0,0 +1,61 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A node whose children are being visited, kept in the explicit stack of the traversals of {@link PreorderKindVisitor}
+ * and {@link PostorderKindVisitor} instead of in the call stack.
+ */
+class VisitFrame<R> {
+
+    private final JmmNode node;
+    private final R nodeResult;
+    private final List<JmmNode> children;
+    private final List<R> childResults;
+
+    private int nextChild = 0;
+
+    /**
+     * @param node
+     * @param nodeResult  the result of visiting the node, if it was visited before its children
+     * @param keepResults if the results of the children are needed after they are visited
+     */
+    VisitFrame(JmmNode node, R nodeResult, boolean keepResults) {
+        this.node = node;
+        this.nodeResult = nodeResult;
+        this.children = node.getChildren();
+        this.childResults = keepResults ? new ArrayList<>(children.size()) : null;
+    }
+
+    JmmNode getNode() {
+        return node;
+    }
+
+    R getNodeResult() {
+        return nodeResult;
+    }
+
+    boolean hasNextChild() {
+        return nextChild < children.size();
+    }
+
+    JmmNode nextChild() {
+        return children.get(nextChild++);
+    }
+
+    void addChildResult(R result) {
+        if (childResults != null) {
+            childResults.add(result);
+        }
+    }
+
+    /**
+     * @return the results of the children visited so far, or an empty list if they were not kept
+     */
+    List<R> getChildResults() {
+        return childResults != null ? childResults : List.of();
+    }
+}
@@ -0,0 +1,19 @@
+package pt.up.fe.comp2024.backend;
+
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.metrics.CompilerMetrics;
+
+/**
+ * Backend that writes class files directly from OLLIR, the alternative to JasminBackendImpl.
+ */
+public class ClassFileBackendImpl {
+
+    public ClassFileResult toClassFile(OllirResult ollirResult) {
+
+        var classFileGenerator = new ClassFileGenerator(ollirResult);
+        var classFile = CompilerMetrics.measure("build", classFileGenerator::build);
+
+        return new ClassFileResult(classFileGenerator.getClassName(), classFile, classFileGenerator.getReports());
+    }
+
+}
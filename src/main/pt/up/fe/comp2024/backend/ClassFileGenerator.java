@@ -0,0 +1,546 @@
+package pt.up.fe.comp2024.backend;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.specs.util.exceptions.NotImplementedException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates class file bytes directly from an OllirResult, without going through Jasmin.
+ * <p>
+ * Classes are written at the Java 17 class file version, with StackMapTable frames, so they are checked by the
+ * type-checking verifier. Max stack and locals are computed from the generated code.
+ * <p>
+ * One ClassFileGenerator instance per OllirResult.
+ */
+public class ClassFileGenerator {
+
+    private static final String OBJECT = "java/lang/Object";
+    private static final String STRING = "java/lang/String";
+
+    private final OllirResult ollirResult;
+
+    private final List<Report> reports;
+
+    private byte[] classFile;
+
+    private ClassUnit classUnit;
+    private String className;
+    private String superName;
+
+    private Method currentMethod;
+    private MethodVisitor mv;
+    private Map<String, Label> labels;
+
+    public ClassFileGenerator(OllirResult ollirResult) {
+        this.ollirResult = ollirResult;
+
+        reports = new ArrayList<>();
+        classFile = null;
+    }
+
+    public List<Report> getReports() {
+        return reports;
+    }
+
+    public String getClassName() {
+        return ollirResult.getOllirClass().getClassName();
+    }
+
+    public byte[] build() {
+
+        // This way, build is idempotent
+        if (classFile == null) {
+            classFile = generateClassUnit(ollirResult.getOllirClass());
+        }
+
+        return classFile;
+    }
+
+    private byte[] generateClassUnit(ClassUnit classUnit) {
+        this.classUnit = classUnit;
+        this.className = classUnit.getClassName();
+        this.superName = classUnit.getSuperClass() != null ? getClassName(classUnit.getSuperClass()) : OBJECT;
+
+        var cw = new FrameClassWriter();
+
+        cw.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, className, null, superName, null);
+
+        for (var field : classUnit.getFields()) {
+            int access = getAccess(field.getFieldAccessModifier());
+            if (field.isStaticField()) {
+                access |= Opcodes.ACC_STATIC;
+            }
+            if (field.isFinalField()) {
+                access |= Opcodes.ACC_FINAL;
+            }
+
+            cw.visitField(access, field.getFieldName(), getDescriptor(field.getFieldType()), null, null).visitEnd();
+        }
+
+        generateDefaultConstructor(cw);
+
+        for (var method : classUnit.getMethods()) {
+
+            if (method.isConstructMethod()) {
+                continue;
+            }
+
+            generateMethod(cw, method);
+        }
+
+        cw.visitEnd();
+
+        return cw.toByteArray();
+    }
+
+    private void generateDefaultConstructor(ClassWriter cw) {
+        var init = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, "<init>", "()V", false);
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+    }
+
+    private void generateMethod(ClassWriter cw, Method method) {
+        currentMethod = method;
+        labels = new HashMap<>();
+
+        int access = getAccess(method.getMethodAccessModifier());
+        if (method.isStaticMethod()) {
+            access |= Opcodes.ACC_STATIC;
+        }
+        if (method.isFinalMethod()) {
+            access |= Opcodes.ACC_FINAL;
+        }
+        if (method.isVarargs()) {
+            access |= Opcodes.ACC_VARARGS;
+        }
+
+        var descriptor = new StringBuilder("(");
+        for (var param : method.getParams()) {
+            descriptor.append(getDescriptor(param.getType()));
+        }
+        descriptor.append(")").append(getDescriptor(method.getReturnType()));
+
+        mv = cw.visitMethod(access, method.getMethodName(), descriptor.toString(), null, null);
+        mv.visitCode();
+
+        for (var inst : method.getInstructions()) {
+
+            for (var label : method.getLabels(inst)) {
+                mv.visitLabel(getLabel(label));
+            }
+
+            generateInstruction(inst);
+
+            // results of calls that are not assigned are discarded
+            if (inst instanceof CallInstruction call && call.getReturnType().getTypeOfElement() != ElementType.VOID) {
+                mv.visitInsn(Opcodes.POP);
+            }
+        }
+
+        // sizes are computed by the class writer
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = null;
+        currentMethod = null;
+    }
+
+    private void generateInstruction(Instruction inst) {
+        switch (inst.getInstType()) {
+            case ASSIGN -> generateAssign((AssignInstruction) inst);
+            case CALL -> generateCall((CallInstruction) inst);
+            case GOTO -> mv.visitJumpInsn(Opcodes.GOTO, getLabel(((GotoInstruction) inst).getLabel()));
+            case BRANCH -> generateBranch((CondBranchInstruction) inst);
+            case RETURN -> generateReturn((ReturnInstruction) inst);
+            case PUTFIELD -> generatePutField((PutFieldInstruction) inst);
+            case GETFIELD -> generateGetField((GetFieldInstruction) inst);
+            case UNARYOPER -> generateUnaryOp((UnaryOpInstruction) inst);
+            case BINARYOPER -> generateBinaryOp((BinaryOpInstruction) inst);
+            case NOPER -> load(((SingleOpInstruction) inst).getSingleOperand());
+            default -> throw new NotImplementedException(inst.getInstType());
+        }
+    }
+
+    private void generateAssign(AssignInstruction assign) {
+        var dest = assign.getDest();
+
+        if (dest instanceof ArrayOperand array) {
+            mv.visitVarInsn(Opcodes.ALOAD, getRegister(array.getName()));
+            load(array.getIndexOperands().get(0));
+            generateInstruction(assign.getRhs());
+            mv.visitInsn(getArrayOpcode(array.getType(), Opcodes.IASTORE));
+            return;
+        }
+
+        var operand = (Operand) dest;
+
+        generateInstruction(assign.getRhs());
+        mv.visitVarInsn(isInt(operand.getType()) ? Opcodes.ISTORE : Opcodes.ASTORE, getRegister(operand.getName()));
+    }
+
+    private void generateCall(CallInstruction call) {
+        switch (call.getInvocationType()) {
+            case invokevirtual, invokeinterface, invokespecial -> {
+                var caller = call.getCaller();
+                load(caller);
+                call.getArguments().forEach(this::load);
+
+                var owner = getClassName(caller.getType());
+                int opcode = switch (call.getInvocationType()) {
+                    case invokespecial -> Opcodes.INVOKESPECIAL;
+                    case invokeinterface -> Opcodes.INVOKEINTERFACE;
+                    default -> Opcodes.INVOKEVIRTUAL;
+                };
+
+                // constructors of the class itself call the constructor of the superclass
+                if (opcode == Opcodes.INVOKESPECIAL && caller.getType().getTypeOfElement() == ElementType.THIS) {
+                    owner = superName;
+                }
+
+                mv.visitMethodInsn(opcode, owner, getMethodName(call), getDescriptor(call),
+                        opcode == Opcodes.INVOKEINTERFACE);
+            }
+            case invokestatic -> {
+                call.getArguments().forEach(this::load);
+
+                var owner = getClassName(((Operand) call.getCaller()).getName());
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC, owner, getMethodName(call), getDescriptor(call), false);
+            }
+            case NEW -> {
+                var returnType = call.getReturnType();
+
+                if (returnType.getTypeOfElement() == ElementType.ARRAYREF) {
+                    load(call.getArguments().get(0));
+
+                    var elementType = ((ArrayType) returnType).getElementType();
+                    if (isInt(elementType)) {
+                        mv.visitIntInsn(Opcodes.NEWARRAY,
+                                elementType.getTypeOfElement() == ElementType.BOOLEAN ? Opcodes.T_BOOLEAN : Opcodes.T_INT);
+                    } else {
+                        mv.visitTypeInsn(Opcodes.ANEWARRAY, getClassName(elementType));
+                    }
+                } else {
+                    mv.visitTypeInsn(Opcodes.NEW, getClassName(returnType));
+                }
+            }
+            case arraylength -> {
+                load(call.getCaller());
+                mv.visitInsn(Opcodes.ARRAYLENGTH);
+            }
+            case ldc -> load(call.getCaller());
+        }
+    }
+
+    private void generateBranch(CondBranchInstruction branch) {
+        var target = getLabel(branch.getLabel());
+        var condition = branch.getCondition();
+
+        // comparisons jump directly, instead of materializing a boolean first
+        if (condition instanceof BinaryOpInstruction binaryOp) {
+            var compare = getCompareOpcode(binaryOp.getOperation().getOpType());
+            if (compare != -1) {
+                load(binaryOp.getLeftOperand());
+                load(binaryOp.getRightOperand());
+                mv.visitJumpInsn(compare, target);
+                return;
+            }
+        }
+
+        if (condition instanceof UnaryOpInstruction unaryOp && isNot(unaryOp.getOperation().getOpType())) {
+            load(unaryOp.getOperand());
+            mv.visitJumpInsn(Opcodes.IFEQ, target);
+            return;
+        }
+
+        generateInstruction(condition);
+        mv.visitJumpInsn(Opcodes.IFNE, target);
+    }
+
+    private void generateReturn(ReturnInstruction returnInst) {
+        if (!returnInst.hasReturnValue()) {
+            mv.visitInsn(Opcodes.RETURN);
+            return;
+        }
+
+        load(returnInst.getOperand());
+        mv.visitInsn(isInt(currentMethod.getReturnType()) ? Opcodes.IRETURN : Opcodes.ARETURN);
+    }
+
+    private void generatePutField(PutFieldInstruction putField) {
+        var object = putField.getObject();
+        var field = putField.getField();
+
+        load(object);
+        load(putField.getValue());
+        mv.visitFieldInsn(Opcodes.PUTFIELD, getClassName(object.getType()), field.getName(),
+                getDescriptor(field.getType()));
+    }
+
+    private void generateGetField(GetFieldInstruction getField) {
+        var object = getField.getObject();
+        var field = getField.getField();
+
+        load(object);
+        mv.visitFieldInsn(Opcodes.GETFIELD, getClassName(object.getType()), field.getName(),
+                getDescriptor(field.getType()));
+    }
+
+    private void generateUnaryOp(UnaryOpInstruction unaryOp) {
+        var opType = unaryOp.getOperation().getOpType();
+
+        if (!isNot(opType)) {
+            throw new NotImplementedException(opType);
+        }
+
+        // booleans are 0 or 1
+        load(unaryOp.getOperand());
+        mv.visitInsn(Opcodes.ICONST_1);
+        mv.visitInsn(Opcodes.IXOR);
+    }
+
+    private void generateBinaryOp(BinaryOpInstruction binaryOp) {
+        var opType = binaryOp.getOperation().getOpType();
+
+        load(binaryOp.getLeftOperand());
+        load(binaryOp.getRightOperand());
+
+        var compare = getCompareOpcode(opType);
+        if (compare != -1) {
+            pushComparison(compare);
+            return;
+        }
+
+        var op = switch (opType) {
+            case ADD -> Opcodes.IADD;
+            case SUB -> Opcodes.ISUB;
+            case MUL -> Opcodes.IMUL;
+            case DIV -> Opcodes.IDIV;
+            case SHL -> Opcodes.ISHL;
+            case SHR -> Opcodes.ISHR;
+            case SHRR -> Opcodes.IUSHR;
+            case XOR -> Opcodes.IXOR;
+            case AND, ANDB -> Opcodes.IAND;
+            case OR, ORB -> Opcodes.IOR;
+            default -> throw new NotImplementedException(opType);
+        };
+
+        mv.visitInsn(op);
+    }
+
+    /**
+     * Pushes 1 if the comparison of the two values on the top of the stack is true, 0 otherwise.
+     */
+    private void pushComparison(int compareOpcode) {
+        var isTrue = new Label();
+        var end = new Label();
+
+        mv.visitJumpInsn(compareOpcode, isTrue);
+        mv.visitInsn(Opcodes.ICONST_0);
+        mv.visitJumpInsn(Opcodes.GOTO, end);
+        mv.visitLabel(isTrue);
+        mv.visitInsn(Opcodes.ICONST_1);
+        mv.visitLabel(end);
+    }
+
+    private static int getCompareOpcode(OperationType opType) {
+        return switch (opType) {
+            case LTH -> Opcodes.IF_ICMPLT;
+            case GTH -> Opcodes.IF_ICMPGT;
+            case LTE -> Opcodes.IF_ICMPLE;
+            case GTE -> Opcodes.IF_ICMPGE;
+            case EQ -> Opcodes.IF_ICMPEQ;
+            case NEQ -> Opcodes.IF_ICMPNE;
+            default -> -1;
+        };
+    }
+
+    private static boolean isNot(OperationType opType) {
+        return opType == OperationType.NOTB || opType == OperationType.NOT;
+    }
+
+    /**
+     * Pushes the value of the given element.
+     *
+     * @param elem
+     */
+    private void load(Element elem) {
+        if (elem instanceof LiteralElement literal) {
+            if (isInt(literal.getType())) {
+                pushInt(Integer.parseInt(literal.getLiteral()));
+            } else {
+                mv.visitLdcInsn(literal.getLiteral().replace("\"", ""));
+            }
+            return;
+        }
+
+        var operand = (Operand) elem;
+
+        if (operand.getType().getTypeOfElement() == ElementType.THIS || operand.getName().equals("this")) {
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            return;
+        }
+
+        if (operand instanceof ArrayOperand array) {
+            mv.visitVarInsn(Opcodes.ALOAD, getRegister(array.getName()));
+            load(array.getIndexOperands().get(0));
+            mv.visitInsn(getArrayOpcode(array.getType(), Opcodes.IALOAD));
+            return;
+        }
+
+        mv.visitVarInsn(isInt(operand.getType()) ? Opcodes.ILOAD : Opcodes.ALOAD, getRegister(operand.getName()));
+    }
+
+    private void pushInt(int value) {
+        if (value >= -1 && value <= 5) {
+            mv.visitInsn(Opcodes.ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(Opcodes.BIPUSH, value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(Opcodes.SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
+    /**
+     * @param elementType the type of the elements of the array
+     * @param intOpcode   IALOAD or IASTORE
+     * @return the opcode that loads or stores an element of the given type
+     */
+    private static int getArrayOpcode(Type elementType, int intOpcode) {
+        return switch (elementType.getTypeOfElement()) {
+            case INT32 -> intOpcode;
+            case BOOLEAN -> intOpcode == Opcodes.IALOAD ? Opcodes.BALOAD : Opcodes.BASTORE;
+            default -> intOpcode == Opcodes.IALOAD ? Opcodes.AALOAD : Opcodes.AASTORE;
+        };
+    }
+
+    private int getRegister(String varName) {
+        return currentMethod.getVarTable().get(varName).getVirtualReg();
+    }
+
+    private Label getLabel(String name) {
+        return labels.computeIfAbsent(name, key -> new Label());
+    }
+
+    private static boolean isInt(Type type) {
+        var elementType = type.getTypeOfElement();
+        return elementType == ElementType.INT32 || elementType == ElementType.BOOLEAN;
+    }
+
+    private static int getAccess(AccessModifier modifier) {
+        return switch (modifier) {
+            case PUBLIC -> Opcodes.ACC_PUBLIC;
+            case PRIVATE -> Opcodes.ACC_PRIVATE;
+            case PROTECTED -> Opcodes.ACC_PROTECTED;
+            default -> 0;
+        };
+    }
+
+    private static String getMethodName(CallInstruction call) {
+        return ((LiteralElement) call.getMethodName()).getLiteral().replace("\"", "");
+    }
+
+    private String getDescriptor(CallInstruction call) {
+        var descriptor = new StringBuilder("(");
+        for (var argument : call.getArguments()) {
+            descriptor.append(getDescriptor(argument.getType()));
+        }
+        descriptor.append(")").append(getDescriptor(call.getReturnType()));
+
+        return descriptor.toString();
+    }
+
+    private String getDescriptor(Type type) {
+        return switch (type.getTypeOfElement()) {
+            case INT32 -> "I";
+            case BOOLEAN -> "Z";
+            case VOID -> "V";
+            case STRING -> "L" + STRING + ";";
+            case ARRAYREF -> "[".repeat(((ArrayType) type).getNumDimensions())
+                    + getDescriptor(((ArrayType) type).getElementType());
+            case OBJECTREF, CLASS, THIS -> "L" + getClassName(type) + ";";
+        };
+    }
+
+    /**
+     * @param type a class type, or an array type
+     * @return the internal name of the type, as used by the instructions that take a class
+     */
+    private String getClassName(Type type) {
+        return switch (type.getTypeOfElement()) {
+            case THIS -> className;
+            case STRING -> STRING;
+            case ARRAYREF -> getDescriptor(type);
+            case OBJECTREF, CLASS -> getClassName(((ClassType) type).getName());
+            default -> throw new NotImplementedException(type.getTypeOfElement());
+        };
+    }
+
+    /**
+     * @param simpleName
+     * @return the internal name of the class, using the fully qualified name of the import when there is one
+     */
+    private String getClassName(String simpleName) {
+        if (simpleName.equals("this") || simpleName.equals(className)) {
+            return className;
+        }
+
+        for (var imported : classUnit.getImports()) {
+            if (imported.equals(simpleName) || imported.endsWith("." + simpleName)) {
+                return imported.replace('.', '/');
+            }
+        }
+
+        return simpleName;
+    }
+
+    /**
+     * Computes frames without loading the class being generated, or classes that are not on the classpath of the
+     * compiler.
+     */
+    private class FrameClassWriter extends ClassWriter {
+
+        FrameClassWriter() {
+            super(ClassWriter.COMPUTE_FRAMES);
+        }
+
+        @Override
+        protected String getCommonSuperClass(String type1, String type2) {
+            if (type1.equals(type2)) {
+                return type1;
+            }
+
+            // the superclass of the generated class is the only one known without loading it
+            if (type1.equals(className)) {
+                type1 = superName;
+            }
+            if (type2.equals(className)) {
+                type2 = superName;
+            }
+            if (type1.equals(type2)) {
+                return type1;
+            }
+
+            try {
+                return super.getCommonSuperClass(type1, type2);
+            } catch (RuntimeException e) {
+                return OBJECT;
+            }
+        }
+    }
+}
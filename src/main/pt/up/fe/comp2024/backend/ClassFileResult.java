@@ -0,0 +1,59 @@
+package pt.up.fe.comp2024.backend;
+
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Class file generated directly from OLLIR, by the class file backend.
+ */
+public class ClassFileResult {
+
+    private final String className;
+    private final byte[] classFile;
+    private final List<Report> reports;
+
+    public ClassFileResult(String className, byte[] classFile, List<Report> reports) {
+        this.className = className;
+        this.classFile = classFile;
+        this.reports = reports;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * @return the bytes of the class file
+     */
+    public byte[] getClassFile() {
+        return classFile;
+    }
+
+    public List<Report> getReports() {
+        return reports;
+    }
+
+    /**
+     * Writes the class file to the given folder.
+     *
+     * @param outputDir
+     * @return the written file
+     */
+    public File write(File outputDir) {
+        SpecsIo.mkdir(outputDir);
+        var outputFile = new File(outputDir, className + ".class");
+
+        try {
+            Files.write(outputFile.toPath(), classFile);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write class file '" + outputFile + "'", e);
+        }
+
+        return outputFile;
+    }
+}
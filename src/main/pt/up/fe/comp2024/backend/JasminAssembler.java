@@ -0,0 +1,39 @@
+package pt.up.fe.comp2024.backend;
+
+import jasmin.ClassFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+
+/**
+ * Assembles Jasmin code into class file bytes, without going through the file system.
+ */
+public class JasminAssembler {
+
+    /**
+     * Jasmin keeps some of its state in static fields, calls are serialized.
+     *
+     * @param jasminCode
+     * @param sourceName the name of the source, used in error messages and in the SourceFile attribute
+     * @return the bytes of the class file
+     */
+    public static synchronized byte[] assemble(String jasminCode, String sourceName) {
+        try {
+            var classFile = new ClassFile();
+            classFile.readJasmin(new StringReader(jasminCode), sourceName, true);
+
+            if (classFile.errorCount() > 0) {
+                throw new RuntimeException("Found " + classFile.errorCount() + " errors while compiling Jasmin code.");
+            }
+
+            var bytes = new ByteArrayOutputStream();
+            classFile.write(bytes);
+
+            return bytes.toByteArray();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Exception while assembling Jasmin code: " + e.getMessage(), e);
+        }
+    }
+}
@@ -3,6 +3,17 @@ package pt.up.fe.comp2024.backend;
 import pt.up.fe.comp.jmm.jasmin.JasminBackend;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.metrics.CompilerMetrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 
 public class JasminBackendImpl implements JasminBackend {
 
@@ -10,9 +21,39 @@ public class JasminBackendImpl implements JasminBackend {
     public JasminResult toJasmin(OllirResult ollirResult) {
 
         var jasminGenerator = new JasminGenerator(ollirResult);
-        var jasminCode = jasminGenerator.build();
+        var jasminCode = CompilerMetrics.measure("build", jasminGenerator::build);
 
         return new JasminResult(ollirResult, jasminCode, jasminGenerator.getReports());
     }
 
+    /**
+     * Generates the Jasmin code of the given class straight into a file, without building the whole class in memory.
+     *
+     * @param ollirResult
+     * @param outputFile
+     * @return the reports of the generation
+     */
+    public List<Report> toJasminFile(OllirResult ollirResult, File outputFile) {
+
+        var jasminGenerator = new JasminGenerator(ollirResult);
+        var reports = new ArrayList<Report>();
+
+        try (var writer = Files.newBufferedWriter(outputFile.toPath(), StandardCharsets.UTF_8)) {
+            CompilerMetrics.measure("build", () -> {
+                try {
+                    jasminGenerator.build(writer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+        } catch (IOException | UncheckedIOException e) {
+            reports.add(Report.newError(Stage.GENERATION, -1, -1,
+                    "Could not write Jasmin file '" + outputFile + "'", e));
+        }
+
+        reports.addAll(0, jasminGenerator.getReports());
+        return reports;
+    }
+
 }
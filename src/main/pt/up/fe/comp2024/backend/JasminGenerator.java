@@ -4,12 +4,12 @@ import org.specs.comp.ollir.*;
 import org.specs.comp.ollir.tree.TreeNode;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.utils.Log;
 import pt.up.fe.specs.util.classmap.FunctionClassMap;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
-import pt.up.fe.specs.util.utilities.StringLines;
 
+import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 import static org.specs.comp.ollir.ElementType.*;
 
@@ -56,7 +56,6 @@ public class JasminGenerator {
         classUnit = null;
 
         this.generators = new FunctionClassMap<>();
-        generators.put(ClassUnit.class, this::generateClassUnit);
         generators.put(Method.class, this::generateMethod);
         generators.put(AssignInstruction.class, this::generateAssign);
         generators.put(SingleOpInstruction.class, this::generateSingleOp);
@@ -84,18 +83,42 @@ public class JasminGenerator {
         // This way, build is idempotent
         if (code == null) {
 
-            code = generators.apply(ollirResult.getOllirClass());
+            var builder = new StringBuilder();
+            try {
+                build(builder);
+            } catch (IOException e) {
+                // StringBuilder does not throw
+                throw new RuntimeException(e);
+            }
+
+            code = builder.toString();
         }
 
         return code;
     }
 
+    /**
+     * Writes the Jasmin code of the class to the given output, one method at a time, so that only the code of the
+     * current method is kept in memory.
+     *
+     * @param out
+     * @throws IOException if the output could not be written
+     */
+    public void build(Appendable out) throws IOException {
 
+        // already generated, do not generate again
+        if (code != null) {
+            out.append(code);
+            return;
+        }
 
+        generateClassUnit(ollirResult.getOllirClass(), out);
+    }
 
-    private String generateClassUnit(ClassUnit classUnit) {
 
-        var code = new StringBuilder();
+
+
+    private void generateClassUnit(ClassUnit classUnit, Appendable code) throws IOException {
 
         // generate class name
         var className = ollirResult.getOllirClass().getClassName();
@@ -146,7 +169,7 @@ public class JasminGenerator {
                 .end method
                 """;
 
-        code.append(defaultConstructor1 + constructorBetween + defaultConstructor2);
+        code.append(defaultConstructor1).append(constructorBetween).append(defaultConstructor2);
 
         for (var method : ollirResult.getOllirClass().getMethods()) {
 
@@ -156,8 +179,6 @@ public class JasminGenerator {
 
             code.append(generators.apply(method));
         }
-
-        return code.toString();
     }
 
 
@@ -221,9 +242,8 @@ public class JasminGenerator {
             code.append(instructs);
             instructs = "";
 
-            System.out.println(inst.getInstType());
-            var instCode = StringLines.getLines(generators.apply(inst)).stream()
-                    .collect(Collectors.joining(NL + TAB, TAB, NL));
+            Log.trace("Instruction {}", inst.getInstType());
+            var instCode = generators.apply(inst);
 
 
             var tipo = inst.getInstType();
@@ -234,7 +254,7 @@ public class JasminGenerator {
                 this.popS(1);
             }
 
-            code.append(instCode);
+            appendIndented(code, instCode);
         }
 
 
@@ -258,6 +278,35 @@ public class JasminGenerator {
 
 
 
+    /**
+     * Appends the given instruction code, indenting each of its lines.
+     *
+     * @param code
+     * @param instCode
+     */
+    private static void appendIndented(StringBuilder code, String instCode) {
+        code.append(TAB);
+
+        int lineStart = 0;
+        int end = instCode.length();
+
+        // the last line break is replaced by the final NL
+        if (end > 0 && instCode.charAt(end - 1) == '\n') {
+            end--;
+        }
+
+        for (int i = 0; i < end; i++) {
+            if (instCode.charAt(i) == '\n') {
+                code.append(instCode, lineStart, i).append(NL).append(TAB);
+                lineStart = i + 1;
+            }
+        }
+
+        code.append(instCode, lineStart, end).append(NL);
+    }
+
+
+
     /*
     ASSIGN,
     CALL,
@@ -0,0 +1,340 @@
+package pt.up.fe.comp2024.cache;
+
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.utils.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Persistent, content-addressed cache of the artifacts of compilation units.
+ * <p>
+ * Entries are keyed by a hash of the source code, the options that change the generated code and the version of the
+ * compiler. Entries are written to a temporary file and atomically renamed, so several compiler processes can share
+ * the same folder. When the folder grows over its size limit, the least recently used entries are removed.
+ */
+public class ArtifactCache {
+
+    private static final String ENTRY_EXTENSION = ".entry";
+    private static final String LOCK_FILE = ".lock";
+
+    /**
+     * Puts between checks of the size of the cache.
+     */
+    private static final int EVICTION_INTERVAL = 64;
+
+    /**
+     * Entries are small, anything bigger than this is a corrupted length.
+     */
+    private static final int MAX_FIELD_BYTES = 64 * 1024 * 1024;
+
+    /**
+     * Anything bigger than this is a corrupted count of reports.
+     */
+    private static final int MAX_REPORTS = 64 * 1024;
+
+    private static String compilerVersion = null;
+
+    private final Path folder;
+    private final long maxBytes;
+    private final AtomicInteger putsSinceEviction;
+    private final AtomicBoolean evicting;
+
+    public ArtifactCache(File folder, long maxBytes) {
+        this.folder = folder.toPath();
+        this.maxBytes = maxBytes;
+        this.putsSinceEviction = new AtomicInteger(EVICTION_INTERVAL);
+        this.evicting = new AtomicBoolean(false);
+    }
+
+    /**
+     * @param code
+     * @param config
+     * @return the key of the given compilation unit
+     */
+    public static String getKey(String code, Map<String, String> config) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+
+            update(digest, getCompilerVersion());
+            update(digest, String.valueOf(CompilerConfig.getOptimize(config)));
+            update(digest, String.valueOf(CompilerConfig.getRegisterAllocation(config)));
+            update(digest, CompilerConfig.getBackend(config));
+            update(digest, code);
+
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Could not compute cache key", e);
+        }
+    }
+
+    /**
+     * @return the version of the compiler, or a fingerprint of its classes when running outside a packaged jar
+     */
+    private static synchronized String getCompilerVersion() {
+        if (compilerVersion != null) {
+            return compilerVersion;
+        }
+
+        var version = ArtifactCache.class.getPackage().getImplementationVersion();
+        if (version == null) {
+            version = getClassesFingerprint();
+        }
+
+        compilerVersion = version;
+        return compilerVersion;
+    }
+
+    private static String getClassesFingerprint() {
+        try {
+            var location = Path.of(ArtifactCache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+
+            // newest class of the compiler, so that rebuilding the compiler invalidates the cache
+            long lastModified;
+            try (Stream<Path> files = Files.walk(location)) {
+                lastModified = files.mapToLong(ArtifactCache::lastModified).max().orElse(0);
+            }
+
+            return location + "@" + lastModified;
+        } catch (Exception e) {
+            // unknown version, entries are never reused across runs
+            return "unknown@" + ProcessHandle.current().pid() + "@" + System.nanoTime();
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        // length prefix, so that different splits of the same bytes give different keys
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    /**
+     * @param key
+     * @return the cached entry, if present
+     */
+    public Optional<CacheEntry> get(String key) {
+        var entryFile = getEntryFile(key);
+
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entryFile)))) {
+            var entry = new CacheEntry(readString(in), readString(in), readString(in), readString(in), readBytes(in),
+                    readReports(in));
+
+            // mark as recently used
+            Files.setLastModifiedTime(entryFile, FileTime.fromMillis(System.currentTimeMillis()));
+
+            return Optional.of(entry);
+        } catch (IOException | IllegalArgumentException e) {
+            // missing, corrupted, or evicted while reading, treat as a miss
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores the given entry, replacing any entry with the same key.
+     *
+     * @param key
+     * @param entry
+     */
+    public void put(String key, CacheEntry entry) {
+        var entryFile = getEntryFile(key);
+
+        try {
+            Files.createDirectories(entryFile.getParent());
+
+            var tempFile = Files.createTempFile(entryFile.getParent(), key, ".tmp");
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                writeString(out, entry.getClassName());
+                writeString(out, entry.getOllirCode());
+                writeString(out, entry.getJasminCode());
+                writeString(out, entry.getSymbolTable());
+                writeBytes(out, entry.getClassFile());
+                writeReports(out, entry.getReports());
+            }
+
+            try {
+                Files.move(tempFile, entryFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, entryFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // a cache that cannot be written only costs time
+            Log.warn("Could not write cache entry '{}': {}", entryFile, e.getMessage());
+            return;
+        }
+
+        if (putsSinceEviction.incrementAndGet() >= EVICTION_INTERVAL) {
+            putsSinceEviction.set(0);
+            evict();
+        }
+    }
+
+    /**
+     * Removes least recently used entries until the cache is under its size limit. If another thread or process is
+     * already evicting, does nothing.
+     */
+    public void evict() {
+        // the file lock is held by the whole process, it does not keep out other threads
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(folder);
+
+            try (var channel = FileChannel.open(folder.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+                 var lock = channel.tryLock()) {
+
+                if (lock == null) {
+                    return;
+                }
+
+                evictLocked();
+            }
+        } catch (OverlappingFileLockException e) {
+            // another cache of this process, on the same folder, is evicting
+        } catch (IOException e) {
+            Log.warn("Could not evict cache entries in '{}': {}", folder, e.getMessage());
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private void evictLocked() throws IOException {
+        // lists the two levels of the layout, a walk would fail on files renamed or removed while walking
+        var entries = new ArrayList<Path>();
+        try (var subFolders = Files.newDirectoryStream(folder, Files::isDirectory)) {
+            for (var subFolder : subFolders) {
+                try (var files = Files.newDirectoryStream(subFolder, "*" + ENTRY_EXTENSION)) {
+                    files.forEach(entries::add);
+                }
+            }
+        }
+
+        long totalBytes = 0;
+        for (var entry : entries) {
+            totalBytes += sizeOf(entry);
+        }
+
+        if (totalBytes <= maxBytes) {
+            return;
+        }
+
+        entries.sort(Comparator.comparingLong(ArtifactCache::lastModified));
+
+        for (var entry : entries) {
+            if (totalBytes <= maxBytes) {
+                break;
+            }
+
+            totalBytes -= sizeOf(entry);
+            Files.deleteIfExists(entry);
+        }
+    }
+
+    private Path getEntryFile(String key) {
+        // two-level layout, keeps folders small
+        return folder.resolve(key.substring(0, 2)).resolve(key + ENTRY_EXTENSION);
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        writeBytes(out, string.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_FIELD_BYTES) {
+            throw new IOException("Invalid field length " + length);
+        }
+
+        var bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeReports(DataOutputStream out, List<Report> reports) throws IOException {
+        out.writeInt(reports.size());
+
+        for (var report : reports) {
+            writeString(out, report.getType().name());
+            writeString(out, report.getStage().name());
+            out.writeInt(report.getLine());
+            out.writeInt(report.getColumn());
+            writeString(out, String.valueOf(report.getMessage()));
+        }
+    }
+
+    private static List<Report> readReports(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        if (size < 0 || size > MAX_REPORTS) {
+            throw new IOException("Invalid report count " + size);
+        }
+
+        var reports = new ArrayList<Report>(size);
+        for (int i = 0; i < size; i++) {
+            var type = ReportType.valueOf(readString(in));
+            var stage = Stage.valueOf(readString(in));
+            int line = in.readInt();
+            int column = in.readInt();
+
+            reports.add(new Report(type, stage, line, column, readString(in)));
+        }
+
+        return reports;
+    }
+}
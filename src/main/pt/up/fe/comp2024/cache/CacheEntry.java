@@ -0,0 +1,64 @@
+package pt.up.fe.comp2024.cache;
+
+import pt.up.fe.comp.jmm.report.Report;
+
+import java.util.List;
+
+/**
+ * Artifacts of a compilation unit that compiled without errors, and the reports of its compilation.
+ */
+public class CacheEntry {
+
+    private final String className;
+    private final String ollirCode;
+    private final String jasminCode;
+    private final String symbolTable;
+    private final byte[] classFile;
+    private final List<Report> reports;
+
+    public CacheEntry(String className, String ollirCode, String jasminCode, String symbolTable, byte[] classFile,
+                      List<Report> reports) {
+        this.className = className;
+        this.ollirCode = ollirCode;
+        this.jasminCode = jasminCode;
+        this.symbolTable = symbolTable;
+        this.classFile = classFile;
+        this.reports = List.copyOf(reports);
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getOllirCode() {
+        return ollirCode;
+    }
+
+    /**
+     * @return the Jasmin code, empty if the unit was compiled by the class file backend
+     */
+    public String getJasminCode() {
+        return jasminCode;
+    }
+
+    /**
+     * @return the printed symbol table of the unit, as given by SymbolTable.print()
+     */
+    public String getSymbolTable() {
+        return symbolTable;
+    }
+
+    /**
+     * @return the class file, empty if the unit was compiled by the Jasmin backend
+     */
+    public byte[] getClassFile() {
+        return classFile;
+    }
+
+    /**
+     * @return the reports of the compilation of the unit, e.g. warnings, without their exceptions
+     */
+    public List<Report> getReports() {
+        return reports;
+    }
+}
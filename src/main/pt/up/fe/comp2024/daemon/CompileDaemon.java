@@ -0,0 +1,253 @@
+package pt.up.fe.comp2024.daemon;
+
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilationResult;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.JmmCompiler;
+import pt.up.fe.comp2024.backend.JasminAssembler;
+import pt.up.fe.comp2024.utils.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-lived compiler process that accepts compile requests on a local socket.
+ * <p>
+ * Keeping the process resident means the ANTLR, OLLIR and Jasmin classes stay loaded and the parser's shared DFA stays
+ * warm between requests. Requests wait in a bounded queue; when the queue is full the client is told the daemon is
+ * busy instead of piling up more work. See {@link DaemonProtocol} for the wire format.
+ * <p>
+ * A compilation that does not finish in time is interrupted and left behind, the compiler does not check for
+ * interrupts, so its thread may keep running until the compilation ends. Compilations run on threads created as
+ * needed, so an abandoned one does not take a thread from the requests after it. At most as many abandoned
+ * compilations as connection threads run at a time, past that requests are told the daemon is busy until they end.
+ */
+public class CompileDaemon implements AutoCloseable {
+
+    private final Map<String, String> config;
+    private final long timeoutMs;
+
+    private final JmmCompiler compiler;
+    private final ThreadPoolExecutor connections;
+    private final ExecutorService compilations;
+    // compilations that may run at a time: one per connection thread, and as many abandoned ones
+    private final Semaphore compileSlots;
+
+    private ServerSocket serverSocket;
+
+    public CompileDaemon(Map<String, String> config) {
+        this(config, new JmmCompiler());
+    }
+
+    CompileDaemon(Map<String, String> config, JmmCompiler compiler) {
+        this.config = config;
+        this.timeoutMs = CompilerConfig.getTimeout(config);
+        this.compiler = compiler;
+
+        int threads = CompilerConfig.getThreads(config);
+        this.connections = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(CompilerConfig.getQueueCapacity(config)),
+                new ThreadPoolExecutor.AbortPolicy());
+        // not a fixed pool, a thread that times out is abandoned and the next request needs another one. The number of
+        // requests compiled at a time is still bounded by the connection threads
+        var compileThreads = new AtomicInteger();
+        this.compilations = Executors.newCachedThreadPool(task -> {
+            var thread = new Thread(task, "daemon-compile-" + compileThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.compileSlots = new Semaphore(threads * 2);
+        this.serverSocket = null;
+    }
+
+    /**
+     * Listens on the configured port, on the loopback interface, until the daemon is closed.
+     *
+     * @throws IOException
+     */
+    public void serve() throws IOException {
+        int port = CompilerConfig.getDaemonPort(config);
+        serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+
+        System.out.println("Compile daemon listening on " + serverSocket.getLocalSocketAddress());
+
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                // socket was closed
+                break;
+            }
+
+            try {
+                connections.execute(() -> handle(socket));
+            } catch (RejectedExecutionException e) {
+                reject(socket);
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket) {
+            // a client that stops sending would otherwise hold a connection thread forever
+            socket.setSoTimeout((int) Math.min(timeoutMs, Integer.MAX_VALUE));
+
+            var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            var requestConfig = DaemonProtocol.readConfig(in);
+            var code = DaemonProtocol.readString(in);
+
+            if (!compileSlots.tryAcquire()) {
+                // the slots of the connection threads are taken by compilations that timed out and still run
+                Log.warn(() -> "Too many abandoned compilations still running, rejecting request");
+                writeBusy(out);
+                return;
+            }
+
+            var compilation = new Compilation(() -> compiler.compile(code, requestConfig));
+            compilations.execute(compilation);
+
+            CompilationResult result;
+            try {
+                result = compilation.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                compilation.cancel(true);
+                Log.warn("Compilation did not finish in {}ms, abandoning its thread", timeoutMs);
+                var report = Report.newError(Stage.OTHER, -1, -1,
+                        "Compilation did not finish in " + timeoutMs + "ms", null);
+                writeResponse(out, DaemonProtocol.STATUS_TIMEOUT, List.of(report), "", "", null);
+                return;
+            } catch (ExecutionException e) {
+                var cause = e.getCause();
+                Log.error("Compilation failed: {}", cause.getMessage());
+                var exception = cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+                var report = Report.newError(Stage.OTHER, -1, -1, "Exception during compilation", exception);
+                writeResponse(out, DaemonProtocol.STATUS_ERRORS, List.of(report), "", "", null);
+                return;
+            }
+
+            writeResult(out, result);
+        } catch (IOException e) {
+            Log.error("Could not handle compile request: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeResult(DataOutputStream out, CompilationResult result) throws IOException {
+        List<Report> reports = new ArrayList<>(result.getReports());
+
+        var jasminResult = result.getJasminResult();
+        var className = result.getClassName().orElse("");
+        var jasminCode = jasminResult.map(jasmin -> jasmin.getJasminCode()).orElse("");
+
+        byte[] classFile = null;
+        if (result.getClassFileResult().isPresent() && !result.hasErrors()) {
+            classFile = result.getClassFileResult().get().getClassFile();
+        } else if (jasminResult.isPresent() && !result.hasErrors()) {
+            try {
+                classFile = JasminAssembler.assemble(jasminCode, className + ".j");
+            } catch (RuntimeException e) {
+                reports.add(Report.newError(Stage.GENERATION, -1, -1, e.getMessage(), e));
+            }
+        }
+
+        int status = classFile != null ? DaemonProtocol.STATUS_OK : DaemonProtocol.STATUS_ERRORS;
+        writeResponse(out, status, reports, className, jasminCode, classFile);
+    }
+
+    private void reject(Socket socket) {
+        try (socket) {
+            writeBusy(new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())));
+        } catch (IOException e) {
+            Log.error("Could not reject compile request: {}", e.getMessage());
+        }
+    }
+
+    private static void writeBusy(DataOutputStream out) throws IOException {
+        var report = Report.newError(Stage.OTHER, -1, -1, "Compile daemon is busy, try again later", null);
+        writeResponse(out, DaemonProtocol.STATUS_BUSY, List.of(report), "", "", null);
+    }
+
+    private static void writeResponse(DataOutputStream out, int status, List<Report> reports, String className,
+                                      String jasminCode, byte[] classFile) throws IOException {
+        out.writeInt(status);
+        DaemonProtocol.writeReports(out, reports);
+        DaemonProtocol.writeString(out, className);
+        DaemonProtocol.writeString(out, jasminCode);
+        DaemonProtocol.writeBytes(out, classFile);
+        out.flush();
+    }
+
+    /**
+     * A compilation that holds a slot until it ends, also when it was abandoned.
+     */
+    private class Compilation extends FutureTask<CompilationResult> {
+
+        // the slot is given back once, by the compilation when it ends, or on cancel if it never started
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        Compilation(Callable<CompilationResult> compile) {
+            super(compile);
+        }
+
+        @Override
+        public void run() {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+
+            try {
+                super.run();
+            } finally {
+                compileSlots.release();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (claimed.compareAndSet(false, true)) {
+                compileSlots.release();
+            }
+
+            return cancelled;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (serverSocket != null) {
+            serverSocket.close();
+        }
+
+        connections.shutdown();
+        compilations.shutdownNow();
+    }
+}
@@ -0,0 +1,130 @@
+package pt.up.fe.comp2024.daemon;
+
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.CompilerConfig;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thin client that sends a compile request to a running {@link CompileDaemon}.
+ * <p>
+ * Accepts the same arguments as the Launcher. The port is read from the JMM_DAEMON_PORT environment variable. The
+ * generated .j and .class files are written to the working directory.
+ */
+public class DaemonClient {
+
+    public static final String PORT_ENV = "JMM_DAEMON_PORT";
+
+    private final int port;
+
+    public DaemonClient(int port) {
+        this.port = port;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> config = CompilerConfig.parseArgs(args);
+
+        var inputFile = CompilerConfig.getInputFile(config).orElseThrow();
+        var code = Files.readString(inputFile.toPath());
+
+        var port = System.getenv(PORT_ENV);
+        var client = new DaemonClient(port == null || port.isBlank() ?
+                CompilerConfig.getDaemonPort(Map.of()) :
+                Integer.parseInt(port));
+
+        var response = client.compile(code, config);
+
+        for (var report : response.getReports()) {
+            System.err.println(report);
+        }
+
+        if (!response.getJasminCode().isEmpty()) {
+            Files.writeString(new File(response.getClassName() + ".j").toPath(), response.getJasminCode());
+        }
+
+        if (response.getClassFile() != null) {
+            Files.write(new File(response.getClassName() + ".class").toPath(), response.getClassFile());
+        }
+
+        System.exit(response.getStatus());
+    }
+
+    /**
+     * Sends a single compile request and waits for the answer.
+     *
+     * @param code
+     * @param config
+     * @return
+     * @throws IOException if the daemon could not be reached
+     */
+    public Response compile(String code, Map<String, String> config) throws IOException {
+        try (var socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DaemonProtocol.writeConfig(out, config);
+            DaemonProtocol.writeString(out, code);
+            out.flush();
+
+            var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            int status = in.readInt();
+            var reports = DaemonProtocol.readReports(in);
+            var className = DaemonProtocol.readString(in);
+            var jasminCode = DaemonProtocol.readString(in);
+            var classFile = DaemonProtocol.readBytes(in);
+
+            return new Response(status, reports, className, jasminCode, classFile);
+        }
+    }
+
+    public static class Response {
+
+        private final int status;
+        private final List<Report> reports;
+        private final String className;
+        private final String jasminCode;
+        private final byte[] classFile;
+
+        public Response(int status, List<Report> reports, String className, String jasminCode, byte[] classFile) {
+            this.status = status;
+            this.reports = reports;
+            this.className = className;
+            this.jasminCode = jasminCode;
+            this.classFile = classFile;
+        }
+
+        /**
+         * @return one of the DaemonProtocol.STATUS_* values
+         */
+        public int getStatus() {
+            return status;
+        }
+
+        public List<Report> getReports() {
+            return reports;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public String getJasminCode() {
+            return jasminCode;
+        }
+
+        /**
+         * @return the bytes of the class file, or null if the compilation failed
+         */
+        public byte[] getClassFile() {
+            return classFile;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package pt.up.fe.comp2024.daemon;
+
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Framing used between the compile daemon and its clients.
+ * <p>
+ * Every value is length-prefixed (big-endian int). A request is the config map followed by the source code. A
+ * response is a status, the reports, the class name, the Jasmin code and the class file bytes (length -1 if there is
+ * no class file).
+ */
+public class DaemonProtocol {
+
+    public static final int STATUS_OK = 0;
+    public static final int STATUS_ERRORS = 1;
+    public static final int STATUS_BUSY = 2;
+    public static final int STATUS_TIMEOUT = 3;
+
+    /**
+     * Upper bound for a single frame, protects the daemon from malformed requests.
+     */
+    private static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+
+    /**
+     * Upper bounds for the number of config entries and reports, for the same reason.
+     */
+    private static final int MAX_CONFIG_ENTRIES = 1024;
+    private static final int MAX_REPORTS = 64 * 1024;
+
+    public static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+
+        if (length == -1) {
+            return null;
+        }
+
+        if (length < 0 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Invalid frame length " + length);
+        }
+
+        var bytes = new byte[length];
+        in.readFully(bytes);
+
+        return bytes;
+    }
+
+    public static void writeString(DataOutputStream out, String string) throws IOException {
+        writeBytes(out, string.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String readString(DataInputStream in) throws IOException {
+        var bytes = readBytes(in);
+
+        if (bytes == null) {
+            throw new IOException("Expected a string, found an empty frame");
+        }
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void writeConfig(DataOutputStream out, Map<String, String> config) throws IOException {
+        out.writeInt(config.size());
+
+        for (var entry : config.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    public static Map<String, String> readConfig(DataInputStream in) throws IOException {
+        int size = readCount(in, MAX_CONFIG_ENTRIES);
+
+        var config = new HashMap<String, String>();
+        for (int i = 0; i < size; i++) {
+            config.put(readString(in), readString(in));
+        }
+
+        return config;
+    }
+
+    public static void writeReports(DataOutputStream out, List<Report> reports) throws IOException {
+        out.writeInt(reports.size());
+
+        for (var report : reports) {
+            writeString(out, report.getType().name());
+            writeString(out, report.getStage().name());
+            out.writeInt(report.getLine());
+            out.writeInt(report.getColumn());
+            writeString(out, String.valueOf(report.getMessage()));
+        }
+    }
+
+    public static List<Report> readReports(DataInputStream in) throws IOException {
+        int size = readCount(in, MAX_REPORTS);
+
+        // not sized from the count, which comes from the other side of the socket
+        var reports = new ArrayList<Report>();
+        for (int i = 0; i < size; i++) {
+            var type = ReportType.valueOf(readString(in));
+            var stage = Stage.valueOf(readString(in));
+            int line = in.readInt();
+            int column = in.readInt();
+            var message = readString(in);
+
+            reports.add(new Report(type, stage, line, column, message));
+        }
+
+        return reports;
+    }
+
+    private static int readCount(DataInputStream in, int max) throws IOException {
+        int count = in.readInt();
+
+        if (count < 0 || count > max) {
+            throw new IOException("Invalid count " + count);
+        }
+
+        return count;
+    }
+}
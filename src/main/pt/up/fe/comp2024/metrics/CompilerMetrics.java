@@ -0,0 +1,171 @@
+package pt.up.fe.comp2024.metrics;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Records wall time, CPU time and allocated bytes of each stage of a compilation.
+ * <p>
+ * Stages report themselves through {@link #measure(String, Supplier)}, which only records when a CompilerMetrics is
+ * attached to the current thread, and otherwise just runs the stage.
+ */
+public class CompilerMetrics {
+
+    private static final ThreadLocal<CompilerMetrics> CURRENT = new ThreadLocal<>();
+
+    private static final java.lang.management.ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final List<StageMetric> stages;
+    private final Deque<String> enclosingStages;
+    private final Map<String, Long> counters;
+
+    public CompilerMetrics() {
+        this.stages = new ArrayList<>();
+        this.enclosingStages = new ArrayDeque<>();
+        this.counters = new LinkedHashMap<>();
+    }
+
+    /**
+     * Runs the given stage, recording its cost if metrics are being collected in the current thread.
+     *
+     * @param stage  name of the stage
+     * @param action the stage
+     * @return the result of the stage
+     */
+    public static <T> T measure(String stage, Supplier<T> action) {
+        var metrics = CURRENT.get();
+
+        if (metrics == null) {
+            return action.get();
+        }
+
+        return metrics.record(stage, action);
+    }
+
+    /**
+     * Increments the given counter, if metrics are being collected in the current thread.
+     *
+     * @param counter name of the counter
+     */
+    public static void count(String counter) {
+        var metrics = CURRENT.get();
+
+        if (metrics != null) {
+            metrics.counters.merge(counter, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * Starts collecting the stages executed by the current thread into this object.
+     */
+    public void attach() {
+        CURRENT.set(this);
+    }
+
+    /**
+     * Stops collecting the stages executed by the current thread.
+     */
+    public void detach() {
+        CURRENT.remove();
+    }
+
+    public List<StageMetric> getStages() {
+        return stages;
+    }
+
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    private <T> T record(String stage, Supplier<T> action) {
+        var name = enclosingStages.isEmpty() ? stage : enclosingStages.peek() + "/" + stage;
+
+        long cpuStart = getCpuTime();
+        long allocatedStart = getAllocatedBytes();
+        long wallStart = System.nanoTime();
+
+        enclosingStages.push(name);
+        try {
+            return action.get();
+        } finally {
+            enclosingStages.pop();
+
+            long wall = System.nanoTime() - wallStart;
+            long cpu = cpuStart == -1 ? -1 : getCpuTime() - cpuStart;
+            long allocated = allocatedStart == -1 ? -1 : getAllocatedBytes() - allocatedStart;
+
+            stages.add(new StageMetric(name, wall, cpu, allocated));
+        }
+    }
+
+    private static long getCpuTime() {
+        if (!THREADS.isCurrentThreadCpuTimeSupported()) {
+            return -1;
+        }
+
+        return THREADS.getCurrentThreadCpuTime();
+    }
+
+    private static long getAllocatedBytes() {
+        if (!(THREADS instanceof com.sun.management.ThreadMXBean sunThreads)
+                || !sunThreads.isThreadAllocatedMemorySupported()) {
+            return -1;
+        }
+
+        return sunThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    public JsonArray toJson() {
+        var stagesJson = new JsonArray();
+
+        for (var stage : stages) {
+            var stageJson = new JsonObject();
+            stageJson.addProperty("name", stage.getName());
+            stageJson.addProperty("wallNanos", stage.getWallNanos());
+            stageJson.addProperty("cpuNanos", stage.getCpuNanos());
+            stageJson.addProperty("allocatedBytes", stage.getAllocatedBytes());
+            stagesJson.add(stageJson);
+        }
+
+        return stagesJson;
+    }
+
+    /**
+     * Builds the JSON summary of several compilations.
+     *
+     * @param metrics metrics of each input file
+     * @return
+     */
+    public static String toJson(Map<String, CompilerMetrics> metrics) {
+        var files = new JsonArray();
+
+        for (var entry : metrics.entrySet()) {
+            var file = new JsonObject();
+            file.addProperty("file", entry.getKey());
+            file.add("stages", entry.getValue().toJson());
+
+            var counters = entry.getValue().getCounters();
+            if (!counters.isEmpty()) {
+                var countersJson = new JsonObject();
+                counters.forEach(countersJson::addProperty);
+                file.add("counters", countersJson);
+            }
+            files.add(file);
+        }
+
+        var json = new JsonObject();
+        json.add("files", files);
+
+        return new GsonBuilder().setPrettyPrinting().create().toJson(json);
+    }
+}
@@ -0,0 +1,55 @@
+package pt.up.fe.comp2024.metrics;
+
+/**
+ * Cost of a single execution of a stage, as seen by the thread that ran it.
+ */
+public class StageMetric {
+
+    private final String name;
+    private final long wallNanos;
+    private final long cpuNanos;
+    private final long allocatedBytes;
+
+    public StageMetric(String name, long wallNanos, long cpuNanos, long allocatedBytes) {
+        this.name = name;
+        this.wallNanos = wallNanos;
+        this.cpuNanos = cpuNanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * @return the name of the stage, nested stages are prefixed with the name of the enclosing stage (e.g.,
+     * 'analysis/symbolTable')
+     */
+    public String getName() {
+        return name;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * @return CPU time of the thread, or -1 if the JVM does not support measuring it
+     */
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    /**
+     * @return bytes allocated by the thread, or -1 if the JVM does not support measuring it
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "StageMetric{" +
+                "name='" + name + '\'' +
+                ", wallNanos=" + wallNanos +
+                ", cpuNanos=" + cpuNanos +
+                ", allocatedBytes=" + allocatedBytes +
+                '}';
+    }
+}
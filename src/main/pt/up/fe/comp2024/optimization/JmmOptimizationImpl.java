@@ -3,6 +3,7 @@ package pt.up.fe.comp2024.optimization;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 import pt.up.fe.comp.jmm.ollir.JmmOptimization;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.analysis.TypedSemanticsResult;
 
 import java.util.Collections;
 
@@ -11,7 +12,8 @@ public class JmmOptimizationImpl implements JmmOptimization {
     @Override
     public OllirResult toOllir(JmmSemanticsResult semanticsResult) {
 
-        var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable());
+        var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable(),
+                TypedSemanticsResult.getExprTypes(semanticsResult));
         var ollirCode = visitor.visit(semanticsResult.getRootNode());
 
         return new OllirResult(semanticsResult, ollirCode, Collections.emptyList());
@@ -1,30 +1,38 @@
 package pt.up.fe.comp2024.optimization;
 
-import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
+import pt.up.fe.comp2024.ast.ExprTypes;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.PostorderKindVisitor;
 import pt.up.fe.comp2024.ast.TypeUtils;
-
-import java.util.List;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.TypeRegistry;
 
 import static pt.up.fe.comp2024.ast.Kind.*;
 import static pt.up.fe.comp2024.optimization.OptUtils.*;
 
 /**
  * Generates OLLIR code from JmmNodes that are expressions.
+ * <p>
+ * The operands are visited before the expressions that use them, which take their code with getChildResult.
  */
-public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExprResult> {
+public class OllirExprGeneratorVisitor extends PostorderKindVisitor<Void, OllirExprResult> {
 
     private static final String SPACE = " ";
     private static final String ASSIGN = ":=";
     private final String END_STMT = ";\n";
 
     private final SymbolTable table;
+    private final ExprTypes exprTypes;
+
+    private final TempGenerator temps;
 
-    public OllirExprGeneratorVisitor(SymbolTable table) {
+    public OllirExprGeneratorVisitor(SymbolTable table, ExprTypes exprTypes, TempGenerator temps) {
         this.table = table;
+        this.exprTypes = exprTypes;
+        this.temps = temps;
     }
 
     @Override
@@ -43,17 +51,16 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
     }
 
     private OllirExprResult vistUnaryExpr(JmmNode jmmNode, Void unused) {
-        var child = jmmNode.getChildren().get(0);
-        var code = visit(child).getCode();
-        var type = TypeUtils.getExprType(jmmNode, table);
+        var code = getChildResult(0).getCode();
+        var type = TypeUtils.getExprType(jmmNode, exprTypes);
         var ollirType = OptUtils.toOllirType(type);
         return new OllirExprResult(jmmNode.get("op")  + ollirType + SPACE + code);
     }
 
     private OllirExprResult visitBoolLiteral(JmmNode jmmNode, Void unused) {
-        var type = new Type("boolean", false);
+        var type = TypeRegistry.BOOLEAN;
         var ollirType = OptUtils.toOllirType(type);
-        if (jmmNode.getKind().equals("TrueLiteral")) {
+        if (TRUE_LITERAL.check(jmmNode)) {
             return new OllirExprResult("1" + ollirType);
         } else {
             return new OllirExprResult("0" + ollirType);
@@ -62,15 +69,15 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
 
     private OllirExprResult visitNewBracketExpr(JmmNode jmmNode, Void unused) {
-        var type = TypeUtils.getExprType(jmmNode, table);
+        var type = TypeUtils.getExprType(jmmNode, exprTypes);
         var ollirType = OptUtils.toOllirType(type);
-        var code = "new" + "(" + "array" + ", " + visit(jmmNode.getChildren().get(0)).getCode() + ")" + ollirType;
+        var code = "new" + "(" + "array" + ", " + getChildResult(0).getCode() + ")" + ollirType;
         return new OllirExprResult(code);
     }
 
     private OllirExprResult visitNewObject(JmmNode jmmNode, Void unused) {
         var className = jmmNode.get("name");
-        var type = new Type(className, false);
+        var type = JmmSymbolTable.of(table).getTypes().getType(className, false);
         var ollirType = OptUtils.toOllirType(type);
         var code = "new " + "(" + className + ")" + ollirType;
         return new OllirExprResult(code);
@@ -80,20 +87,21 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         var methodName = jmmNode.get("method");
 
         var targetNode = jmmNode.getChildren().get(0);
+        var targetKind = Kind.of(targetNode);
         String methodTarget = targetNode.getKind();
         var helper = methodTarget;
-        Type type = TypeUtils.getExprType(jmmNode, table);
+        Type type = TypeUtils.getExprType(jmmNode, exprTypes);
         String ollirType = OptUtils.toOllirType(type);
         String invokeType = "";
-        if (methodTarget.equals("ThisLiteral")) {
+        if (targetKind == THIS_LITERAL) {
             helper = "this";
         }
-        else if (methodTarget.equals("VarRefExpr")) {
+        else if (targetKind == VAR_REF_EXPR) {
             helper = targetNode.get("name");
         }
         StringBuilder code = new StringBuilder();
         boolean instance = false;
-        if (methodTarget.equals("VarRefExpr")) {
+        if (targetKind == VAR_REF_EXPR) {
             instance = true;
             methodTarget = targetNode.get("name");
         }
@@ -114,7 +122,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
             if (i == 1) {
                 code.append(", ");
             }
-            code.append(visit(jmmNode.getChildren().get(i)).getCode());
+            code.append(getChildResult(i).getCode());
             if (i != jmmNode.getNumChildren() - 1) {
                 code.append(", ");
             }
@@ -127,7 +135,7 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
     }
 
     private OllirExprResult visitInteger(JmmNode node, Void unused) {
-        var intType = new Type(TypeUtils.getIntTypeName(), false);
+        var intType = TypeRegistry.INT;
         String ollirIntType = OptUtils.toOllirType(intType);
         String code = node.get("value") + ollirIntType;
         return new OllirExprResult(code);
@@ -136,21 +144,20 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
     private OllirExprResult visitBinExpr(JmmNode node, Void unused) {
         var rightNode = node.getJmmChild(1);
-        var leftNode = node.getJmmChild(0);
         String rhs = "";
-        String temp = getTemp();
+        String temp = temps.getTemp();
         StringBuilder computation = new StringBuilder();
         StringBuilder code = new StringBuilder();
-        Type resType = TypeUtils.getExprType(node, table);
+        Type resType = TypeUtils.getExprType(node, exprTypes);
         String resOllirType = OptUtils.toOllirType(resType);
         if (needsTemp(rightNode)) {
             rhs = temp + resOllirType;
-            computation.append(temp).append(resOllirType).append(SPACE).append(ASSIGN).append(resOllirType).append(SPACE).append(visit(rightNode).getCode());
+            computation.append(temp).append(resOllirType).append(SPACE).append(ASSIGN).append(resOllirType).append(SPACE).append(getChildResult(1).getCode());
         } else {
-            rhs = visit(rightNode).getCode();
+            rhs = getChildResult(1).getCode();
         }
 
-        var lhs = visit(leftNode);
+        var lhs = getChildResult(0);
 
         code.append(lhs.getCode()).append(SPACE)
                 .append(node.get("op")).append(resOllirType).append(SPACE)
@@ -170,19 +177,17 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
             .orElseThrow();
 
     // Check if the variable is a parameter of the current method
-    List<Symbol> parameters = table.getParameters(currentMethod);
-    for (int i = 0; i < parameters.size(); i++) {
-        Symbol param = parameters.get(i);
-        if (param.getName().equals(varName)) {
-            // If it is, prepend "$<index>." to the variable name
-            varName = "$" + (i + 1) + "." + varName;
-            break;
-        }
+    var indexedTable = JmmSymbolTable.of(table);
+    var identifiers = indexedTable.getIdentifiers();
+    int paramIndex = indexedTable.getParameterIndex(identifiers.getId(currentMethod), identifiers.getId(varName));
+    if (paramIndex >= 0) {
+        // If it is, prepend "$<index>." to the variable name
+        varName = "$" + (paramIndex + 1) + "." + varName;
     }
 
     // Generate some OLLIR code for illustrative purposes
     // get type from symbol table
-    Type type = TypeUtils.getExprType(node, table);
+    Type type = TypeUtils.getExprType(node, exprTypes);
     // Convert the type to OLLIR format
     String ollirType = OptUtils.toOllirType(type);
     // Generate OLLIR code
@@ -191,18 +196,13 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 }
 
     /**
-     * Default visitor. Visits every child node and return an empty result.
+     * Default visitor. The child nodes were already visited, returns an empty result.
      *
      * @param node
      * @param unused
      * @return
      */
     private OllirExprResult defaultVisit(JmmNode node, Void unused) {
-
-        for (var child : node.getChildren()) {
-            visit(child);
-        }
-
         return OllirExprResult.EMPTY;
     }
 
@@ -1,24 +1,27 @@
 package pt.up.fe.comp2024.optimization;
 
 import static pt.up.fe.comp2024.ast.Kind.*;
-import static pt.up.fe.comp2024.optimization.OptUtils.getTemp;
 
-import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
-import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.ExprTypes;
 import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.KindVisitor;
 import pt.up.fe.comp2024.ast.NodeUtils;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.utils.Log;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
 
 /**
  * Generates OLLIR code from JmmNodes that are not expressions.
  */
-public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
+public class OllirGeneratorVisitor extends KindVisitor<Void, String> {
 
     private static final String SPACE = " ";
     private static final String ASSIGN = ":=";
@@ -28,12 +31,25 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     private final String R_BRACKET = "}\n";
 
     private final SymbolTable table;
+    private final ExprTypes exprTypes;
+
+    private final TempGenerator temps;
 
     private final OllirExprGeneratorVisitor exprVisitor;
 
     public OllirGeneratorVisitor(SymbolTable table) {
+        this(table, new ExprTypes(table));
+    }
+
+    /**
+     * @param table
+     * @param exprTypes the types of the expressions found by the analysis
+     */
+    public OllirGeneratorVisitor(SymbolTable table, ExprTypes exprTypes) {
         this.table = table;
-        exprVisitor = new OllirExprGeneratorVisitor(table);
+        this.exprTypes = exprTypes;
+        temps = new TempGenerator();
+        exprVisitor = new OllirExprGeneratorVisitor(table, exprTypes, temps);
     }
 
     @Override
@@ -43,14 +59,12 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         addVisit(EXTENDS_DECL, this::visitExtendsDecl);
         addVisit(METHOD_DECL, this::visitMethodDecl);
         addVisit(PARAM, this::visitParam);
-        addVisit(RETURN_STMT, this::visitReturn);
         addVisit(ASSIGN_STMT, this::visitAssignStmt);
-        addVisit(IMPORT_DECLARATION, this::visitImportDeclaration);
+        addVisit(IMPORT_DECL, this::visitImportDeclaration);
         addVisit(VAR_DECL, this::visitVarDecl);
         addVisit(BINARY_EXPR, this::visitBinaryExpr);
         addVisit(VAR_REF_EXPR, this::visitVarRefExpr);
         addVisit(SIMPLE_EXPR_STMT, this::visitSimpleExpr);
-        addVisit(TYPE, this::defaultVisit);
         addVisit(UNARY_EXPR, this::defaultVisit);
         addVisit(INTEGER_LITERAL, this::defaultVisit);
         setDefaultVisit(this::defaultVisit);
@@ -60,14 +74,13 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     private void helperMethod(JmmNode node, StringBuilder code, int i) {
         var child = node.getJmmChild(i);
 
-        if (child.getKind().equals("MethodCall")) {
+        var kind = Kind.of(child);
+
+        if (kind == METHOD_CALL) {
             var childCode = exprVisitor.visit(child);
             code.append(childCode.getComputation());
             code.append(childCode.getCode());
-        } else if (child.getKind().equals("VarDecl")) {
-            var childCode = visit(child);
-            code.append(childCode);
-        } else if (child.getKind().equals("ReturnStmt")) {
+        } else if (kind == VAR_DECL) {
             var childCode = visit(child);
             code.append(childCode);
         } else {
@@ -107,16 +120,15 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
             .orElseThrow();
 
     // Check if the variable is a parameter of the current method
-    for (Symbol param : table.getParameters(currentMethod)) {
-        if (param.getName().equals(varName)) {
-            // If it is, prepend "$1." to the variable name
-            varName = "$1." + varName;
-            break;
-        }
+    var indexedTable = JmmSymbolTable.of(table);
+    var identifiers = indexedTable.getIdentifiers();
+    if (indexedTable.getParameter(identifiers.getId(currentMethod), identifiers.getId(varName)) != null) {
+        // If it is, prepend "$1." to the variable name
+        varName = "$1." + varName;
     }
 
     // Get type from symbol table
-    Type type = TypeUtils.getExprType(node, table);
+    Type type = TypeUtils.getExprType(node, exprTypes);
 
     // Convert the type to OLLIR format
     String ollirType = OptUtils.toOllirType(type);
@@ -128,20 +140,54 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
     //visit method for binary expressions
     private String visitBinaryExpr(JmmNode node, Void unused) {
-        // Get the left and right children of the binary expression
-        JmmNode leftChild = node.getJmmChild(0);
-        JmmNode rightChild = node.getJmmChild(1);
+        // operands that are binary expressions too are kept in an explicit stack, long chains would overflow the call
+        // stack, but are visited in the same order as with recursion
+        var tmps = new IdentityHashMap<JmmNode, String>();
+        var codes = new IdentityHashMap<JmmNode, String>();
+        var stack = new ArrayDeque<JmmNode>();
+        stack.push(node);
+
+        while (!stack.isEmpty()) {
+            var current = stack.peek();
+
+            // get the current tmp from OptUtils, before visiting the children
+            tmps.computeIfAbsent(current, binaryExpr -> temps.getTemp());
+
+            // Visit the left and right children, in order
+            JmmNode pending = null;
+            for (var child : current.getChildren()) {
+                if (codes.containsKey(child)) {
+                    continue;
+                }
+
+                if (BINARY_EXPR.check(child)) {
+                    pending = child;
+                    break;
+                }
+
+                codes.put(child, visit(child));
+            }
+
+            if (pending != null) {
+                stack.push(pending);
+                continue;
+            }
+
+            stack.pop();
+            codes.put(current, binaryExprCode(current, tmps.get(current), codes.get(current.getJmmChild(0)),
+                    codes.get(current.getJmmChild(1))));
+        }
+
+        return codes.get(node);
+    }
+
+    private String binaryExprCode(JmmNode node, String tmp, String leftChildCode, String rightChildCode) {
         // Get the operator of the binary expression
         String operator = node.get("op");
-        // get the current tmp from OptUtils
-        String tmp = getTemp();
         // get type from symbol table
-        Type type = TypeUtils.getExprType(node, table);
+        Type type = TypeUtils.getExprType(node, exprTypes);
         // Convert the type to OLLIR format
         String ollirType = OptUtils.toOllirType(type);
-        // Visit the left and right children
-        String leftChildCode = visit(leftChild);
-        String rightChildCode = visit(rightChild);
         // Generate OLLIR code
         String ollirCode = tmp + ollirType + " := " + ollirType + " " + leftChildCode + " " + operator + ollirType + " " + rightChildCode + ";";
         return ollirCode;
@@ -160,7 +206,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     private String visitVarDecl(JmmNode node, Void unused) {
         // Check the parent of the VAR_DECL node
         JmmNode parent = node.getParent();
-        if (parent.getKind().equals("ClassDecl")) {
+        if (CLASS_DECL.check(parent)) {
             String varName = node.get("name");
             // Get the type from the first child node's "declaration" attribute
             // Convert the type to OLLIR format
@@ -174,48 +220,22 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
     private String visitAssignStmt(JmmNode node, Void unused) {
         var leftNode = node.getJmmChild(0);
-        Type type = TypeUtils.getExprType(leftNode, table);
+        Type type = TypeUtils.getExprType(leftNode, exprTypes);
         String ollirType = OptUtils.toOllirType(type);
         var rightNode = node.getJmmChild(1);
         var lhs = exprVisitor.visit(leftNode);
         var rhs = exprVisitor.visit(rightNode);
         String end = END_STMT;
-        if (rightNode.getKind().equals("MethodCall")) {
+        if (METHOD_CALL.check(rightNode)) {
             end = "";
         }
         String code = rhs.getComputation() + lhs.getCode() + ASSIGN + ollirType + SPACE + rhs.getCode() + end;
-        if (rightNode.getKind().equals("NewObject")) {
+        if (NEW_OBJECT.check(rightNode)) {
             code = code + "invokespecial(" + leftNode.get("name") + "." + rightNode.get("name") + ", \"<init>\").V" + END_STMT;
         }
         return code;
     }
 
-    private String visitReturn(JmmNode node, Void unused) {
-        String methodName = node
-                .getAncestor(METHOD_DECL)
-                .map(method -> method.get("name"))
-                .orElseThrow();
-        Type retType = table.getReturnType(methodName);
-
-        StringBuilder code = new StringBuilder();
-
-        var expr = OllirExprResult.EMPTY;
-
-        if (node.getNumChildren() > 0) {
-            expr = exprVisitor.visit(node.getJmmChild(0));
-        }
-
-        code.append(expr.getComputation());
-        code.append("ret");
-        code.append(OptUtils.toOllirType(retType));
-        code.append(SPACE);
-
-        code.append(expr.getCode());
-
-        code.append(END_STMT);
-        return code.toString();
-    }
-
     private String visitParam(JmmNode node, Void unused) {
         var typeCode = OptUtils.toOllirType(node.getJmmChild(0));
         var id = node.get("name");
@@ -255,7 +275,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         code.append("(");
         var afterParam = 1;
         for (JmmNode child : node.getChildren()) {
-            if (child.getKind().equals(Kind.PARAM.toString())) { // Check if the child node is a parameter
+            if (PARAM.check(child)) { // Check if the child node is a parameter
                 var paramCode = visit(child);
                 afterParam++;
                 if (!code.toString().endsWith("(")) { // If it's not the first parameter, append a comma before it
@@ -283,19 +303,20 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         String returnValue;
 
         // Check if the last child is a VarRefExpr or IntegerLiteral
-        if (lastChild.getKind().equals("VarRefExpr")) {
+        var lastKind = Kind.of(lastChild);
+        if (lastKind == VAR_REF_EXPR) {
             // A variable is being returned
             returnValue = lastChild.get("name");
-        } else if (lastChild.getKind().equals("IntegerLiteral")) {
+        } else if (lastKind == INTEGER_LITERAL) {
             // A literal is being returned
             returnValue = lastChild.get("value");
-        } else if (lastChild.getKind().equals("BinaryExpr")) {
+        } else if (lastKind == BINARY_EXPR) {
             // return the result of the binary expression, current tmp
             code.append(visit(lastChild));
-            returnValue = OptUtils.getCurrentTemp();
-        } else if (lastChild.getKind().equals("TrueLiteral")) {
+            returnValue = temps.getCurrentTemp();
+        } else if (lastKind == TRUE_LITERAL) {
             returnValue = "1";
-        } else if (lastChild.getKind().equals("FalseLiteral")) {
+        } else if (lastKind == FALSE_LITERAL) {
             returnValue = "0";
         } else {
             throw new IllegalArgumentException("Unsupported return type: " + lastChild.getKind());
@@ -363,8 +384,8 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         StringBuilder code = new StringBuilder();
 
         node.getChildren().stream().map(this::visit).forEach(code::append);
-        
-        System.out.println(code);
+
+        Log.debug("OLLIR code:\n{}", code);
         return code.toString();
     }
 
@@ -5,48 +5,29 @@ import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.AJmmNode;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 
 import java.util.List;
 import java.util.Optional;
 
-import static pt.up.fe.comp2024.ast.Kind.TYPE;
+import static pt.up.fe.comp2024.ast.Kind.*;
 
 public class OptUtils {
-    private static int tempNumber = 1;
-
-    public static String getTemp() {
-
-        return getTemp("t");
-    }
-
-    public static String getTemp(String prefix) {
-
-        return prefix + getNextTempNum();
-    }
-
-    public static String getCurrentTemp() {
-
-        return "tmp" + (getNextTempNum() - 1);
-    }
-
-    public static int getNextTempNum() {
-
-        tempNumber += 1;
-        return tempNumber;
-    }
 
     public static boolean isInstance(String target, SymbolTable table) {
         return target.equals("this") || target.equals("VarRefExpr");
     }
 
     public static boolean needsTemp(JmmNode node) {
-        return node.getKind().equals("BinaryExpr") || node.getKind().equals("UnaryExpr") || node.getKind().equals("MethodCall");
+        return Kind.check(node, BINARY_EXPR, UNARY_EXPR, METHOD_CALL);
     }
 
     public static boolean isClass(String target, SymbolTable table) {
-        return table.getImports().contains("[" + target + "]") || target.equals(table.getClassName());
+        var indexedTable = JmmSymbolTable.of(table);
+        return indexedTable.hasImport(indexedTable.getIdentifiers().getId(target)) || target.equals(table.getClassName());
     }
 
     public static String toOllirType(JmmNode typeNode) {
@@ -54,7 +35,7 @@ public class OptUtils {
         //TYPE.checkOrThrow(typeNode);
 
         String typeName = typeNode.get("declaration");
-        if (typeNode.getKind().equals("Array")){
+        if (ARRAY_TYPE.check(typeNode)){
             return ".array" + toOllirType(typeName);
         }
         return toOllirType(typeName);
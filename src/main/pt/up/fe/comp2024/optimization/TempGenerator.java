@@ -0,0 +1,37 @@
+package pt.up.fe.comp2024.optimization;
+
+/**
+ * Hands out names for OLLIR temporaries.
+ * <p>
+ * One TempGenerator per compilation unit, shared by the statement and expression visitors, so that several units can
+ * be translated to OLLIR at the same time without sharing a counter.
+ */
+public class TempGenerator {
+
+    private int tempNumber;
+
+    public TempGenerator() {
+        this.tempNumber = 1;
+    }
+
+    public String getTemp() {
+
+        return getTemp("t");
+    }
+
+    public String getTemp(String prefix) {
+
+        return prefix + getNextTempNum();
+    }
+
+    public String getCurrentTemp() {
+
+        return "tmp" + (getNextTempNum() - 1);
+    }
+
+    public int getNextTempNum() {
+
+        tempNumber += 1;
+        return tempNumber;
+    }
+}
@@ -1,8 +1,8 @@
 package pt.up.fe.comp2024.optimization_jasmin;
 
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
-import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.KindVisitor;
 import pt.up.fe.specs.util.SpecsCheck;
 import pt.up.fe.specs.util.utilities.StringLines;
 
@@ -10,7 +10,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-public class JasminGeneratorVisitor extends AJmmVisitor<Void, String> {
+public class JasminGeneratorVisitor extends KindVisitor<Void, String> {
 
     private static final String NL = "\n";
     private static final String TAB = "   ";
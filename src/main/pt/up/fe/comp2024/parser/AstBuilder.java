@@ -0,0 +1,387 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+import pt.up.fe.comp2024.JavammParser;
+import pt.up.fe.comp2024.ast.AstNode;
+import pt.up.fe.comp2024.ast.CompactAst;
+import pt.up.fe.comp2024.ast.Identifiers;
+import pt.up.fe.comp2024.ast.RootNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the AST from the parse tree of {@link JavammParser}, one grammar alternative at a time.
+ * <p>
+ * Produces the same nodes, hierarchies and positions as the generic conversion of the library, which reads the fields
+ * of each parse tree node by reflection, but only sets the attributes that the compiler reads. The parse tree is
+ * taken apart while building, so the parts already converted can be collected before the whole AST is done.
+ * <p>
+ * The identifiers are numbered as they are built, and kept with the root (see {@link Identifiers#of}).
+ */
+public class AstBuilder {
+
+    private static final List<String> PROGRAM = List.of("Program");
+    private static final List<String> IMPORT_DECL = List.of("ImportDecl", "ImportDeclaration");
+    private static final List<String> CLASS_DECL = List.of("ClassDecl");
+    private static final List<String> EXTENDS_DECL = List.of("ExtendsDecl");
+    private static final List<String> VAR_DECL = List.of("VarDecl");
+    private static final List<String> METHOD_DECL = List.of("MethodDecl");
+    private static final List<String> PARAM = List.of("Param");
+
+    private static final List<String> ARRAY = List.of("Array", "Type");
+    private static final List<String> VARARGS = List.of("Varargs", "Type");
+    private static final List<String> BOOL = List.of("Bool", "Type");
+    private static final List<String> INT = List.of("Int", "Type");
+    private static final List<String> STRING = List.of("String", "Type");
+    private static final List<String> ID = List.of("Id", "Type");
+
+    private static final List<String> BLOCK_STMT = List.of("BlockStmt", "Stmt");
+    private static final List<String> IF_ELSE_STMT = List.of("IfElseStmt", "Stmt");
+    private static final List<String> WHILE_STMT = List.of("WhileStmt", "Stmt");
+    private static final List<String> SIMPLE_EXPR_STMT = List.of("SimpleExprStmt", "Stmt");
+    private static final List<String> ASSIGN_STMT = List.of("AssignStmt", "Stmt");
+    private static final List<String> ARRAY_ASSIGN_STMT = List.of("ArrayAssignStmt", "Stmt");
+
+    private static final List<String> UNARY_EXPR = List.of("UnaryExpr", "Expr");
+    private static final List<String> METHOD_CALL = List.of("MethodCall", "Expr");
+    private static final List<String> BINARY_EXPR = List.of("BinaryExpr", "Expr");
+    private static final List<String> ARRAY_INIT_EXPR = List.of("ArrayInitExpr", "Expr");
+    private static final List<String> BRACKET_EXPR = List.of("BracketExpr", "Expr");
+    private static final List<String> LENGTH_EXPR = List.of("LengthExpr", "Expr");
+    private static final List<String> NEW_BRACKET_EXPR = List.of("NewBracketExpr", "Expr");
+    private static final List<String> NEW_OBJECT = List.of("NewObject", "Expr");
+    private static final List<String> PARENT_EXPR = List.of("ParentExpr", "Expr");
+    private static final List<String> TRUE_LITERAL = List.of("TrueLiteral", "Expr");
+    private static final List<String> FALSE_LITERAL = List.of("FalseLiteral", "Expr");
+    private static final List<String> THIS_LITERAL = List.of("ThisLiteral", "Expr");
+    private static final List<String> INTEGER_LITERAL = List.of("IntegerLiteral", "Expr");
+    private static final List<String> VAR_REF_EXPR = List.of("VarRefExpr", "Expr");
+
+    private final Nodes nodes;
+    private final Identifiers identifiers;
+
+    private AstBuilder(Nodes nodes, Identifiers identifiers) {
+        this.nodes = nodes;
+        this.identifiers = identifiers;
+    }
+
+    /**
+     * Builds the AST of the given parse tree.
+     *
+     * @param tree    the result of a rule of {@link JavammParser}
+     * @param compact if true, builds a {@link CompactAst} instead of a tree of {@link AstNode}
+     * @return the root of the AST
+     */
+    public static JmmNode build(ParserRuleContext tree, boolean compact) {
+        var identifiers = new Identifiers();
+        var nodes = compact ? new CompactNodes(identifiers) : new ImplNodes(identifiers);
+        new AstBuilder(nodes, identifiers).build(tree);
+
+        return nodes.getRoot();
+    }
+
+    private void build(ParserRuleContext tree) {
+        // parse tree nodes still to build and the AST nodes of their parents, in an explicit stack instead of the call
+        // stack, since long expressions like a + b + c + ... give parse trees as deep as they are long
+        var contexts = new ArrayDeque<ParserRuleContext>();
+        var parents = new ArrayDeque<Integer>();
+        contexts.push(tree);
+        parents.push(-1);
+
+        while (!contexts.isEmpty()) {
+            var ctx = contexts.pop();
+            var node = build(ctx, parents.pop());
+
+            // the parse tree of the children is not needed after they are built
+            var children = ctx.children;
+            ctx.children = null;
+            if (children == null) {
+                continue;
+            }
+
+            // pushed from the last, so they are built in order
+            for (int i = children.size() - 1; i >= 0; i--) {
+                ParseTree child = children.get(i);
+
+                // tokens are not nodes of the AST
+                if (child instanceof ParserRuleContext childCtx) {
+                    contexts.push(childCtx);
+                    parents.push(node);
+                }
+            }
+        }
+    }
+
+    private int build(ParserRuleContext ctx, int parent) {
+        return switch (ctx.getRuleIndex()) {
+            case JavammParser.RULE_program -> add(parent, ctx, PROGRAM);
+            case JavammParser.RULE_importDeclaration -> importDecl((JavammParser.ImportDeclContext) ctx, parent);
+            case JavammParser.RULE_classDecl -> named(parent, ctx, CLASS_DECL,
+                    ((JavammParser.ClassDeclContext) ctx).name);
+            case JavammParser.RULE_extendsDecl -> named(parent, ctx, EXTENDS_DECL,
+                    ((JavammParser.ExtendsDeclContext) ctx).name);
+            case JavammParser.RULE_varDecl -> named(parent, ctx, VAR_DECL, ((JavammParser.VarDeclContext) ctx).name);
+            case JavammParser.RULE_type -> type(ctx, parent);
+            case JavammParser.RULE_methodDecl -> methodDecl((JavammParser.MethodDeclContext) ctx, parent);
+            case JavammParser.RULE_param -> named(parent, ctx, PARAM, ((JavammParser.ParamContext) ctx).name);
+            case JavammParser.RULE_stmt -> stmt(ctx, parent);
+            case JavammParser.RULE_expr -> expr(ctx, parent);
+            default -> throw new RuntimeException("Unexpected parse tree node of rule "
+                    + JavammParser.ruleNames[ctx.getRuleIndex()]);
+        };
+    }
+
+    private int importDecl(JavammParser.ImportDeclContext ctx, int parent) {
+        var node = add(parent, ctx, IMPORT_DECL);
+
+        var values = new ArrayList<String>(ctx.value.size());
+        for (var value : ctx.value) {
+            values.add(intern(value.getText()));
+        }
+
+        putIdentifier(node, "ID", ctx.ID);
+        nodes.put(node, "value", values);
+
+        return node;
+    }
+
+    private int type(ParserRuleContext ctx, int parent) {
+        List<String> hierarchy;
+        Token declaration;
+
+        if (ctx instanceof JavammParser.IntContext type) {
+            hierarchy = INT;
+            declaration = type.declaration;
+        } else if (ctx instanceof JavammParser.IdContext type) {
+            hierarchy = ID;
+            declaration = type.declaration;
+        } else if (ctx instanceof JavammParser.BoolContext type) {
+            hierarchy = BOOL;
+            declaration = type.declaration;
+        } else if (ctx instanceof JavammParser.ArrayContext type) {
+            hierarchy = ARRAY;
+            declaration = type.declaration;
+        } else if (ctx instanceof JavammParser.StringContext type) {
+            hierarchy = STRING;
+            declaration = type.declaration;
+        } else if (ctx instanceof JavammParser.VarargsContext type) {
+            hierarchy = VARARGS;
+            declaration = type.declaration;
+        } else {
+            throw unexpected(ctx);
+        }
+
+        var node = add(parent, ctx, hierarchy);
+        putIdentifier(node, "declaration", declaration);
+
+        return node;
+    }
+
+    private int methodDecl(JavammParser.MethodDeclContext ctx, int parent) {
+        var node = named(parent, ctx, METHOD_DECL, ctx.name);
+        nodes.put(node, "isPublic", ctx.isPublic);
+
+        return node;
+    }
+
+    private int stmt(ParserRuleContext ctx, int parent) {
+        List<String> hierarchy;
+
+        if (ctx instanceof JavammParser.AssignStmtContext) {
+            hierarchy = ASSIGN_STMT;
+        } else if (ctx instanceof JavammParser.SimpleExprStmtContext) {
+            hierarchy = SIMPLE_EXPR_STMT;
+        } else if (ctx instanceof JavammParser.BlockStmtContext) {
+            hierarchy = BLOCK_STMT;
+        } else if (ctx instanceof JavammParser.IfElseStmtContext) {
+            hierarchy = IF_ELSE_STMT;
+        } else if (ctx instanceof JavammParser.WhileStmtContext) {
+            hierarchy = WHILE_STMT;
+        } else if (ctx instanceof JavammParser.ArrayAssignStmtContext) {
+            hierarchy = ARRAY_ASSIGN_STMT;
+        } else {
+            throw unexpected(ctx);
+        }
+
+        return add(parent, ctx, hierarchy);
+    }
+
+    private int expr(ParserRuleContext ctx, int parent) {
+        // the most frequent alternatives first
+        if (ctx instanceof JavammParser.VarRefExprContext expr) {
+            return named(parent, ctx, VAR_REF_EXPR, expr.name);
+        }
+        if (ctx instanceof JavammParser.IntegerLiteralContext expr) {
+            var node = add(parent, ctx, INTEGER_LITERAL);
+            putToken(node, "value", expr.value);
+            return node;
+        }
+        if (ctx instanceof JavammParser.BinaryExprContext expr) {
+            var node = add(parent, ctx, BINARY_EXPR);
+            putToken(node, "op", expr.op);
+            return node;
+        }
+        if (ctx instanceof JavammParser.MethodCallContext expr) {
+            var node = add(parent, ctx, METHOD_CALL);
+            putIdentifier(node, "method", expr.method);
+            return node;
+        }
+        if (ctx instanceof JavammParser.UnaryExprContext expr) {
+            var node = add(parent, ctx, UNARY_EXPR);
+            putToken(node, "op", expr.op);
+            return node;
+        }
+        if (ctx instanceof JavammParser.NewObjectContext expr) {
+            return named(parent, ctx, NEW_OBJECT, expr.name);
+        }
+        if (ctx instanceof JavammParser.BracketExprContext) {
+            return add(parent, ctx, BRACKET_EXPR);
+        }
+        if (ctx instanceof JavammParser.ThisLiteralContext) {
+            return add(parent, ctx, THIS_LITERAL);
+        }
+        if (ctx instanceof JavammParser.TrueLiteralContext) {
+            return add(parent, ctx, TRUE_LITERAL);
+        }
+        if (ctx instanceof JavammParser.FalseLiteralContext) {
+            return add(parent, ctx, FALSE_LITERAL);
+        }
+        if (ctx instanceof JavammParser.ParentExprContext) {
+            return add(parent, ctx, PARENT_EXPR);
+        }
+        if (ctx instanceof JavammParser.LengthExprContext) {
+            return add(parent, ctx, LENGTH_EXPR);
+        }
+        if (ctx instanceof JavammParser.NewBracketExprContext) {
+            return add(parent, ctx, NEW_BRACKET_EXPR);
+        }
+        if (ctx instanceof JavammParser.ArrayInitExprContext) {
+            return add(parent, ctx, ARRAY_INIT_EXPR);
+        }
+
+        throw unexpected(ctx);
+    }
+
+    private int named(int parent, ParserRuleContext ctx, List<String> hierarchy, Token name) {
+        var node = add(parent, ctx, hierarchy);
+        putIdentifier(node, "name", name);
+
+        return node;
+    }
+
+    private int add(int parent, ParserRuleContext ctx, List<String> hierarchy) {
+        var start = ctx.getStart();
+        var stop = ctx.getStop() != null ? ctx.getStop() : start;
+
+        return nodes.add(parent, hierarchy, start, stop);
+    }
+
+    private void putToken(int node, String attribute, Token token) {
+        // same as the generic conversion, labels that did not match are not attributes
+        if (token != null) {
+            nodes.put(node, attribute, token.getText());
+        }
+    }
+
+    private void putIdentifier(int node, String attribute, Token token) {
+        if (token != null) {
+            nodes.put(node, attribute, intern(token.getText()));
+        }
+    }
+
+    /**
+     * @return the String shared by all the uses of the given identifier
+     */
+    private String intern(String name) {
+        return identifiers.getName(identifiers.intern(name));
+    }
+
+    private static RuntimeException unexpected(ParserRuleContext ctx) {
+        return new RuntimeException("Unexpected alternative " + ctx.getClass().getSimpleName() + " of rule "
+                + JavammParser.ruleNames[ctx.getRuleIndex()]);
+    }
+
+    /**
+     * The AST being built, with nodes referred to by the order they were added in.
+     */
+    private interface Nodes {
+
+        int add(int parent, List<String> hierarchy, Token start, Token stop);
+
+        void put(int node, String attribute, Object value);
+
+        JmmNode getRoot();
+    }
+
+    private static class ImplNodes implements Nodes {
+
+        private final List<AstNode> nodes = new ArrayList<>();
+        private final Identifiers identifiers;
+
+        private ImplNodes(Identifiers identifiers) {
+            this.identifiers = identifiers;
+        }
+
+        @Override
+        public int add(int parent, List<String> hierarchy, Token start, Token stop) {
+            var node = parent < 0 ? new RootNode(hierarchy.get(0), identifiers) : new AstNode(hierarchy.get(0));
+            node.setHierarchy(hierarchy);
+
+            node.put(NodePosition.LINE_START.getString(), Integer.toString(start.getLine()));
+            node.put(NodePosition.COL_START.getString(), Integer.toString(start.getCharPositionInLine()));
+            node.put(NodePosition.LINE_END.getString(), Integer.toString(stop.getLine()));
+            node.put(NodePosition.COL_END.getString(), Integer.toString(stop.getCharPositionInLine()));
+
+            if (parent >= 0) {
+                nodes.get(parent).add(node);
+            }
+            nodes.add(node);
+
+            return nodes.size() - 1;
+        }
+
+        @Override
+        public void put(int node, String attribute, Object value) {
+            nodes.get(node).putObject(attribute, value);
+        }
+
+        @Override
+        public JmmNode getRoot() {
+            return nodes.get(0);
+        }
+    }
+
+    private static class CompactNodes implements Nodes {
+
+        private final CompactAst.Builder builder = new CompactAst.Builder();
+
+        private CompactNodes(Identifiers identifiers) {
+            builder.setIdentifiers(identifiers);
+        }
+
+        @Override
+        public int add(int parent, List<String> hierarchy, Token start, Token stop) {
+            var node = builder.addNode(parent, hierarchy.get(0), hierarchy);
+            builder.setPosition(node, start.getLine(), start.getCharPositionInLine(), stop.getLine(),
+                    stop.getCharPositionInLine());
+
+            return node;
+        }
+
+        @Override
+        public void put(int node, String attribute, Object value) {
+            builder.put(node, attribute, value);
+        }
+
+        @Override
+        public JmmNode getRoot() {
+            return builder.build().getRoot();
+        }
+    }
+}
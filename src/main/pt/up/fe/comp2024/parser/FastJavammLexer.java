@@ -0,0 +1,219 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+import pt.up.fe.comp2024.JavammLexer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The generated lexer, with identifiers, integers, whitespace and comments scanned by hand.
+ * <p>
+ * These are most of the characters of a program, and for them the generated lexer walks its DFA one character at a
+ * time, or worse, the ATN for the non-greedy loops of the comments. Here they are scanned with plain loops over the
+ * input, and the generated lexer is only used for the remaining tokens. The tokens are the same: same types, text and
+ * positions, as checked by FastJavammLexerTest.
+ */
+public class FastJavammLexer extends JavammLexer {
+
+    // keywords and the other literal tokens that look like identifiers, e.g. 'int' or 'length'
+    private static final Map<String, Integer> KEYWORDS = keywords();
+    private static final int MAX_KEYWORD_LENGTH = KEYWORDS.keySet().stream().mapToInt(String::length).max().orElse(0);
+
+    // only inputs that can seek anywhere, which are all the inputs of the compiler
+    private boolean fastPath;
+
+    public FastJavammLexer(CharStream input) {
+        super(input);
+        this.fastPath = input instanceof ANTLRInputStream;
+    }
+
+    @Override
+    public void setInputStream(IntStream input) {
+        super.setInputStream(input);
+        this.fastPath = input instanceof ANTLRInputStream;
+    }
+
+    @Override
+    public Token nextToken() {
+        if (!fastPath || _hitEOF) {
+            return super.nextToken();
+        }
+
+        skipIgnored();
+
+        int first = _input.LA(1);
+
+        if (isIdStart(first)) {
+            int length = 1;
+            while (isIdPart(_input.LA(length + 1))) {
+                length++;
+            }
+
+            // identifiers are never keywords when longer than all keywords
+            if (length > MAX_KEYWORD_LENGTH) {
+                return emitToken(ID, length, null);
+            }
+
+            int start = _input.index();
+            var text = _input.getText(Interval.of(start, start + length - 1));
+            return emitToken(KEYWORDS.getOrDefault(text, ID), length, text);
+        }
+
+        if (first == '0') {
+            return emitToken(INTEGER, 1, null);
+        }
+
+        if (first >= '1' && first <= '9') {
+            int length = 1;
+            while (isDigit(_input.LA(length + 1))) {
+                length++;
+            }
+
+            return emitToken(INTEGER, length, null);
+        }
+
+        return super.nextToken();
+    }
+
+    /**
+     * Skips whitespace and comments. Comments that are not closed are left to the generated lexer, which does not
+     * take them as comments either.
+     */
+    private void skipIgnored() {
+        var interpreter = getInterpreter();
+        int line = interpreter.getLine();
+        int column = interpreter.getCharPositionInLine();
+
+        // offset of the current character, for LA
+        int offset = 1;
+
+        while (true) {
+            int c = _input.LA(offset);
+
+            if (c == ' ' || c == '\t' || c == '\r' || c == '\f') {
+                column++;
+                offset++;
+                continue;
+            }
+
+            if (c == '\n') {
+                line++;
+                column = 0;
+                offset++;
+                continue;
+            }
+
+            if (c != '/') {
+                break;
+            }
+
+            int next = _input.LA(offset + 1);
+
+            if (next == '/') {
+                // until the end of the line, including the '\n'
+                int end = offset + 2;
+                while (_input.LA(end) != '\n' && _input.LA(end) != IntStream.EOF) {
+                    end++;
+                }
+
+                if (_input.LA(end) == IntStream.EOF) {
+                    break;
+                }
+
+                line++;
+                column = 0;
+                offset = end + 1;
+                continue;
+            }
+
+            if (next == '*') {
+                // until the first '*/', which may not overlap the '/*'
+                int end = offset + 2;
+                int endLine = line;
+                int endColumn = column + 2;
+                while (_input.LA(end) != IntStream.EOF && !(_input.LA(end) == '*' && _input.LA(end + 1) == '/')) {
+                    if (_input.LA(end) == '\n') {
+                        endLine++;
+                        endColumn = 0;
+                    } else {
+                        endColumn++;
+                    }
+                    end++;
+                }
+
+                if (_input.LA(end) == IntStream.EOF) {
+                    break;
+                }
+
+                line = endLine;
+                column = endColumn + 2;
+                offset = end + 2;
+                continue;
+            }
+
+            break;
+        }
+
+        if (offset > 1) {
+            _input.seek(_input.index() + offset - 1);
+            interpreter.setLine(line);
+            interpreter.setCharPositionInLine(column);
+        }
+    }
+
+    /**
+     * Emits a token of the given type for the next characters, which cannot contain new lines.
+     */
+    private Token emitToken(int type, int length, String text) {
+        var interpreter = getInterpreter();
+
+        _token = null;
+        _channel = Token.DEFAULT_CHANNEL;
+        _tokenStartCharIndex = _input.index();
+        _tokenStartLine = interpreter.getLine();
+        _tokenStartCharPositionInLine = interpreter.getCharPositionInLine();
+        _type = type;
+        _text = text;
+
+        _input.seek(_tokenStartCharIndex + length);
+        interpreter.setCharPositionInLine(_tokenStartCharPositionInLine + length);
+
+        return emit();
+    }
+
+    private static boolean isIdStart(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$';
+    }
+
+    private static boolean isIdPart(int c) {
+        return isIdStart(c) || isDigit(c);
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static Map<String, Integer> keywords() {
+        var keywords = new HashMap<String, Integer>();
+
+        for (int type = 1; type <= VOCABULARY.getMaxTokenType(); type++) {
+            var literal = VOCABULARY.getLiteralName(type);
+            if (literal == null) {
+                continue;
+            }
+
+            // literal names are quoted, e.g. 'int'
+            var text = literal.substring(1, literal.length() - 1);
+            if (!text.isEmpty() && isIdStart(text.charAt(0)) && text.chars().allMatch(FastJavammLexer::isIdPart)) {
+                keywords.put(text, type);
+            }
+        }
+
+        return keywords;
+    }
+}
@@ -1,15 +1,32 @@
 package pt.up.fe.comp2024.parser;
 
 import org.antlr.v4.runtime.ANTLRInputStream;
-import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import pt.up.fe.comp.jmm.ast.antlr.AntlrParser;
+import pt.up.fe.comp.jmm.ast.antlr.JmmErrorListener;
 import pt.up.fe.comp.jmm.parser.JmmParser;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.JavammLexer;
+import pt.up.fe.comp2024.JavammParser;
+import pt.up.fe.comp2024.metrics.CompilerMetrics;
+import pt.up.fe.comp2024.utils.ReportUtils;
+import pt.up.fe.specs.util.SpecsSystem;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Copyright 2022 SPeCS.
@@ -26,6 +43,9 @@ import java.util.Map;
 
 public class JmmParserImpl implements JmmParser {
 
+    private static final AtomicLong PARSES = new AtomicLong();
+    private static final AtomicLong LL_FALLBACKS = new AtomicLong();
+
     @Override
     public String getDefaultRule() {
         return "program";
@@ -33,24 +53,140 @@ public class JmmParserImpl implements JmmParser {
 
     @Override
     public JmmParserResult parse(String jmmCode, String startingRule, Map<String, String> config) {
+        // Convert code string into a character stream
+        return parse(new ANTLRInputStream(jmmCode), startingRule, config);
+    }
 
+    /**
+     * Parses the given file, mapping it into the lexer instead of reading it into a String first.
+     *
+     * @param file
+     * @param config
+     * @return
+     */
+    public JmmParserResult parse(File file, Map<String, String> config) {
+        ANTLRInputStream input;
         try {
-            // Convert code string into a character stream
-            var input = new ANTLRInputStream(jmmCode);
-            // Transform characters into tokens using the lexer
-            var lex = new pt.up.fe.comp2024.JavammLexer(input);
-            // Wrap lexer around a token stream
-            var tokens = new CommonTokenStream(lex);
-            // Transforms tokens into a parse tree
-            var parser = new pt.up.fe.comp2024.JavammParser(tokens);
+            input = CompilerMetrics.measure("read", () -> {
+                try {
+                    return SourceReader.read(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            return JmmParserResult.newError(Report.newError(Stage.SYNTATIC, -1, -1,
+                    "Could not read input file '" + file + "'", e.getCause()), config);
+        }
+
+        return parse(input, getDefaultRule(), config);
+    }
+
+    /**
+     * Parses in two stages: first with SLL prediction, which is faster but bails out at the first syntax error, and
+     * only if that fails again with full LL prediction and error reporting. SLL only fails on inputs that are
+     * ambiguous for it, or that have syntax errors, so the result is the same as parsing with LL directly.
+     */
+    private JmmParserResult parse(CharStream input, String startingRule, Map<String, String> config) {
+        return parse(input, 1, 0, startingRule, config);
+    }
 
+    /**
+     * Parses an input that is part of a file, e.g. the body of a method of an outline, so that the positions of the
+     * tree and of the reports are the positions in the file.
+     *
+     * @param input
+     * @param line         the line of the file where the input starts
+     * @param column       the column of the file where the input starts
+     * @param startingRule
+     * @param config
+     * @return
+     */
+    JmmParserResult parse(CharStream input, int line, int column, String startingRule, Map<String, String> config) {
 
-            // Convert ANTLR CST to JmmNode AST
-            return AntlrParser.parse(lex, parser, startingRule, config);
+        try {
+            PARSES.incrementAndGet();
+
+            try {
+                return CompilerMetrics.measure("sll",
+                        () -> parse(input, line, column, startingRule, config, PredictionMode.SLL));
+            } catch (RuntimeException e) {
+                if (!isParseCancellation(e)) {
+                    throw e;
+                }
+            }
+
+            LL_FALLBACKS.incrementAndGet();
+            CompilerMetrics.count("llFallback");
+
+            // lex again from the start, so that lexical errors are reported by the LL stage too
+            input.seek(0);
+            return CompilerMetrics.measure("ll",
+                    () -> parse(input, line, column, startingRule, config, PredictionMode.LL));
 
         } catch (Exception e) {
             // There was an uncaught exception during parsing, create an error JmmParserResult without root node
             return JmmParserResult.newError(Report.newError(Stage.SYNTATIC, -1, -1, "Exception during parsing", e), config);
         }
     }
+
+    private JmmParserResult parse(CharStream input, int line, int column, String startingRule,
+                                  Map<String, String> config, PredictionMode predictionMode) {
+        // Reuse the lexer and parser of this thread, reset to the given input
+        return ParserPool.parse(input, line, column, predictionMode, CompilerConfig.isUnbufferedTokens(config),
+                (lex, parser) -> parse(lex, parser, startingRule, config));
+    }
+
+    /**
+     * Same as {@link AntlrParser#parse(Lexer, Parser, String, Map)}, but builds the AST with {@link AstBuilder}.
+     */
+    private JmmParserResult parse(JavammLexer lex, JavammParser parser, String startingRule,
+                                  Map<String, String> config) {
+        lex.removeErrorListeners();
+        var lexerListener = new JmmErrorListener(Stage.LEXICAL);
+        lex.addErrorListener(lexerListener);
+
+        parser.removeErrorListeners();
+        var parserListener = new JmmErrorListener(Stage.SYNTATIC);
+        parser.addErrorListener(parserListener);
+
+        var tree = (ParserRuleContext) SpecsSystem.invoke(parser, startingRule);
+
+        var reports = new ArrayList<Report>();
+        reports.addAll(lexerListener.getReports());
+        reports.addAll(parserListener.getReports());
+
+        if (ReportUtils.anyError(reports)) {
+            return new JmmParserResult(null, reports, config);
+        }
+
+        // Convert ANTLR CST to JmmNode AST
+        var root = AstBuilder.build(tree, CompilerConfig.isCompactAst(config));
+        return new JmmParserResult(root, reports, config);
+    }
+
+    private static boolean isParseCancellation(Throwable e) {
+        // the starting rule is called through reflection, so the exception may come wrapped
+        for (var cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ParseCancellationException) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the number of calls to parse since the start of the program
+     */
+    public static long getParseCount() {
+        return PARSES.get();
+    }
+
+    /**
+     * @return the number of parses that failed with SLL prediction and had to be repeated with LL prediction
+     */
+    public static long getLlFallbackCount() {
+        return LL_FALLBACKS.get();
+    }
 }
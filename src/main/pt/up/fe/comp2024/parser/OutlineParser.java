@@ -0,0 +1,410 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+import pt.up.fe.comp.jmm.ast.antlr.JmmErrorListener;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.JavammLexer;
+import pt.up.fe.comp2024.ast.AstNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses only the structure of a class: imports, fields and method signatures.
+ * <p>
+ * Method bodies are skipped at token level, by matching braces, and each method keeps a reference to the source of
+ * its body. The tree has the same nodes and attributes as the full tree, without the contents of the methods, so the
+ * symbol table can be built from it (without locals). {@link #parseBody(JmmNode, Map)} parses a body when a later
+ * stage needs it, and the semantic analysis parses all of them with {@link #parseBodies(JmmNode, Map)}.
+ */
+public class OutlineParser {
+
+    /**
+     * Attribute of the methods whose body was not parsed yet.
+     */
+    public static final String BODY = "body";
+
+    private final CharStream input;
+    private final List<Token> tokens;
+    private int current;
+
+    /**
+     * The source of a method that was skipped.
+     */
+    public static class MethodBody {
+
+        private final CharStream input;
+        private final int start;
+        private final int stop;
+        private final int line;
+        private final int column;
+
+        MethodBody(CharStream input, Token first, Token last) {
+            this.input = input;
+            this.start = first.getStartIndex();
+            this.stop = last.getStopIndex();
+            this.line = first.getLine();
+            this.column = first.getCharPositionInLine();
+        }
+
+        /**
+         * @return the code of the method only, without the rest of the file
+         */
+        CharStream getCode() {
+            var code = new ANTLRInputStream(input.getText(Interval.of(start, stop)));
+            code.name = input.getSourceName();
+
+            return code;
+        }
+
+        @Override
+        public String toString() {
+            return "unparsed";
+        }
+    }
+
+    private OutlineParser(CharStream input, List<Token> tokens) {
+        this.input = input;
+        this.tokens = tokens;
+        this.current = 0;
+    }
+
+    /**
+     * Parses the outline of the given input. Programs that are only statements are parsed in full.
+     *
+     * @param input
+     * @param config
+     * @return
+     */
+    public static JmmParserResult parse(CharStream input, Map<String, String> config) {
+        var lexer = new FastJavammLexer(input);
+        var lexerErrors = new JmmErrorListener(Stage.LEXICAL);
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(lexerErrors);
+
+        var tokens = new ArrayList<Token>();
+        Token token;
+        do {
+            token = lexer.nextToken();
+            tokens.add(token);
+        } while (token.getType() != Token.EOF);
+
+        if (ReportUtils.anyError(lexerErrors.getReports())) {
+            return new JmmParserResult(null, lexerErrors.getReports(), config);
+        }
+
+        var parser = new OutlineParser(input, tokens);
+
+        // the outline only covers classes
+        var first = parser.peek();
+        if (first.getType() != JavammLexer.IMPORT && first.getType() != JavammLexer.CLASS) {
+            input.seek(0);
+            return new JmmParserImpl().parse(input.getText(Interval.of(0, input.size() - 1)), config);
+        }
+
+        try {
+            return new JmmParserResult(parser.program(), new ArrayList<>(), config);
+        } catch (OutlineException e) {
+            var report = Report.newError(Stage.SYNTATIC, e.token.getLine(), e.token.getCharPositionInLine(),
+                    e.getMessage(), null);
+            return new JmmParserResult(null, List.of(report), config);
+        }
+    }
+
+    /**
+     * Parses the body of a method of an outline, replacing the method in the tree by the fully parsed method.
+     *
+     * @param method a method of an outline
+     * @param config
+     * @return the parsed method, or the method itself if its body was already parsed
+     */
+    public static JmmParserResult parseBody(JmmNode method, Map<String, String> config) {
+        Kind.METHOD_DECL.checkOrThrow(method);
+
+        if (!method.hasAttribute(BODY)) {
+            return new JmmParserResult(method, new ArrayList<>(), config);
+        }
+
+        var body = method.getObject(BODY, MethodBody.class);
+        // lexed from where the method starts, so the positions are the positions in the file
+        var result = new JmmParserImpl().parse(body.getCode(), body.line, body.column, "methodDecl", config);
+
+        if (result.getRootNode() != null && method.getParent() != null) {
+            method.replace(result.getRootNode());
+        }
+
+        return result;
+    }
+
+    /**
+     * Parses all the bodies that were skipped in the given outline.
+     *
+     * @param root the root of an outline, or of a full tree, which has no bodies to parse
+     * @param config
+     * @return the reports of parsing the bodies
+     */
+    public static List<Report> parseBodies(JmmNode root, Map<String, String> config) {
+        var reports = new ArrayList<Report>();
+
+        // methods are only children of the class, a full tree is not searched
+        for (var classDecl : root.getChildren(Kind.CLASS_DECL)) {
+            for (var method : classDecl.getChildren(Kind.METHOD_DECL)) {
+                reports.addAll(parseBody(method, config).getReports());
+            }
+        }
+
+        return reports;
+    }
+
+    private JmmNode program() {
+        var program = newNode(Kind.PROGRAM.getNodeName(), peek());
+
+        while (peek().getType() == JavammLexer.IMPORT) {
+            program.add(importDecl());
+        }
+
+        program.add(classDecl());
+        expect(Token.EOF, "end of file");
+
+        return program;
+    }
+
+    private JmmNode importDecl() {
+        var start = expect(JavammLexer.IMPORT, "'import'");
+        var node = newNode("ImportDecl", start, "ImportDeclaration");
+
+        var values = new ArrayList<String>();
+        var id = expect(JavammLexer.ID, "a name");
+        values.add(id.getText());
+        while (peek().getType() == JavammLexer.DOT) {
+            next();
+            id = expect(JavammLexer.ID, "a name");
+            values.add(id.getText());
+        }
+
+        node.put("ID", id.getText());
+        node.putObject("value", values);
+
+        return end(node, expect(JavammLexer.SEMI, "';'"));
+    }
+
+    private JmmNode classDecl() {
+        var start = expect(JavammLexer.CLASS, "'class'");
+        var node = newNode(Kind.CLASS_DECL.getNodeName(), start);
+        node.put("name", expect(JavammLexer.ID, "a class name").getText());
+
+        if (peek().getType() == JavammLexer.EXTENDS) {
+            var extendsStart = next();
+            var extendsDecl = newNode(Kind.EXTENDS_DECL.getNodeName(), extendsStart);
+            var superName = expect(JavammLexer.ID, "a class name");
+            extendsDecl.put("name", superName.getText());
+            node.add(end(extendsDecl, superName));
+        }
+
+        expect(JavammLexer.LCURLY, "'{'");
+        while (peek().getType() != JavammLexer.RCURLY && peek().getType() != Token.EOF) {
+            node.add(member());
+        }
+
+        return end(node, expect(JavammLexer.RCURLY, "'}'"));
+    }
+
+    /**
+     * A field or a method.
+     */
+    private JmmNode member() {
+        var start = peek();
+
+        boolean isPublic = false;
+        if (start.getType() == JavammLexer.PUBLIC) {
+            next();
+            isPublic = true;
+        }
+
+        if (peek().getType() == JavammLexer.STATIC) {
+            return mainMethod(start, isPublic);
+        }
+
+        var type = type();
+
+        // fields are never public
+        if (!isPublic) {
+            var name = peek();
+            if (name.getType() == JavammLexer.ID || name.getType() == JavammLexer.MAIN) {
+                if (peekAhead(1).getType() == JavammLexer.SEMI) {
+                    next();
+                    var varDecl = newNode(Kind.VAR_DECL.getNodeName(), start);
+                    varDecl.add(type);
+                    varDecl.put("name", name.getText());
+                    return end(varDecl, next());
+                }
+            }
+        }
+
+        var method = newNode(Kind.METHOD_DECL.getNodeName(), start);
+        method.putObject("isPublic", isPublic);
+        method.add(type);
+        method.put("name", expect(JavammLexer.ID, "a method name").getText());
+
+        expect(JavammLexer.LPAREN, "'('");
+        if (peek().getType() != JavammLexer.RPAREN) {
+            method.add(param());
+            while (peek().getType() == JavammLexer.COLON) {
+                next();
+                method.add(param());
+            }
+        }
+        expect(JavammLexer.RPAREN, "')'");
+
+        return body(method, start);
+    }
+
+    private JmmNode mainMethod(Token start, boolean isPublic) {
+        expect(JavammLexer.STATIC, "'static'");
+        expect(JavammLexer.VOID, "'void'");
+
+        var method = newNode(Kind.METHOD_DECL.getNodeName(), start);
+        method.putObject("isPublic", isPublic);
+        method.put("name", expect(JavammLexer.MAIN, "'main'").getText());
+
+        expect(JavammLexer.LPAREN, "'('");
+        expect(JavammLexer.STRING, "'String'");
+        expect(JavammLexer.LBRACKETS, "'['");
+        expect(JavammLexer.RBRACKETS, "']'");
+        expect(JavammLexer.ID, "a parameter name");
+        expect(JavammLexer.RPAREN, "')'");
+
+        return body(method, start);
+    }
+
+    /**
+     * Skips the body of the given method, from '{' to the matching '}'.
+     */
+    private JmmNode body(JmmNode method, Token start) {
+        expect(JavammLexer.LCURLY, "'{'");
+
+        int depth = 1;
+        Token last = null;
+        while (depth > 0) {
+            last = next();
+
+            if (last.getType() == JavammLexer.LCURLY) {
+                depth++;
+            } else if (last.getType() == JavammLexer.RCURLY) {
+                depth--;
+            } else if (last.getType() == Token.EOF) {
+                throw new OutlineException("Missing '}' at the end of method '" + method.get("name") + "'", last);
+            }
+        }
+
+        method.putObject(BODY, new MethodBody(input, start, last));
+        return end(method, last);
+    }
+
+    private JmmNode param() {
+        var start = peek();
+        var param = newNode(Kind.PARAM.getNodeName(), start);
+        param.add(type());
+        var name = expect(JavammLexer.ID, "a parameter name");
+        param.put("name", name.getText());
+
+        return end(param, name);
+    }
+
+    private JmmNode type() {
+        var declaration = next();
+
+        String kind;
+        Token last = declaration;
+        switch (declaration.getType()) {
+            case JavammLexer.INT -> {
+                if (peek().getType() == JavammLexer.LBRACKETS) {
+                    next();
+                    last = expect(JavammLexer.RBRACKETS, "']'");
+                    kind = "Array";
+                } else if (peek().getText().equals("...")) {
+                    last = next();
+                    kind = "Varargs";
+                } else {
+                    kind = "Int";
+                }
+            }
+            case JavammLexer.BOOL -> kind = "Bool";
+            case JavammLexer.STRING -> kind = "String";
+            case JavammLexer.ID -> kind = "Id";
+            default -> throw new OutlineException("Expected a type, found '" + declaration.getText() + "'",
+                    declaration);
+        }
+
+        var type = newNode(kind, declaration, "Type");
+        type.put("declaration", declaration.getText());
+
+        return end(type, last);
+    }
+
+    private Token peek() {
+        return peekAhead(0);
+    }
+
+    private Token peekAhead(int offset) {
+        // the last token is EOF, past the end is always EOF
+        return tokens.get(Math.min(current + offset, tokens.size() - 1));
+    }
+
+    private Token next() {
+        var token = peek();
+        current++;
+        return token;
+    }
+
+    private Token expect(int type, String expected) {
+        var token = peek();
+        if (token.getType() != type) {
+            var found = token.getType() == Token.EOF ? "end of file" : "'" + token.getText() + "'";
+            throw new OutlineException("Expected " + expected + ", found " + found, token);
+        }
+
+        return next();
+    }
+
+    private static AstNode newNode(String kind, Token start, String... superKinds) {
+        var node = new AstNode(kind);
+
+        var hierarchy = new ArrayList<String>();
+        hierarchy.add(kind);
+        hierarchy.addAll(List.of(superKinds));
+        node.setHierarchy(hierarchy);
+
+        node.put(NodePosition.LINE_START.getString(), Integer.toString(start.getLine()));
+        node.put(NodePosition.COL_START.getString(), Integer.toString(start.getCharPositionInLine()));
+
+        return node;
+    }
+
+    private static JmmNode end(JmmNode node, Token stop) {
+        node.put(NodePosition.LINE_END.getString(), Integer.toString(stop.getLine()));
+        node.put(NodePosition.COL_END.getString(), Integer.toString(stop.getCharPositionInLine()));
+
+        return node;
+    }
+
+    private static class OutlineException extends RuntimeException {
+
+        private final transient Token token;
+
+        OutlineException(String message, Token token) {
+            super(message);
+            this.token = token;
+        }
+    }
+}
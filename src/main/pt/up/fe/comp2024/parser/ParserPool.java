@@ -0,0 +1,172 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.UnbufferedTokenStream;
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.dfa.DFA;
+import pt.up.fe.comp2024.JavammLexer;
+import pt.up.fe.comp2024.JavammParser;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+
+/**
+ * Keeps one lexer and one parser per thread, reset for each input instead of created again.
+ * <p>
+ * All the pooled parsers share the DFA and prediction context caches of ANTLR, so what one thread learns about the
+ * grammar speeds up the others. Those caches only grow, {@link #clearCaches()} empties them to bound the memory of
+ * long-running processes.
+ */
+public class ParserPool {
+
+    private static final ThreadLocal<PooledParser> PARSERS = ThreadLocal.withInitial(PooledParser::new);
+
+    // parses hold the read lock, clearing the caches needs all parses to be finished
+    private static final ReadWriteLock CACHES_LOCK = new ReentrantReadWriteLock();
+
+    private static volatile PredictionContextCache contextCache = new PredictionContextCache();
+    private static volatile int cacheGeneration = 0;
+
+    /**
+     * A lexer and a parser. The token stream between them is created for each input, since a reused
+     * {@link CommonTokenStream} keeps the end of file of its last input and gives no more tokens.
+     */
+    private static class PooledParser {
+
+        private final ANTLRInputStream emptyInput;
+        private final JavammLexer lexer;
+        private final JavammParser parser;
+        private final BailErrorStrategy bailStrategy;
+        private final DefaultErrorStrategy defaultStrategy;
+
+        private int generation;
+
+        PooledParser() {
+            this.emptyInput = new ANTLRInputStream("");
+            this.lexer = new FastJavammLexer(emptyInput);
+            this.parser = new JavammParser(new CommonTokenStream(lexer));
+            this.bailStrategy = new BailErrorStrategy();
+            this.defaultStrategy = new DefaultErrorStrategy();
+            this.generation = -1;
+        }
+
+        void reset(CharStream input, int line, int column, PredictionMode predictionMode, boolean unbufferedTokens) {
+            // the context cache was replaced since this parser was last used
+            if (generation != cacheGeneration) {
+                var interpreter = parser.getInterpreter();
+                parser.setInterpreter(new ParserATNSimulator(parser, parser.getATN(), interpreter.decisionToDFA,
+                        contextCache));
+                generation = cacheGeneration;
+            }
+
+            lexer.setInputStream(input);
+            // before the token stream is set, which already lexes the first token
+            lexer.setLine(line);
+            lexer.setCharPositionInLine(column);
+            if (unbufferedTokens) {
+                // only keeps the tokens the parser may still look at, instead of all the tokens of the input
+                parser.setTokenStream(new UnbufferedTokenStream<Token>(lexer));
+            } else {
+                parser.setTokenStream(new CommonTokenStream(lexer));
+            }
+
+            // setTokenStream does not reset the state, the start rule would take the last state of the previous input as
+            // the state it was invoked from, which breaks error recovery
+            parser.setState(ATNState.INVALID_STATE_NUMBER);
+
+            parser.getInterpreter().setPredictionMode(predictionMode);
+            // SLL stops at the first error instead of recovering, the LL stage reports it
+            parser.setErrorHandler(predictionMode == PredictionMode.SLL ? bailStrategy : defaultStrategy);
+        }
+
+        void release() {
+            // do not keep the tokens and the tree of the last input alive
+            lexer.setInputStream(emptyInput);
+            parser.setTokenStream(new CommonTokenStream(lexer));
+        }
+    }
+
+    /**
+     * Parses the given input with the parser of the current thread.
+     *
+     * @param input
+     * @param predictionMode
+     * @param unbufferedTokens if true, tokens are not buffered, which lowers memory for big inputs
+     * @param action           receives the lexer and the parser, already reset to the given input
+     * @return the result of the action
+     */
+    public static <T> T parse(CharStream input, PredictionMode predictionMode, boolean unbufferedTokens,
+                              BiFunction<JavammLexer, JavammParser, T> action) {
+        return parse(input, 1, 0, predictionMode, unbufferedTokens, action);
+    }
+
+    /**
+     * Same as {@link #parse(CharStream, PredictionMode, boolean, BiFunction)}, for an input that is part of a file.
+     *
+     * @param line   the line of the file where the input starts
+     * @param column the column of the file where the input starts
+     */
+    public static <T> T parse(CharStream input, int line, int column, PredictionMode predictionMode,
+                              boolean unbufferedTokens, BiFunction<JavammLexer, JavammParser, T> action) {
+        var pooled = PARSERS.get();
+
+        CACHES_LOCK.readLock().lock();
+        try {
+            pooled.reset(input, line, column, predictionMode, unbufferedTokens);
+            return action.apply(pooled.lexer, pooled.parser);
+        } finally {
+            pooled.release();
+            CACHES_LOCK.readLock().unlock();
+        }
+    }
+
+    /**
+     * Empties the DFA and prediction context caches shared by all parsers. Waits for the parses in progress to finish.
+     */
+    public static void clearCaches() {
+        CACHES_LOCK.writeLock().lock();
+        try {
+            var pooled = PARSERS.get();
+            pooled.lexer.getInterpreter().clearDFA();
+            pooled.parser.getInterpreter().clearDFA();
+
+            contextCache = new PredictionContextCache();
+            cacheGeneration++;
+        } finally {
+            CACHES_LOCK.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of states in the shared DFA caches of the lexer and the parser
+     */
+    public static int getCachedStates() {
+        var pooled = PARSERS.get();
+
+        CACHES_LOCK.readLock().lock();
+        try {
+            return countStates(pooled.lexer.getInterpreter().decisionToDFA)
+                    + countStates(pooled.parser.getInterpreter().decisionToDFA);
+        } finally {
+            CACHES_LOCK.readLock().unlock();
+        }
+    }
+
+    private static int countStates(DFA[] decisionToDFA) {
+        int states = 0;
+        for (var dfa : decisionToDFA) {
+            states += dfa.states.size();
+        }
+
+        return states;
+    }
+}
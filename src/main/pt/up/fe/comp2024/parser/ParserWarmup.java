@@ -0,0 +1,99 @@
+package pt.up.fe.comp2024.parser;
+
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.metrics.CompilerMetrics;
+import pt.up.fe.comp2024.utils.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fills the DFA cache shared by the pooled parsers, by parsing a bundled corpus of Java-- programs.
+ * <p>
+ * A new JVM starts with an empty DFA, and ANTLR builds it while parsing, so the first parses are much slower than the
+ * following ones. Warming up before the first real input lets short-lived compilations parse at close to steady-state
+ * speed.
+ */
+public class ParserWarmup {
+
+    private static final String CORPUS_FOLDER = "warmup/";
+    private static final String CORPUS_INDEX = CORPUS_FOLDER + "corpus.txt";
+
+    private static List<String> corpus = null;
+
+    /**
+     * Parses the bundled corpus the given number of times.
+     *
+     * @param rounds
+     * @return the number of programs parsed
+     * @throws RuntimeException if a program of the corpus does not parse without errors, the corpus would warm up
+     *                          the error recovery instead of the paths of valid programs
+     */
+    public static int warmUp(int rounds) {
+        return CompilerMetrics.measure("warmup", () -> {
+            var programs = getCorpus();
+            var parser = new JmmParserImpl();
+            var config = CompilerConfig.getDefault();
+
+            int parsed = 0;
+            for (int i = 0; i < rounds; i++) {
+                for (int j = 0; j < programs.size(); j++) {
+                    var result = parser.parse(programs.get(j), config);
+
+                    var error = result.getReports().stream().filter(report -> report.getType() == ReportType.ERROR)
+                            .findFirst();
+                    if (error.isPresent() || result.getRootNode() == null) {
+                        throw new RuntimeException("Warm-up program " + (j + 1) + " of the corpus did not parse: "
+                                + error.map(Report::getMessage).orElse("no tree"));
+                    }
+
+                    parsed++;
+                }
+            }
+
+            Log.debug("Parser warm-up parsed {} programs", parsed);
+            return parsed;
+        });
+    }
+
+    /**
+     * @return the programs of the bundled corpus
+     */
+    public static synchronized List<String> getCorpus() {
+        if (corpus != null) {
+            return corpus;
+        }
+
+        var programs = new ArrayList<String>();
+        for (var line : readResource(CORPUS_INDEX).split("\\R")) {
+            var name = line.strip();
+
+            // skip empty lines and comments
+            if (name.isEmpty() || name.startsWith("#")) {
+                continue;
+            }
+
+            programs.add(readResource(CORPUS_FOLDER + name));
+        }
+
+        corpus = List.copyOf(programs);
+        return corpus;
+    }
+
+    private static String readResource(String resource) {
+        try (InputStream in = ParserWarmup.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new RuntimeException("Could not find warm-up resource '" + resource + "'");
+            }
+
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read warm-up resource '" + resource + "'", e);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads source files straight into the char stream of the lexer.
+ * <p>
+ * The file is memory-mapped and decoded into the char array used by the lexer, so the only copy of the source in the
+ * heap is the one being lexed, instead of a String plus the copy made by ANTLRInputStream.
+ */
+public class SourceReader {
+
+    /**
+     * @param file a UTF-8 source file
+     * @return a char stream with the contents of the file
+     * @throws IOException if the file cannot be read, or is not valid UTF-8
+     */
+    public static ANTLRInputStream read(File file) throws IOException {
+        try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Source file '" + file + "' is too big (" + size + " bytes)");
+            }
+
+            var bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            // UTF-8 never has more chars than bytes
+            var chars = new char[(int) size];
+            var charBuffer = CharBuffer.wrap(chars);
+
+            // invalid bytes are an error, instead of being lexed as replacement chars far from their cause
+            var decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT);
+
+            var result = decoder.decode(bytes, charBuffer, true);
+            if (result.isError()) {
+                result.throwException();
+            }
+            decoder.flush(charBuffer);
+
+            var input = new ANTLRInputStream(chars, charBuffer.position());
+            input.name = file.getPath();
+            return input;
+        } catch (CharacterCodingException e) {
+            throw new IOException("Could not decode source file '" + file + "'", e);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package pt.up.fe.comp2024.runner;
+
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp2024.backend.ClassFileResult;
+import pt.up.fe.comp2024.backend.JasminAssembler;
+import pt.up.fe.specs.util.system.ProcessOutputAsString;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Runs compiled Java-- programs inside the current JVM, instead of starting a new java process for each one.
+ * <p>
+ * The classes of each program are defined in their own class loader, together with the classes of the Java-- libraries
+ * (e.g., libs-jmm/compiled) it uses. The libraries are in the same package as the programs and use package-private
+ * members (e.g., io.print), which are only accessible from classes of the same class loader. The bytes of the library
+ * classes are read once and shared by all the runs, and each run gets its own copy of their static state, as a new
+ * java process would. Standard output and error are captured, and the given input is used as standard input.
+ * <p>
+ * A program that does not finish in time is interrupted and left running in a daemon thread, a thread cannot be
+ * killed. A program that is blocked, e.g. in Thread.sleep, stops when it is interrupted, but a busy loop keeps using a
+ * processor until the JVM exits. Programs that may not stop must be run in their own process.
+ */
+public class InProcessRunner {
+
+    private static final long DEFAULT_TIMEOUT_MS = 10_000;
+
+    // the bytes of the classes that are not in the libraries
+    private static final byte[] NOT_FOUND = new byte[0];
+
+    // only used to find the class files of the libraries
+    private final ClassLoader libsLoader;
+    private final Map<String, byte[]> libraryClasses;
+
+    /**
+     * @param classpath folders and jars with the libraries the programs can use
+     */
+    public InProcessRunner(List<File> classpath) {
+        var urls = new URL[classpath.size()];
+        for (int i = 0; i < urls.length; i++) {
+            try {
+                urls[i] = classpath.get(i).toURI().toURL();
+            } catch (MalformedURLException e) {
+                throw new RuntimeException("Invalid classpath element '" + classpath.get(i) + "'", e);
+            }
+        }
+
+        // programs only see the libraries and the platform classes, not the classes of the compiler
+        this.libsLoader = new URLClassLoader("jmm-libs", urls, ClassLoader.getPlatformClassLoader());
+        this.libraryClasses = new ConcurrentHashMap<>();
+    }
+
+    public ProcessOutputAsString run(JasminResult jasminResult, List<String> args, String input) {
+        return run(jasminResult, args, input, DEFAULT_TIMEOUT_MS);
+    }
+
+    /**
+     * Assembles the Jasmin code in memory and runs the main method of the class.
+     *
+     * @param jasminResult
+     * @param args
+     * @param input
+     * @param timeoutMs
+     * @return
+     */
+    public ProcessOutputAsString run(JasminResult jasminResult, List<String> args, String input, long timeoutMs) {
+        var className = jasminResult.getClassName();
+        var classFile = JasminAssembler.assemble(jasminResult.getJasminCode(), className + ".j");
+
+        return run(Map.of(className, classFile), className, args, input, timeoutMs);
+    }
+
+    /**
+     * Runs the main method of a class built by the class file backend.
+     *
+     * @param classFileResult
+     * @param args
+     * @param input
+     * @param timeoutMs
+     * @return
+     */
+    public ProcessOutputAsString run(ClassFileResult classFileResult, List<String> args, String input, long timeoutMs) {
+        var className = classFileResult.getClassName();
+
+        return run(Map.of(className, classFileResult.getClassFile()), className, args, input, timeoutMs);
+    }
+
+    /**
+     * Runs the main method of the given class.
+     *
+     * @param classFiles bytes of the classes of the program, by class name
+     * @param mainClass
+     * @param args
+     * @param input      standard input of the program, can be null
+     * @param timeoutMs  maximum wall-clock time of the run, after which the program is interrupted and abandoned
+     * @return the output of the program. The return value is 0 if main returned, 1 if it threw an exception and -1 if
+     * it timed out
+     */
+    public ProcessOutputAsString run(Map<String, byte[]> classFiles, String mainClass, List<String> args,
+                                     String input, long timeoutMs) {
+        StandardStreams.install();
+
+        var loader = new ProgramClassLoader(classFiles, this::getLibraryClass);
+        var redirection = new StandardStreams.Redirection(input);
+        var returnValue = new int[]{0};
+
+        var thread = new Thread(() -> {
+            StandardStreams.redirect(redirection);
+            try {
+                var main = Class.forName(mainClass, true, loader).getMethod("main", String[].class);
+                main.invoke(null, (Object) args.toArray(new String[0]));
+            } catch (InvocationTargetException e) {
+                returnValue[0] = 1;
+                e.getCause().printStackTrace();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                returnValue[0] = 1;
+                e.printStackTrace();
+            } finally {
+                StandardStreams.restore();
+            }
+        }, "jmm-" + mainClass);
+
+        // a program that does not stop must not keep the JVM alive
+        thread.setDaemon(true);
+        thread.setContextClassLoader(loader);
+        thread.start();
+
+        try {
+            thread.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (thread.isAlive()) {
+            thread.interrupt();
+            return new ProcessOutputAsString(-1, redirection.getOut(),
+                    redirection.getErr() + "Program did not finish in " + timeoutMs + "ms\n");
+        }
+
+        return new ProcessOutputAsString(returnValue[0], redirection.getOut(), redirection.getErr());
+    }
+
+    /**
+     * @param className
+     * @return the bytes of the given class of the libraries, or null if the libraries do not have it
+     */
+    private byte[] getLibraryClass(String className) {
+        var classFile = libraryClasses.computeIfAbsent(className, this::readLibraryClass);
+        return classFile == NOT_FOUND ? null : classFile;
+    }
+
+    private byte[] readLibraryClass(String className) {
+        try (var in = libsLoader.getResourceAsStream(className.replace('.', '/') + ".class")) {
+            return in == null ? NOT_FOUND : in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read library class '" + className + "'", e);
+        }
+    }
+
+    /**
+     * Defines the classes of a single program, and the classes of the libraries it uses.
+     */
+    private static class ProgramClassLoader extends ClassLoader {
+
+        private final Map<String, byte[]> classFiles;
+        private final Function<String, byte[]> libraryClasses;
+
+        ProgramClassLoader(Map<String, byte[]> classFiles, Function<String, byte[]> libraryClasses) {
+            // the platform classes first, then the libraries, see findClass
+            super("jmm-program", ClassLoader.getPlatformClassLoader());
+            this.classFiles = new HashMap<>(classFiles);
+            this.libraryClasses = libraryClasses;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            // classes of the program take precedence over library classes with the same name
+            if (!classFiles.containsKey(name)) {
+                return super.loadClass(name, resolve);
+            }
+
+            synchronized (getClassLoadingLock(name)) {
+                var loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    loaded = findClass(name);
+                }
+
+                if (resolve) {
+                    resolveClass(loaded);
+                }
+
+                return loaded;
+            }
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            var classFile = classFiles.get(name);
+            if (classFile == null) {
+                classFile = libraryClasses.apply(name);
+            }
+
+            if (classFile == null) {
+                throw new ClassNotFoundException(name);
+            }
+
+            return defineClass(name, classFile, 0, classFile.length);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package pt.up.fe.comp2024.runner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Replaces System.out, System.err and System.in with streams that can be redirected per thread.
+ * <p>
+ * Threads that did not redirect the streams, and the threads they start, keep using the original streams. This allows
+ * several programs to run at the same time in the same JVM, each with its own buffers.
+ */
+class StandardStreams {
+
+    private static final InheritableThreadLocal<Redirection> REDIRECTION = new InheritableThreadLocal<>();
+
+    // the streams set by install, null before the first install
+    private static PrintStream installedOut = null;
+    private static PrintStream installedErr = null;
+    private static InputStream installedIn = null;
+
+    /**
+     * Buffers of a single run.
+     */
+    static class Redirection {
+
+        private final ByteArrayOutputStream out;
+        private final ByteArrayOutputStream err;
+        private final InputStream in;
+
+        Redirection(String input) {
+            this.out = new ByteArrayOutputStream();
+            this.err = new ByteArrayOutputStream();
+            this.in = new LineInputStream(input);
+        }
+
+        String getOut() {
+            synchronized (out) {
+                return out.toString();
+            }
+        }
+
+        String getErr() {
+            synchronized (err) {
+                return err.toString();
+            }
+        }
+    }
+
+    /**
+     * Installs the routing streams, on top of the current System streams. Installs them again if something else, e.g.
+     * a test runner, has replaced them since.
+     */
+    static synchronized void install() {
+        if (System.out != installedOut) {
+            installedOut = new PrintStream(new RoutingOutputStream(System.out, false), true);
+            System.setOut(installedOut);
+        }
+
+        if (System.err != installedErr) {
+            installedErr = new PrintStream(new RoutingOutputStream(System.err, true), true);
+            System.setErr(installedErr);
+        }
+
+        if (System.in != installedIn) {
+            installedIn = new RoutingInputStream(System.in);
+            System.setIn(installedIn);
+        }
+    }
+
+    /**
+     * Redirects the streams of the current thread, and of the threads it starts from now on.
+     *
+     * @param redirection
+     */
+    static void redirect(Redirection redirection) {
+        REDIRECTION.set(redirection);
+    }
+
+    static void restore() {
+        REDIRECTION.remove();
+    }
+
+    private static class RoutingOutputStream extends OutputStream {
+
+        private final OutputStream original;
+        private final boolean isErr;
+
+        RoutingOutputStream(OutputStream original, boolean isErr) {
+            this.original = original;
+            this.isErr = isErr;
+        }
+
+        private OutputStream target() {
+            var redirection = REDIRECTION.get();
+
+            if (redirection == null) {
+                return original;
+            }
+
+            return isErr ? redirection.err : redirection.out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            var target = target();
+            synchronized (target) {
+                target.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            var target = target();
+            synchronized (target) {
+                target.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target().flush();
+        }
+    }
+
+    private static class RoutingInputStream extends InputStream {
+
+        private final InputStream original;
+
+        RoutingInputStream(InputStream original) {
+            this.original = original;
+        }
+
+        private InputStream source() {
+            var redirection = REDIRECTION.get();
+            return redirection == null ? original : redirection.in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return source().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return source().read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return source().available();
+        }
+    }
+
+    /**
+     * Gives the input one line at a time, like a person typing it. Readers that are created for each read, as in the
+     * io library of Java--, would otherwise buffer and lose the lines after the first one.
+     */
+    private static class LineInputStream extends InputStream {
+
+        private final byte[] input;
+        private int position;
+
+        LineInputStream(String input) {
+            this.input = input == null ? new byte[0] : input.getBytes();
+            this.position = 0;
+        }
+
+        @Override
+        public synchronized int read() {
+            return position < input.length ? input[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+
+            if (position >= input.length) {
+                return -1;
+            }
+
+            int count = 0;
+            while (count < len && position < input.length) {
+                var current = input[position++];
+                b[off + count++] = current;
+
+                if (current == '\n') {
+                    break;
+                }
+            }
+
+            return count;
+        }
+    }
+}
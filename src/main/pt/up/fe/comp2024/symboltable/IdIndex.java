@@ -0,0 +1,73 @@
+package pt.up.fe.comp2024.symboltable;
+
+/**
+ * Positions of identifier ids in a list, in an open addressing table of ints instead of a map of boxed keys.
+ * <p>
+ * When an id is repeated, the index keeps its first position, the same one a search of the list would find.
+ */
+class IdIndex {
+
+    private static final IdIndex EMPTY = new IdIndex(new int[0]);
+
+    // keys[slot] is an id + 1, 0 for empty slots
+    private final int[] keys;
+    private final int[] positions;
+    private final int mask;
+    private final int shift;
+
+    private IdIndex(int[] ids) {
+        // at most half full, so probes stay short
+        int capacity = Integer.highestOneBit(Math.max(1, ids.length) * 2) * 2;
+        this.keys = new int[capacity];
+        this.positions = new int[capacity];
+        this.mask = capacity - 1;
+        this.shift = Integer.numberOfLeadingZeros(capacity) + 1;
+
+        for (int position = 0; position < ids.length; position++) {
+            int id = ids[position];
+            if (id < 0) {
+                continue;
+            }
+
+            int slot = find(id);
+            if (keys[slot] == 0) {
+                keys[slot] = id + 1;
+                positions[slot] = position;
+            }
+        }
+    }
+
+    /**
+     * @param ids the ids of a list, in order. Negative ids are skipped
+     */
+    static IdIndex of(int[] ids) {
+        return ids.length == 0 ? EMPTY : new IdIndex(ids);
+    }
+
+    /**
+     * @param id
+     * @return the first position of the given id, or -1 if it is not in the index
+     */
+    int get(int id) {
+        if (id < 0) {
+            return -1;
+        }
+
+        int slot = find(id);
+        return keys[slot] == 0 ? -1 : positions[slot];
+    }
+
+    boolean contains(int id) {
+        return get(id) >= 0;
+    }
+
+    private int find(int id) {
+        // ids are dense, mixing the bits spreads consecutive ids over the table
+        int slot = (id * 0x9E3779B9) >>> shift;
+        while (keys[slot] != 0 && keys[slot] != id + 1) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+}
@@ -1,14 +1,33 @@
 package pt.up.fe.comp2024.symboltable;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp2024.ast.Identifiers;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.utils.Log;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 
+/**
+ * Symbol table of a class.
+ * <p>
+ * Besides the lists of the {@link SymbolTable} interface, keeps indexes of the methods, imports, fields, parameters
+ * and locals by the id of their name (see {@link Identifiers}), so that looking up a name does not go through the
+ * lists. The lookups by name find the id of the name once and then look up by id. When a list has repeated names, the
+ * indexes keep the first, the same one a search of the list would find.
+ * <p>
+ * The table keeps its own immutable copies of the given lists and maps, and its types and symbols are the shared
+ * instances of its {@link TypeRegistry}. It is not thread-safe, though: it adds its names to the {@link Identifiers}
+ * of the compilation, which are not synchronized and keep growing while other tables or trees use them. Like the rest
+ * of a compilation, it is used by one thread at a time, e.g. handed from one stage of the pipeline to the next.
+ */
 public class JmmSymbolTable implements SymbolTable {
 
   private final String className;
@@ -25,6 +44,25 @@ public class JmmSymbolTable implements SymbolTable {
   private final Map<String, List<Symbol>> params;
   private final Map<String, List<Symbol>> locals;
 
+  private final TypeRegistry types;
+  private final Identifiers identifiers;
+
+  private final IdIndex methodIndex;
+  private final Set<String> importIndex;
+  // imports of a single name, e.g. 'import io;'
+  private final IdIndex simpleImports;
+  // the last name of each import, e.g. 'C' for 'import a.b.C;'
+  private final IdIndex importedClasses;
+  private final IdIndex fieldIndex;
+
+  // the return type, parameters and locals of each method, by the position of the method in methodSlots
+  private final IdIndex methodSlots;
+  private final Type[] slotReturnTypes;
+  private final List<List<Symbol>> slotParams;
+  private final IdIndex[] slotParamIndexes;
+  private final List<List<Symbol>> slotLocals;
+  private final IdIndex[] slotLocalIndexes;
+
   public JmmSymbolTable(
     String className,
     String superClassName,
@@ -35,14 +73,156 @@ public class JmmSymbolTable implements SymbolTable {
     Map<String, List<Symbol>> params,
     Map<String, List<Symbol>> locals
   ) {
+    this(className, superClassName, methods, imports, fields, returnTypes, params, locals, new TypeRegistry(),
+        new Identifiers());
+  }
+
+  /**
+   * @param types the registry of the types and symbols of the table
+   * @param identifiers the identifiers of the compilation, the names of the table are added if they are not there
+   */
+  public JmmSymbolTable(
+    String className,
+    String superClassName,
+    List<String> methods,
+    List<String> imports,
+    List<Symbol> fields,
+    Map<String, Type> returnTypes,
+    Map<String, List<Symbol>> params,
+    Map<String, List<Symbol>> locals,
+    TypeRegistry types,
+    Identifiers identifiers
+  ) {
+    this.types = types;
+    this.identifiers = identifiers;
     this.className = className;
     this.superClassName = superClassName;
-    this.methods = methods;
-    this.imports = imports;
-    this.fields = fields;
-    this.returnTypes = returnTypes;
-    this.params = params;
-    this.locals = locals;
+    this.methods = List.copyOf(methods);
+    this.imports = List.copyOf(imports);
+    this.fields = copyOf(fields);
+    Map<String, Type> sharedReturnTypes = new HashMap<>();
+    returnTypes.forEach((method, type) -> sharedReturnTypes.put(method, types.getType(type)));
+    this.returnTypes = Collections.unmodifiableMap(sharedReturnTypes);
+    this.params = copyOf(params);
+    this.locals = copyOf(locals);
+
+    this.methodIndex = IdIndex.of(intern(this.methods));
+    this.importIndex = Set.copyOf(this.imports);
+    var simpleImportIds = new int[this.imports.size()];
+    var importedClassIds = new int[this.imports.size()];
+    for (int i = 0; i < importedClassIds.length; i++) {
+      String imported = this.imports.get(i);
+      importedClassIds[i] = identifiers.intern(getImportedClass(imported));
+      simpleImportIds[i] = imported.contains(", ") ? -1 : importedClassIds[i];
+    }
+    this.simpleImports = IdIndex.of(simpleImportIds);
+    this.importedClasses = IdIndex.of(importedClassIds);
+    this.fieldIndex = IdIndex.of(internNames(this.fields));
+
+    // the maps may also have methods that are not in the list
+    var slotMethods = new LinkedHashSet<>(this.methods);
+    slotMethods.addAll(this.returnTypes.keySet());
+    slotMethods.addAll(this.params.keySet());
+    slotMethods.addAll(this.locals.keySet());
+    this.methodSlots = IdIndex.of(intern(List.copyOf(slotMethods)));
+    this.slotReturnTypes = new Type[slotMethods.size()];
+    this.slotParams = new ArrayList<>(slotMethods.size());
+    this.slotParamIndexes = new IdIndex[slotMethods.size()];
+    this.slotLocals = new ArrayList<>(slotMethods.size());
+    this.slotLocalIndexes = new IdIndex[slotMethods.size()];
+    int slot = 0;
+    for (String method : slotMethods) {
+      slotReturnTypes[slot] = this.returnTypes.get(method);
+      var methodParams = this.params.getOrDefault(method, List.of());
+      slotParams.add(methodParams);
+      slotParamIndexes[slot] = IdIndex.of(internNames(methodParams));
+      var methodLocals = this.locals.getOrDefault(method, List.of());
+      slotLocals.add(methodLocals);
+      slotLocalIndexes[slot] = IdIndex.of(internNames(methodLocals));
+      slot++;
+    }
+  }
+
+  private List<Symbol> copyOf(List<Symbol> symbols) {
+    var shared = new Symbol[symbols.size()];
+    for (int i = 0; i < shared.length; i++) {
+      shared[i] = types.getSymbol(symbols.get(i));
+    }
+
+    return List.of(shared);
+  }
+
+  private Map<String, List<Symbol>> copyOf(Map<String, List<Symbol>> symbols) {
+    Map<String, List<Symbol>> copy = new HashMap<>();
+    symbols.forEach((method, methodSymbols) -> copy.put(method, copyOf(methodSymbols)));
+
+    return Collections.unmodifiableMap(copy);
+  }
+
+  private int[] intern(List<String> names) {
+    var ids = new int[names.size()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = identifiers.intern(names.get(i));
+    }
+
+    return ids;
+  }
+
+  private int[] internNames(List<Symbol> symbols) {
+    var ids = new int[symbols.size()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = identifiers.intern(symbols.get(i).getName());
+    }
+
+    return ids;
+  }
+
+  /**
+   * @param table
+   * @return the given table if it is a JmmSymbolTable, otherwise a JmmSymbolTable with the same contents
+   */
+  public static JmmSymbolTable of(SymbolTable table) {
+    if (table instanceof JmmSymbolTable jmmTable) {
+      return jmmTable;
+    }
+
+    Map<String, Type> returnTypes = new HashMap<>();
+    Map<String, List<Symbol>> params = new HashMap<>();
+    Map<String, List<Symbol>> locals = new HashMap<>();
+    for (String method : table.getMethods()) {
+      // methods without return type have none in the table either
+      var returnType = table.getReturnType(method);
+      if (returnType != null) {
+        returnTypes.put(method, returnType);
+      }
+      params.put(method, table.getParameters(method));
+      locals.put(method, table.getLocalVariables(method));
+    }
+
+    return new JmmSymbolTable(table.getClassName(), table.getSuper(), table.getMethods(), table.getImports(),
+        table.getFields(), returnTypes, params, locals);
+  }
+
+  /**
+   * @return the identifiers of the compilation, with the ids used by the lookups of this table
+   */
+  public Identifiers getIdentifiers() {
+    return identifiers;
+  }
+
+  /**
+   * @return the registry of the types and symbols of this table, for the types of its expressions
+   */
+  public TypeRegistry getTypes() {
+    return types;
+  }
+
+  private static String getImportedClass(String imported) {
+    // imports are kept as the list of their names, e.g. '[a, b, C]'
+    int start = Math.max(imported.lastIndexOf(", ") + 2, imported.startsWith("[") ? 1 : 0);
+    int end = imported.endsWith("]") ? imported.length() - 1 : imported.length();
+
+    return start <= end ? imported.substring(start, end) : imported;
   }
 
   @Override
@@ -67,7 +247,7 @@ public class JmmSymbolTable implements SymbolTable {
 
   @Override
   public List<String> getMethods() {
-    return Collections.unmodifiableList(methods);
+    return methods;
   }
 
 @Override
@@ -80,24 +260,162 @@ public Type getReturnType(String methodName) {
     // }
 
     // Debug print: print the method name and the return type
-    Type returnType = this.returnTypes.get(methodName);
+    Type returnType = getReturnType(identifiers.getId(methodName));
 
     // If returnType is null, print a message and return null
     if (returnType == null) {
-        System.out.println("No return type found for method: " + methodName);
+        Log.debug("No return type found for method: {}", methodName);
         return null;
     }
 
     return returnType;
 }
 
+  /**
+   * @param methodId
+   * @return the return type of the method with the given id, or null if it has none
+   */
+  public Type getReturnType(int methodId) {
+    int slot = methodSlots.get(methodId);
+    return slot < 0 ? null : slotReturnTypes[slot];
+  }
+
+  /**
+   * @param methodSignature
+   * @return true if the class has a method with the given signature
+   */
+  public boolean hasMethod(String methodSignature) {
+    return hasMethod(identifiers.getId(methodSignature));
+  }
+
+  /**
+   * @param methodId
+   * @return true if the class has a method with the given id
+   */
+  public boolean hasMethod(int methodId) {
+    return methodIndex.contains(methodId);
+  }
+
+  /**
+   * @param importName
+   * @return true if the given import is one of the imports, as returned by {@link #getImports()}
+   */
+  public boolean hasImport(String importName) {
+    return importIndex.contains(importName);
+  }
+
+  /**
+   * @param nameId
+   * @return true if the name with the given id is imported on its own, the same as {@code hasImport("[" + name +
+   * "]")}
+   */
+  public boolean hasImport(int nameId) {
+    return simpleImports.contains(nameId);
+  }
+
+  /**
+   * @param className
+   * @return true if the given name is the last name of one of the imports
+   */
+  public boolean isImportedClass(String className) {
+    return isImportedClass(identifiers.getId(className));
+  }
+
+  /**
+   * @param nameId
+   * @return true if the name with the given id is the last name of one of the imports
+   */
+  public boolean isImportedClass(int nameId) {
+    return importedClasses.contains(nameId);
+  }
+
+  /**
+   * @param name
+   * @return the field with the given name, or null if there is none
+   */
+  public Symbol getField(String name) {
+    return getField(identifiers.getId(name));
+  }
+
+  /**
+   * @param nameId
+   * @return the field with the name with the given id, or null if there is none
+   */
+  public Symbol getField(int nameId) {
+    int position = fieldIndex.get(nameId);
+    return position < 0 ? null : fields.get(position);
+  }
+
+  /**
+   * @param methodSignature
+   * @param name
+   * @return the parameter of the given method with the given name, or null if there is none
+   */
+  public Symbol getParameter(String methodSignature, String name) {
+    return getParameter(identifiers.getId(methodSignature), identifiers.getId(name));
+  }
+
+  /**
+   * @param methodId
+   * @param nameId
+   * @return the parameter of the method with the given id with the given name id, or null if there is none
+   */
+  public Symbol getParameter(int methodId, int nameId) {
+    int slot = methodSlots.get(methodId);
+    int position = slot < 0 ? -1 : slotParamIndexes[slot].get(nameId);
+
+    return position < 0 ? null : slotParams.get(slot).get(position);
+  }
+
+  /**
+   * @param methodSignature
+   * @param name
+   * @return the position of the parameter of the given method with the given name, starting at 0, or -1 if there is
+   * none
+   */
+  public int getParameterIndex(String methodSignature, String name) {
+    return getParameterIndex(identifiers.getId(methodSignature), identifiers.getId(name));
+  }
+
+  /**
+   * @param methodId
+   * @param nameId
+   * @return the position of the parameter of the method with the given id with the given name id, starting at 0, or
+   * -1 if there is none
+   */
+  public int getParameterIndex(int methodId, int nameId) {
+    int slot = methodSlots.get(methodId);
+    return slot < 0 ? -1 : slotParamIndexes[slot].get(nameId);
+  }
+
+  /**
+   * @param methodSignature
+   * @param name
+   * @return the local variable of the given method with the given name, or null if there is none
+   */
+  public Symbol getLocalVariable(String methodSignature, String name) {
+    return getLocalVariable(identifiers.getId(methodSignature), identifiers.getId(name));
+  }
+
+  /**
+   * @param methodId
+   * @param nameId
+   * @return the local variable of the method with the given id with the given name id, or null if there is none
+   */
+  public Symbol getLocalVariable(int methodId, int nameId) {
+    int slot = methodSlots.get(methodId);
+    int position = slot < 0 ? -1 : slotLocalIndexes[slot].get(nameId);
+
+    return position < 0 ? null : slotLocals.get(slot).get(position);
+  }
+
   @Override
   public List<Symbol> getParameters(String methodSignature) {
-    return Collections.unmodifiableList(params.get(methodSignature));
+    return params.get(methodSignature);
   }
 
   @Override
   public List<Symbol> getLocalVariables(String methodSignature) {
-    return Collections.unmodifiableList(locals.get(methodSignature));
+    return locals.get(methodSignature);
   }
 }
@@ -3,39 +3,93 @@ package pt.up.fe.comp2024.symboltable;
 import static pt.up.fe.comp2024.ast.Kind.*;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Identifiers;
 import pt.up.fe.comp2024.ast.Kind;
-import pt.up.fe.comp2024.ast.TypeUtils;
-import pt.up.fe.specs.util.SpecsCheck;
+import pt.up.fe.comp2024.utils.Log;
 
+/**
+ * Builds the symbol table of a class in a single pass over the declarations of the program, the class and its methods.
+ */
 public class JmmSymbolTableBuilder {
 
-    public static JmmSymbolTable build(JmmNode root) {
-        JmmNode classDecl = root;
+    private final JmmNode root;
+    private final TypeRegistry types = new TypeRegistry();
+    private final Identifiers identifiers;
+    private final List<String> imports;
+    private JmmNode classDecl;
+
+    private String superClassName = null;
+    private List<Symbol> fields;
+    private List<String> methods;
+    private Map<String, Type> returnTypes;
+    private Map<String, List<Symbol>> params;
+    private Map<String, List<Symbol>> locals;
+
+    private JmmSymbolTableBuilder(JmmNode root) {
+        this.root = root;
+        this.imports = new ArrayList<>(root.getNumChildren());
+        this.classDecl = root;
+
+        // trees that were not built by the parser get their ids from the table
+        var parsedIdentifiers = Identifiers.of(root);
+        this.identifiers = parsedIdentifiers != null ? parsedIdentifiers : new Identifiers();
+    }
 
-        var imports = buildImports(root);
-        System.out.println(imports);
+    /**
+     * Builds the symbol table of the given tree. The tree can also be an outline (see OutlineParser), in which case
+     * methods whose body was not parsed have no locals.
+     *
+     * @param root
+     * @return
+     */
+    public static JmmSymbolTable build(JmmNode root) {
+        return new JmmSymbolTableBuilder(root).build();
+    }
 
+    private JmmSymbolTable build() {
         for (JmmNode child : root.getChildren()) {
-            if (child.getKind().equals("ImportDecl")) {
-            } else if (
-                    "ClassDecl".equals(child.getKind())
-            ) {
+            var kind = Kind.of(child);
+
+            if (kind == IMPORT_DECL) {
+                imports.add(child.get("value"));
+            } else if (kind == CLASS_DECL) {
                 classDecl = child;
             }
         }
+        Log.debug("Imports: {}", imports);
 
         String className = classDecl.get("name");
-        String superClassName = buildSuperClassName(classDecl);
-        var fields = buildFields(classDecl);
-        var methods = buildMethods(classDecl);
-        var returnTypes = buildReturnTypes(classDecl);
-        var params = buildParams(classDecl);
-        var locals = buildLocals(classDecl);
+
+        // no class has more members than children
+        int numChildren = classDecl.getNumChildren();
+        fields = new ArrayList<>(numChildren);
+        methods = new ArrayList<>(numChildren);
+        returnTypes = new HashMap<>(capacity(numChildren));
+        params = new HashMap<>(capacity(numChildren));
+        locals = new HashMap<>(capacity(numChildren));
+
+        for (JmmNode child : classDecl.getChildren()) {
+            var kind = Kind.of(child);
+
+            if (kind == EXTENDS_DECL) {
+                if (superClassName == null) {
+                    superClassName = child.get("name");
+                }
+            } else if (kind == VAR_DECL) {
+                fields.add(buildSymbol(child));
+            } else if (kind == METHOD_DECL) {
+                addMethod(child);
+            }
+        }
+
+        // Print the contents of the map
+        if (Log.isEnabled(Log.Level.DEBUG)) {
+            returnTypes.forEach((key, value) -> Log.debug("Method: {}, Return type: {}", key, value));
+        }
 
         return new JmmSymbolTable(
                 className,
@@ -45,174 +99,71 @@ public class JmmSymbolTableBuilder {
                 fields,
                 returnTypes,
                 params,
-                locals
+                locals,
+                types,
+                identifiers
         );
     }
 
-    private static String buildSuperClassName(JmmNode classDecl) {
-        for (JmmNode child : classDecl.getChildren()) {
-            if ("ExtendsDecl".equals(child.getKind())) {
-                //System.out.println("Inside If");
-                //print node
-                //System.out.println("Child: " + child);
-                return child.get("name");
-            }
-        }
-        return null;
-    }
-
-    private static Map<String, Type> buildReturnTypes(JmmNode classDecl) {
-        Map<String, Type> map = new HashMap<>();
-
-        classDecl
-                .getChildren(METHOD_DECL)
-                .stream()
-                .forEach(method -> {
-                    String methodName = method.get("name");
-                    //System.out.println("(Builder)Method: " + methodName);
-
-                    // Skip processing for the main method
-                    if ("main".equals(methodName)) {
-                        map.put(methodName, new Type("void", false));
-                        return;
-                    }
+    private void addMethod(JmmNode method) {
+        String methodName = method.get("name");
+        methods.add(methodName);
 
-                    // Get the return type node
-                    JmmNode returnTypeNode = method.getChildren().get(0);
+        // most children are statements, the lists are copied to their exact size by the table
+        var parameters = new ArrayList<Symbol>();
+        var localVariables = new ArrayList<Symbol>();
 
-                    // Get the type attribute of the return type node
-                    String returnType = returnTypeNode.get("declaration");
-                    //System.out.println("RETURN TYPE" + returnType);
+        for (JmmNode child : method.getChildren()) {
+            var kind = Kind.of(child);
 
-                    // Check if the return type is an array
-                    boolean isArray = "Array".equals(returnTypeNode.getKind());
-
-                    // Create a new Type with the return type and add it to the map
-                    map.put(methodName, new Type(returnType, isArray));
-                });
-
-        // Print the contents of the map
-        map.forEach((key, value) ->
-                System.out.println(
-                        "Method: " +
-                                key +
-                                ", Return type: " +
-                                value.getName() +
-                                ", Is array: " +
-                                value.isArray()
-                )
-        );
+            if (kind == PARAM) {
+                parameters.add(buildParam(child));
+            } else if (kind == VAR_DECL) {
+                localVariables.add(buildSymbol(child));
+            }
+        }
 
-        return map;
-    }
+        // The main method has no return type node
+        if ("main".equals(methodName)) {
+            returnTypes.put(methodName, TypeRegistry.VOID);
+        } else {
+            // Get the return type node, the first child
+            returnTypes.put(methodName, buildType(method.getChild(0)));
+        }
 
-    private static List<String> buildImports(JmmNode program) {
-        return program
-                .getChildren("ImportDecl")
-                .stream()
-                .map(each_import -> each_import.get("value"))
-                .toList();
+        params.put(methodName, parameters);
+        locals.put(methodName, localVariables);
     }
 
-    private static List<Symbol> buildFields(JmmNode classDecl) {
-        List<Symbol> allVarDecl = new ArrayList<>();
-
-        classDecl
-                .getChildren("VarDecl")
-                .stream()
-                .forEach(varDecl -> {
-                    // Get the first child of the varDecl node, which is the type node
-                    JmmNode typeNode = varDecl.getChildren().get(0);
-                    // Get the declaration attribute of the type node
-                    String typeDeclaration = typeNode.get("declaration");
-
-                    // Check if the type is an array
-                    boolean isArray = "Array".equals(typeNode.getKind());
+    private Symbol buildParam(JmmNode param) {
+        // Get the first child of the param node, which is the type node
+        JmmNode typeNode = param.getChild(0);
+        // Get the declaration attribute of the type node
+        String typeDeclaration = typeNode.get("declaration");
 
-                    // Create a new Symbol with the type and name of the field
-                    Symbol fieldSymbol = new Symbol(
-                            new Type(typeDeclaration, isArray),
-                            varDecl.get("name")
-                    );
-
-                    allVarDecl.add(fieldSymbol);
-                });
+        if (VARARGS_TYPE.check(typeNode)) {
+            return types.getSymbol(types.getType(typeDeclaration + "V", true), param.get("name"));
+        }
 
-        return allVarDecl;
+        // Create a new Symbol with the type and name of the param
+        return types.getSymbol(types.getType(typeDeclaration, false), param.get("name"));
     }
 
-
-    private static Map<String, List<Symbol>> buildParams(JmmNode classDecl) {
-        Map<String, List<Symbol>> map = new HashMap<>();
-
-        classDecl
-                .getChildren(METHOD_DECL)
-                .stream()
-                .forEach(method -> {
-                    List<Symbol> parameters = method
-                            .getChildren()
-                            .stream()
-                            .filter(child -> "Param".equals(child.getKind())) // check kind
-                            .map(param -> {
-                                // Get the first child of the param node, which is the type node
-                                JmmNode typeNode = param.getChildren().get(0);
-                                // Get the declaration attribute of the type node
-                                String typeDeclaration = typeNode.get("declaration");
-
-                                if (typeNode.getKind().equals("Varargs"))
-                                    return new Symbol(
-                                            new Type(typeDeclaration+"V", true),
-                                            param.get("name"));
-
-
-                                // Create a new Symbol with the type and name of the param
-                                return new Symbol(
-                                        new Type(typeDeclaration, false),
-                                        param.get("name")
-                                );
-                            })
-                            .collect(Collectors.toList());
-
-                    map.put(method.get("name"), parameters);
-                });
-
-        return map;
+    /**
+     * @param varDecl a field or a local variable
+     */
+    private Symbol buildSymbol(JmmNode varDecl) {
+        // Get the first child of the varDecl node, which is the type node
+        return types.getSymbol(buildType(varDecl.getChild(0)), varDecl.get("name"));
     }
 
-    private static Map<String, List<Symbol>> buildLocals(JmmNode classDecl) {
-        // TODO: Simple implementation that needs to be expanded
-
-        Map<String, List<Symbol>> map = new HashMap<>();
-
-        classDecl
-                .getChildren(METHOD_DECL)
-                .stream()
-                .forEach(method -> map.put(method.get("name"), getLocalsList(method)));
-
-        return map;
-    }
-
-    private static List<String> buildMethods(JmmNode classDecl) {
-        return classDecl
-                .getChildren(METHOD_DECL)
-                .stream()
-                .map(method -> method.get("name"))
-                .toList();
+    private Type buildType(JmmNode typeNode) {
+        // Check if the type is an array
+        return types.getType(typeNode.get("declaration"), ARRAY_TYPE.check(typeNode));
     }
 
-    private static List<Symbol> getLocalsList(JmmNode methodDecl) {
-        var intType = new Type(TypeUtils.getIntTypeName(), false);
-
-        return methodDecl
-                .getChildren(VAR_DECL)
-                .stream()
-                .map(varDecl -> {
-                    JmmNode typeNode = varDecl.getChild(0);
-                    String typeDeclaration = typeNode.get("declaration");
-                    boolean isArray = "Array".equals(typeNode.getKind());
-                    return new Symbol(new Type(typeDeclaration, isArray), varDecl.get("name"));
-                })
-                .toList();
+    private static int capacity(int size) {
+        // enough to hold the given number of entries without resizing, with the default load factor
+        return (int) (size / 0.75f) + 1;
     }
 }
-
@@ -0,0 +1,92 @@
+package pt.up.fe.comp2024.symboltable;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared instances of the types and symbols of a compilation, so that equal types are the same object and can be
+ * compared with ==.
+ * <p>
+ * The primitive types are shared by all compilations. Class types and symbols are kept by the registry of each symbol
+ * table, see {@link JmmSymbolTable#getTypes()}, and go away with it. The shared types must not be given attributes.
+ */
+public class TypeRegistry {
+
+    public static final Type INT = new Type("int", false);
+    public static final Type INT_ARRAY = new Type("int", true);
+    public static final Type BOOLEAN = new Type("boolean", false);
+    public static final Type BOOLEAN_ARRAY = new Type("boolean", true);
+    public static final Type VOID = new Type("void", false);
+    public static final Type STRING = new Type("String", false);
+    public static final Type STRING_ARRAY = new Type("String", true);
+
+    private static final Map<String, Type> PRIMITIVES = Map.of(
+            INT.getName(), INT,
+            BOOLEAN.getName(), BOOLEAN,
+            VOID.getName(), VOID,
+            STRING.getName(), STRING
+    );
+
+    private static final Map<String, Type> PRIMITIVE_ARRAYS = Map.of(
+            INT_ARRAY.getName(), INT_ARRAY,
+            BOOLEAN_ARRAY.getName(), BOOLEAN_ARRAY,
+            STRING_ARRAY.getName(), STRING_ARRAY
+    );
+
+    private final Map<String, Type> types = new ConcurrentHashMap<>();
+    private final Map<String, Type> arrayTypes = new ConcurrentHashMap<>();
+    private final Map<Type, Map<String, Symbol>> symbols = new ConcurrentHashMap<>();
+
+    // the maps do not take null, e.g. the super class of a class that extends none
+    private final Type nullType = new Type(null, false);
+    private final Type nullArrayType = new Type(null, true);
+
+    /**
+     * @param name
+     * @param isArray
+     * @return the shared type with the given name
+     */
+    public Type getType(String name, boolean isArray) {
+        if (name == null) {
+            return isArray ? nullArrayType : nullType;
+        }
+
+        var primitive = (isArray ? PRIMITIVE_ARRAYS : PRIMITIVES).get(name);
+        if (primitive != null) {
+            return primitive;
+        }
+
+        return (isArray ? arrayTypes : types).computeIfAbsent(name, key -> new Type(key, isArray));
+    }
+
+    /**
+     * @param type
+     * @return the shared type equal to the given type
+     */
+    public Type getType(Type type) {
+        return type == null ? null : getType(type.getName(), type.isArray());
+    }
+
+    /**
+     * @param type
+     * @param name
+     * @return the shared symbol with the given type and name
+     */
+    public Symbol getSymbol(Type type, String name) {
+        var sharedType = getType(type);
+
+        return symbols.computeIfAbsent(sharedType, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(name, key -> new Symbol(sharedType, key));
+    }
+
+    /**
+     * @param symbol
+     * @return the shared symbol equal to the given symbol
+     */
+    public Symbol getSymbol(Symbol symbol) {
+        return getSymbol(symbol.getType(), symbol.getName());
+    }
+}
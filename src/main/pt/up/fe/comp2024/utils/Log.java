@@ -0,0 +1,140 @@
+package pt.up.fe.comp2024.utils;
+
+import java.io.PrintStream;
+import java.util.function.Supplier;
+
+/**
+ * Leveled logging for the diagnostics of the compiler stages.
+ * <p>
+ * Messages are only built when their level is enabled: either pass a Supplier, or a pattern with '{}' placeholders and
+ * the arguments. A disabled call is a comparison against a plain static field. Logging is off by default, and is set
+ * once at startup with {@link #setLevel(Level)}.
+ */
+public class Log {
+
+    public enum Level {
+        OFF,
+        ERROR,
+        WARN,
+        INFO,
+        DEBUG,
+        TRACE
+    }
+
+    // plain field, it is written at startup, before the worker threads are created
+    private static int threshold = Level.OFF.ordinal();
+
+    private static PrintStream output = System.err;
+
+    public static void setLevel(Level level) {
+        threshold = level.ordinal();
+    }
+
+    /**
+     * @param output where messages are written, defaults to the standard error
+     */
+    public static void setOutput(PrintStream output) {
+        Log.output = output;
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level.ordinal() <= threshold;
+    }
+
+    public static void error(Supplier<String> message) {
+        if (Level.ERROR.ordinal() <= threshold) {
+            write(Level.ERROR, message.get());
+        }
+    }
+
+    public static void error(String pattern, Object arg) {
+        if (Level.ERROR.ordinal() <= threshold) {
+            write(Level.ERROR, format(pattern, arg));
+        }
+    }
+
+    public static void warn(Supplier<String> message) {
+        if (Level.WARN.ordinal() <= threshold) {
+            write(Level.WARN, message.get());
+        }
+    }
+
+    public static void warn(String pattern, Object arg) {
+        if (Level.WARN.ordinal() <= threshold) {
+            write(Level.WARN, format(pattern, arg));
+        }
+    }
+
+    public static void warn(String pattern, Object arg1, Object arg2) {
+        if (Level.WARN.ordinal() <= threshold) {
+            write(Level.WARN, format(pattern, arg1, arg2));
+        }
+    }
+
+    public static void info(Supplier<String> message) {
+        if (Level.INFO.ordinal() <= threshold) {
+            write(Level.INFO, message.get());
+        }
+    }
+
+    public static void info(String pattern, Object arg) {
+        if (Level.INFO.ordinal() <= threshold) {
+            write(Level.INFO, format(pattern, arg));
+        }
+    }
+
+    public static void debug(Supplier<String> message) {
+        if (Level.DEBUG.ordinal() <= threshold) {
+            write(Level.DEBUG, message.get());
+        }
+    }
+
+    public static void debug(String pattern, Object arg) {
+        if (Level.DEBUG.ordinal() <= threshold) {
+            write(Level.DEBUG, format(pattern, arg));
+        }
+    }
+
+    public static void debug(String pattern, Object arg1, Object arg2) {
+        if (Level.DEBUG.ordinal() <= threshold) {
+            write(Level.DEBUG, format(pattern, arg1, arg2));
+        }
+    }
+
+    public static void trace(Supplier<String> message) {
+        if (Level.TRACE.ordinal() <= threshold) {
+            write(Level.TRACE, message.get());
+        }
+    }
+
+    public static void trace(String pattern, Object arg) {
+        if (Level.TRACE.ordinal() <= threshold) {
+            write(Level.TRACE, format(pattern, arg));
+        }
+    }
+
+    /**
+     * Replaces each '{}' in the pattern by the next argument.
+     */
+    private static String format(String pattern, Object... args) {
+        var message = new StringBuilder();
+
+        int start = 0;
+        for (var arg : args) {
+            int placeholder = pattern.indexOf("{}", start);
+            if (placeholder == -1) {
+                break;
+            }
+
+            message.append(pattern, start, placeholder).append(arg);
+            start = placeholder + 2;
+        }
+
+        return message.append(pattern, start, pattern.length()).toString();
+    }
+
+    private static void write(Level level, String message) {
+        // a single call, so that lines of different threads do not interleave
+        output.println("[" + level + "] [" + Thread.currentThread().getName() + "] " + message);
+    }
+}
@@ -24,6 +24,7 @@ import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsStrings;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 import pt.up.fe.specs.util.utilities.LineStream;
+import utils.ProjectTestUtils;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -121,7 +122,7 @@ public class CpUtils {
 
         var testName = new File(resource).getName();
         System.out.println(testName + ":\n" + result.getJasminCode());
-        var runOutput = result.runWithFullOutput();
+        var runOutput = ProjectTestUtils.runInProcess(result, null);
         Assert.assertEquals("Error while running compiled Jasmin: " + runOutput.getOutput() + "\n\nJasmin code:\n"
                 + result.getJasminCode(), 0, runOutput.getReturnValue());
         System.out.println("\n Result: " + runOutput.getOutput());
@@ -145,7 +146,7 @@ public class CpUtils {
 
             var testName = new File(resource).getName();
             System.out.println(testName + ":\n" + result.getJasminCode());
-            var runOutput = result.runWithFullOutput();
+            var runOutput = ProjectTestUtils.runInProcess(result, null);
             Assert.assertEquals("Error while running compiled Jasmin: " + runOutput.getOutput() + "\n\nJasmin code:\n"
                             + result.getJasminCode(), 0,
                     runOutput.getReturnValue());
@@ -528,7 +529,8 @@ public class CpUtils {
 
     public static void runJasmin(JasminResult jasminResult, String expected) {
         try {
-            var output = SpecsStrings.normalizeFileContents(jasminResult.run(), true);
+            var runOutput = ProjectTestUtils.runInProcess(jasminResult, null);
+            var output = SpecsStrings.normalizeFileContents(runOutput.getOutput(), true);
             assertEquals("Jasmin output", expected, output, jasminResult);
         } catch (Exception e) {
             throw new RuntimeException("Problems while running Jasmin code:\n" + jasminResult.getJasminCode(), e);
@@ -0,0 +1,85 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the files of a batch are compiled independently, and their results are given in input order.
+ */
+public class BatchCompilerTest {
+
+    @Test
+    public void testCompile() throws IOException {
+        var folder = Files.createTempDirectory("batch");
+        var small = write(folder, "Small", "class Small { public int foo(int a) { return a; } }");
+        var deep = write(folder, "Deep", "class Deep { public int foo() { return 1; } }");
+        var medium = write(folder, "Medium", "class Medium { int x; public int foo(int a) { int b; b = a + x; "
+                + "return b; } public int bar(int a) { return a; } }");
+        var files = List.of(small, deep, medium, new File(folder.toFile(), "Missing.jmm"));
+
+        var config = CompilerConfig.parseArgs(new String[]{"-b=" + folder, "-t=2"});
+        var results = new BatchCompiler(config, new OverflowingCompiler()).compile(files);
+
+        assertEquals(files, new ArrayList<>(results.keySet()));
+
+        // the stack overflow is reported for its file only
+        var deepReports = results.get(deep).getReports();
+        assertTrue(ReportUtils.anyError(deepReports));
+        assertEquals("Exception during compilation", deepReports.get(0).getMessage());
+        assertTrue(deepReports.get(0).getException().orElseThrow().getCause() instanceof StackOverflowError);
+
+        for (var file : List.of(small, medium)) {
+            var result = results.get(file);
+            assertFalse(file + ": " + result.getReports(), result.hasErrors());
+            assertTrue(file.toString(), result.getJasminResult().isPresent());
+        }
+
+        assertTrue(results.get(files.get(3)).hasErrors());
+    }
+
+    @Test
+    public void testLargestFirst() throws IOException {
+        var folder = Files.createTempDirectory("batch");
+        var small = write(folder, "Small", "class Small { }");
+        var large = write(folder, "Large", "class Large { int a; int b; int c; }");
+        var medium = write(folder, "Medium", "class Medium { int a; }");
+
+        assertEquals(List.of(large, medium, small), BatchCompiler.schedule(List.of(small, large, medium)));
+    }
+
+    /**
+     * Overflows the stack when parsing the class Deep, like a parser would on an input that is too deep.
+     */
+    private static class OverflowingCompiler extends JmmCompiler {
+
+        @Override
+        JmmParserResult parse(String code, Map<String, String> config, CompilationResult result) {
+            if (code.contains("class Deep")) {
+                throw new StackOverflowError();
+            }
+
+            return super.parse(code, config, result);
+        }
+    }
+
+    private static File write(Path folder, String name, String code) throws IOException {
+        var file = folder.resolve(name + ".jmm").toFile();
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), code);
+
+        return file;
+    }
+}
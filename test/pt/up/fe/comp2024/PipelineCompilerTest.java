@@ -0,0 +1,131 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the pipeline gives the results in input order, that units leave it at the stage that failed, and that
+ * it ends when a step throws an error.
+ */
+public class PipelineCompilerTest {
+
+    @Test(timeout = 60_000)
+    public void testCompile() throws IOException {
+        var folder = Files.createTempDirectory("pipeline");
+        var files = new ArrayList<File>();
+        for (int i = 0; i < 12; i++) {
+            files.add(write(folder, "Valid" + i, "class Valid" + i + " { public int foo(int a) { return a; } }"));
+        }
+        var missing = new File(folder.toFile(), "Missing.jmm");
+        var syntaxError = write(folder, "Syntax", "class Syntax { int x public int foo() { return 1; } }");
+        var deep = write(folder, "Deep", "class Deep { public int foo() { return 1; } }");
+        var semanticError = write(folder, "Semantic", "class Semantic { public int foo() { return y; } }");
+        var failingBackend = write(folder, "Backend", "class Backend { public int foo(int a) { return a; } }");
+        files.add(3, missing);
+        files.add(5, syntaxError);
+        files.add(7, deep);
+        files.add(9, semanticError);
+        files.add(11, failingBackend);
+
+        // small queues and several workers, so units overtake each other and stages block on full queues
+        var config = CompilerConfig.parseArgs(new String[]{"-b=" + folder, "-p=1,2,3,2,2", "-q=1"});
+        var pipeline = new PipelineCompiler(config, new FailingCompiler());
+        var results = pipeline.compile(files);
+
+        assertEquals(files, new ArrayList<>(results.keySet()));
+
+        for (var file : files) {
+            var result = results.get(file);
+            if (!file.getName().startsWith("Valid")) {
+                assertTrue(file.toString(), ReportUtils.anyError(result.getReports()));
+                continue;
+            }
+
+            assertFalse(file + ": " + result.getReports(), result.hasErrors());
+            assertEquals(file.getName().replace(".jmm", ""), result.getClassName().orElseThrow());
+            assertTrue(file.toString(), result.getJasminResult().isPresent());
+        }
+
+        // units that failed did not reach the later stages
+        assertTrue(results.get(missing).getParserResult().isEmpty());
+        assertTrue(results.get(syntaxError).getSemanticsResult().isEmpty());
+        assertTrue(results.get(deep).getParserResult().isEmpty());
+        assertTrue(results.get(semanticError).getOllirResult().isEmpty());
+        assertTrue(results.get(failingBackend).getJasminResult().isEmpty());
+
+        // the errors are reported as exceptions of their units
+        for (var file : List.of(deep, failingBackend)) {
+            var report = results.get(file).getReports().get(0);
+            assertEquals("Exception during compilation", report.getMessage());
+            assertTrue(report.getException().orElseThrow().getCause() instanceof StackOverflowError);
+        }
+
+        var stats = pipeline.getStats();
+        assertEquals(PipelineCompiler.STAGES, stats.stream().map(PipelineCompiler.StageStats::getName).toList());
+        assertEquals(List.of(1, 2, 3, 2, 2), stats.stream().map(PipelineCompiler.StageStats::getThreads).toList());
+        assertEquals(List.of(17, 16, 14, 13, 13),
+                stats.stream().map(PipelineCompiler.StageStats::getProcessed).toList());
+        for (var stage : stats) {
+            assertTrue(stage.toString(), stage.getBusyNanos() > 0);
+            assertTrue(stage.toString(), stage.getMaxQueueDepth() <= 1);
+            assertTrue(stage.toString(), stage.getAverageQueueDepth() <= stage.getMaxQueueDepth());
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void testEmpty() {
+        var config = CompilerConfig.parseArgs(new String[]{"-b=.", "-p"});
+        var pipeline = new PipelineCompiler(config);
+
+        assertTrue(pipeline.compile(List.of()).isEmpty());
+        for (var stage : pipeline.getStats()) {
+            assertEquals(0, stage.getProcessed());
+        }
+    }
+
+    /**
+     * Overflows the stack when parsing the class Deep, and when generating the code of the class Backend.
+     */
+    private static class FailingCompiler extends JmmCompiler {
+
+        @Override
+        JmmParserResult parse(String code, Map<String, String> config, CompilationResult result) {
+            if (code.contains("class Deep")) {
+                throw new StackOverflowError();
+            }
+
+            return super.parse(code, config, result);
+        }
+
+        @Override
+        void generate(OllirResult ollirResult, Map<String, String> config, CompilationResult result) {
+            if (ollirResult.getOllirCode().contains("Backend")) {
+                throw new StackOverflowError();
+            }
+
+            super.generate(ollirResult, config, result);
+        }
+    }
+
+    private static File write(Path folder, String name, String code) throws IOException {
+        var file = folder.resolve(name + ".jmm").toFile();
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), code);
+
+        return file;
+    }
+}
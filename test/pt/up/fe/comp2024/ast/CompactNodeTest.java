@@ -0,0 +1,127 @@
+package pt.up.fe.comp2024.ast;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the nodes of a {@link CompactAst} can be changed like the nodes built by the parser, and that a change
+ * only affects the node that is changed.
+ */
+public class CompactNodeTest {
+
+    private static final String CODE = "class A { int x; int y; public int foo(int a) { return a; } }";
+
+    @Test
+    public void testAdd() {
+        var classDecl = parseClass();
+        var field = classDecl.getChild(0);
+        var added = new JmmNodeImpl(Kind.VAR_DECL.toString());
+
+        classDecl.add(added, 1);
+
+        assertEquals(4, classDecl.getNumChildren());
+        assertSame(field, classDecl.getChild(0));
+        assertSame(added, classDecl.getChild(1));
+        assertSame(classDecl, added.getParent());
+        // the nodes that were not changed still read from the tree
+        assertSame(classDecl, classDecl.getChild(2).getParent());
+        assertEquals(1, field.getNumChildren());
+    }
+
+    @Test
+    public void testSetChild() {
+        var classDecl = parseClass();
+        var previous = classDecl.getChild(1);
+        var replacement = new JmmNodeImpl(Kind.VAR_DECL.toString());
+
+        classDecl.setChild(replacement, 1);
+
+        assertEquals(3, classDecl.getNumChildren());
+        assertSame(replacement, classDecl.getChild(1));
+        assertSame(classDecl, replacement.getParent());
+        assertNull(previous.getParent());
+    }
+
+    @Test
+    public void testDetach() {
+        var classDecl = parseClass();
+        var method = classDecl.getChild(2);
+
+        assertSame(method, method.detach());
+
+        assertEquals(2, classDecl.getNumChildren());
+        assertFalse(classDecl.getChildren().contains(method));
+        assertNull(method.getParent());
+        // the children of the detached node are still its own
+        assertSame(method, method.getChild(0).getParent());
+    }
+
+    @Test
+    public void testMove() {
+        var classDecl = parseClass();
+        var field = classDecl.getChild(0);
+        var method = classDecl.getChild(2);
+
+        field.detach();
+        method.add(field, 0);
+
+        assertEquals(2, classDecl.getNumChildren());
+        assertSame(method, field.getParent());
+        assertSame(field, method.getChild(0));
+    }
+
+    @Test
+    public void testPutObject() {
+        var classDecl = parseClass();
+        var field = (CompactNode) classDecl.getChild(0);
+        var other = (CompactNode) classDecl.getChild(1);
+        int otherNameId = other.getValueId("name");
+
+        var previous = field.putObject("name", "z");
+
+        assertEquals("x", previous);
+        assertEquals("z", field.get("name"));
+        // a changed value is not interned in the tree
+        assertEquals(-1, field.getValueId("name"));
+        assertEquals("y", other.get("name"));
+        assertEquals(otherNameId, other.getValueId("name"));
+
+        field.putObject("extra", 1);
+        assertTrue(field.hasAttribute("extra"));
+        assertTrue(field.getAttributes().contains("extra"));
+        assertFalse(other.hasAttribute("extra"));
+    }
+
+    @Test
+    public void testPutPosition() {
+        var classDecl = (CompactNode) parseClass();
+        int line = classDecl.getLineStart();
+
+        classDecl.putObject("lineStart", Integer.toString(line + 10));
+
+        assertEquals(line + 10, classDecl.getLineStart());
+        assertEquals(Integer.toString(line + 10), classDecl.get("lineStart"));
+    }
+
+    private static JmmNode parseClass() {
+        var result = new JmmParserImpl().parse(CODE, "program", Map.of("compactAst", "true"));
+        assertFalse(result.getReports().toString(), ReportUtils.anyError(result.getReports()));
+        assertTrue(result.getRootNode() instanceof CompactNode);
+
+        return result.getRootNode().getChildren().stream()
+                .filter(child -> Kind.CLASS_DECL.check(child))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,108 @@
+package pt.up.fe.comp2024.ast;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp2024.analysis.TypedSemanticsResult;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.TypeRegistry;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ExprTypesTest {
+
+    // deep enough to overflow the call stack with recursion
+    private static final int DEPTH = 100_000;
+
+    @Test
+    public void testAnnotate() {
+        var table = new JmmSymbolTable("Test", null, List.of(), List.of(), List.of(), Map.of(), Map.of(), Map.of());
+        var chain = chain(DEPTH);
+
+        var types = ExprTypes.annotate(chain, table);
+
+        // every literal and addition, found once and then read
+        assertEquals(2 * DEPTH + 1, types.size());
+        assertSame(TypeRegistry.INT, TypeUtils.getExprType(chain.getChild(0), types));
+        assertEquals(2 * DEPTH + 1, types.size());
+    }
+
+    @Test
+    public void testNotKeptWithoutTypes() {
+        var table = new JmmSymbolTable("Test", null, List.of(), List.of(), List.of(), Map.of(), Map.of(), Map.of());
+        var types = new ExprTypes(table);
+        var chain = chain(3);
+
+        TypeUtils.getExprType(chain, table);
+
+        // only the types given to getExprType are filled
+        assertEquals(0, types.size());
+        assertSame(TypeRegistry.INT, TypeUtils.getExprType(chain, types));
+        assertEquals(7, types.size());
+    }
+
+    @Test
+    public void testAnalysisResult() {
+        var result = TestUtils.analyse("class A { public int foo(int a) { return a + 1; } }");
+        TestUtils.noErrors(result);
+
+        assertTrue(result instanceof TypedSemanticsResult);
+        var types = ((TypedSemanticsResult) result).getExprTypes();
+
+        // the parameter, the literal and the addition
+        assertEquals(3, types.size());
+        var addition = result.getRootNode().getDescendants("BinaryExpr").get(0);
+        assertSame(TypeRegistry.INT, TypeUtils.getExprType(addition, types));
+        assertEquals(3, types.size());
+    }
+
+    @Test
+    public void testOwnTypesForOtherResults() {
+        var result = TestUtils.analyse("class A { public int foo(int a) { return a + 1; } }");
+        var other = new JmmSemanticsResult(result.getRootNode(), result.getSymbolTable(),
+                List.of(), Map.of());
+
+        var types = TypedSemanticsResult.getExprTypes(other);
+
+        assertNotSame(((TypedSemanticsResult) result).getExprTypes(), types);
+        assertEquals(0, types.size());
+    }
+
+    /**
+     * @return 1 + 1 + ... + 1, with the given number of additions, nested to the left like the parser does
+     */
+    private static JmmNode chain(int additions) {
+        JmmNode expr = literal();
+        for (int i = 0; i < additions; i++) {
+            var binaryExpr = node("BinaryExpr");
+            binaryExpr.put("op", "+");
+            binaryExpr.add(expr);
+            binaryExpr.add(literal());
+            expr = binaryExpr;
+        }
+
+        return expr;
+    }
+
+    private static JmmNode literal() {
+        var literal = node("IntegerLiteral");
+        literal.put("value", "1");
+
+        return literal;
+    }
+
+    private static JmmNode node(String kind) {
+        var node = new JmmNodeImpl(kind);
+        node.setHierarchy(List.of(kind));
+
+        return node;
+    }
+}
@@ -0,0 +1,83 @@
+package pt.up.fe.comp2024.ast;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp2024.JavammParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the kinds against the grammar.
+ */
+public class KindTest {
+
+    private static final String CODE = "import io; class A { int[] a; public int foo(int b) { a[0] = b; return a.length; } }";
+
+    @Test
+    public void testOneKindPerNodeOfTheGrammar() {
+        var kinds = Arrays.stream(Kind.values())
+                .map(Kind::getNodeName)
+                .collect(Collectors.toCollection(TreeSet::new));
+
+        assertEquals(getNodeKinds(), kinds);
+    }
+
+    @Test
+    public void testParsedNodesKnowTheirKind() {
+        for (var compact : List.of("false", "true")) {
+            var result = TestUtils.parse(CODE, Map.of("compactAst", compact));
+            TestUtils.noErrors(result);
+
+            var nodes = new ArrayList<>(result.getRootNode().getDescendants());
+            nodes.add(result.getRootNode());
+            for (var node : nodes) {
+                assertTrue(node.toString(), node instanceof KindedNode);
+                var kind = ((KindedNode) node).getKindEnum();
+                assertNotNull(node.toString(), kind);
+                assertSame(Kind.fromNodeName(node.getKind()), kind);
+                assertSame(kind, Kind.of(node));
+            }
+        }
+    }
+
+    @Test
+    public void testOtherNodes() {
+        assertSame(Kind.VAR_DECL, Kind.of(new JmmNodeImpl("VarDecl")));
+        assertNull(Kind.of(new JmmNodeImpl("Unknown")));
+        assertNull(Kind.of(new AstNode("Unknown")));
+    }
+
+    /**
+     * @return the kinds of the nodes the grammar gives: the labels, and the rules without labels
+     */
+    private static Set<String> getNodeKinds() {
+        var contexts = Arrays.stream(JavammParser.class.getDeclaredClasses())
+                .filter(ParserRuleContext.class::isAssignableFrom)
+                .collect(Collectors.toList());
+
+        var nodeKinds = new TreeSet<String>();
+        for (var context : contexts) {
+            boolean isLabel = context.getSuperclass() != ParserRuleContext.class;
+            boolean hasLabels = contexts.stream().anyMatch(other -> other.getSuperclass() == context);
+            if (isLabel || !hasLabels) {
+                nodeKinds.add(context.getSimpleName().replaceFirst("Context$", ""));
+            }
+        }
+
+        return nodeKinds;
+    }
+}
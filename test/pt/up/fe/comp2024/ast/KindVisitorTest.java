@@ -0,0 +1,160 @@
+package pt.up.fe.comp2024.ast;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp.jmm.ast.PostorderJmmVisitor;
+import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class KindVisitorTest {
+
+    // deep enough to overflow the call stack with recursion
+    private static final int DEPTH = 100_000;
+
+    @Test
+    public void testSameOrderAsLibrary() {
+        var tree = tree();
+
+        var expected = new ArrayList<String>();
+        var preorder = new PreorderJmmVisitor<List<String>, String>() {
+            @Override
+            protected void buildVisitor() {
+                setDefaultVisit(KindVisitorTest::visit);
+                setReduceSimple((a, b) -> a + b);
+            }
+        };
+        var expectedResult = preorder.visit(tree, expected);
+
+        var actual = new ArrayList<String>();
+        var preorderKind = new PreorderKindVisitor<List<String>, String>() {
+            @Override
+            protected void buildVisitor() {
+                setDefaultVisit(KindVisitorTest::visit);
+                setReduceSimple((a, b) -> a + b);
+            }
+        };
+        var actualResult = preorderKind.visit(tree, actual);
+
+        assertEquals(expected, actual);
+        assertEquals(expectedResult, actualResult);
+
+        expected.clear();
+        var postorder = new PostorderJmmVisitor<List<String>, String>() {
+            @Override
+            protected void buildVisitor() {
+                setDefaultVisit(KindVisitorTest::visit);
+                setReduceSimple((a, b) -> a + b);
+            }
+        };
+        expectedResult = postorder.visit(tree, expected);
+
+        actual.clear();
+        var postorderKind = new PostorderKindVisitor<List<String>, String>() {
+            @Override
+            protected void buildVisitor() {
+                setDefaultVisit(KindVisitorTest::visit);
+                setReduceSimple((a, b) -> a + b);
+            }
+        };
+        actualResult = postorderKind.visit(tree, actual);
+
+        assertEquals(expected, actual);
+        assertEquals(expectedResult, actualResult);
+    }
+
+    @Test
+    public void testChildResults() {
+        var sum = new PostorderKindVisitor<Void, Integer>() {
+            @Override
+            protected void buildVisitor() {
+                addVisit(Kind.INTEGER_LITERAL, (node, unused) -> Integer.parseInt(node.get("value")));
+                addVisit(Kind.BINARY_EXPR, (node, unused) -> getChildResult(0) + getChildResult(1));
+            }
+        };
+
+        assertEquals(DEPTH + 1, (int) sum.visit(chain(DEPTH)));
+    }
+
+    @Test
+    public void testDeepTree() {
+        var chain = chain(DEPTH);
+
+        var count = new int[1];
+        var preorder = new PreorderKindVisitor<Void, Void>() {
+            @Override
+            protected void buildVisitor() {
+                setDefaultVisit((node, unused) -> {
+                    count[0]++;
+                    return null;
+                });
+            }
+        };
+        preorder.visit(chain);
+
+        assertEquals(2 * DEPTH + 1, count[0]);
+    }
+
+    @Test
+    public void testDeepExprType() {
+        var table = new JmmSymbolTable("Test", null, List.of(), List.of(), List.of(), Map.of(), Map.of(), Map.of());
+
+        var type = TypeUtils.getExprType(chain(DEPTH), table);
+
+        assertEquals("int", type.getName());
+    }
+
+    private static String visit(JmmNode node, List<String> visited) {
+        visited.add(node.getKind());
+        return node.getKind().substring(0, 1);
+    }
+
+    private static JmmNode tree() {
+        var root = node("Program");
+        var classDecl = node("ClassDecl");
+        root.add(classDecl);
+        classDecl.add(node("VarDecl"));
+        var method = node("MethodDecl");
+        classDecl.add(method);
+        method.add(node("Param"));
+        method.add(chain(3));
+
+        return root;
+    }
+
+    /**
+     * @return 1 + 1 + ... + 1, with the given number of additions, nested to the left like the parser does
+     */
+    private static JmmNode chain(int additions) {
+        JmmNode expr = literal();
+        for (int i = 0; i < additions; i++) {
+            var binaryExpr = node("BinaryExpr");
+            binaryExpr.put("op", "+");
+            binaryExpr.add(expr);
+            binaryExpr.add(literal());
+            expr = binaryExpr;
+        }
+
+        return expr;
+    }
+
+    private static JmmNode literal() {
+        var literal = node("IntegerLiteral");
+        literal.put("value", "1");
+
+        return literal;
+    }
+
+    private static JmmNode node(String kind) {
+        var node = new JmmNodeImpl(kind);
+        node.setHierarchy(List.of(kind));
+
+        return node;
+    }
+}
@@ -0,0 +1,92 @@
+package pt.up.fe.comp2024.backend;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.runner.InProcessRunner;
+import pt.up.fe.comp2024.utils.ReportUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Checks the class files written from OLLIR against the Jasmin backend, with the OLLIR samples of the Jasmin tests.
+ */
+public class ClassFileGeneratorTest {
+
+    private static final String SAMPLES_FOLDER = "pt/up/fe/comp/cpf/4_jasmin/";
+
+    // samples with a main method that runs with the Java-- libraries
+    private static final List<String> PROGRAMS = List.of(
+            "arithmetic/Arithmetic_and", "arithmetic/Arithmetic_less", "arithmetic/Arithmetic_not",
+            "arrays/ArrayAccess", "arrays/ArrayAsArg", "arrays/ArrayInit", "arrays/ArrayInitialization",
+            "arrays/ArrayNew", "arrays/ArrayVarArgs", "arrays/ComplexArrayAccess", "arrays/VarargsAndArrayInit",
+            "calls/ConditionArgsFuncCall", "control_flow/IfElseInMain", "control_flow/IfWhileNested",
+            "control_flow/SimpleControlFlow", "control_flow/SimpleIfElseNot", "control_flow/SimpleIfElseStat",
+            "control_flow/SimpleWhileStat", "control_flow/SwitchStat");
+
+    // samples without a main method, only loaded and verified
+    private static final List<String> CLASSES = List.of(
+            "arithmetic/ByteCodeIndexes1", "arithmetic/ByteCodeIndexes2", "arrays/ArrayAsArgCode",
+            "limits/LocalLimits");
+
+    private static final InProcessRunner RUNNER = new InProcessRunner(
+            List.of(new File(TestUtils.getLibsClasspath()).getAbsoluteFile()));
+
+    @Test
+    public void testSameOutputAsJasmin() {
+        for (var sample : PROGRAMS) {
+            var ollirResult = ollir(sample);
+
+            var jasminOutput = RUNNER.run(new JasminBackendImpl().toJasmin(ollirResult), List.of(), null, 10_000);
+            var classFileOutput = RUNNER.run(toClassFile(sample, ollirResult), List.of(), null, 10_000);
+
+            assertEquals(sample + ": " + jasminOutput.getOutput(), 0, jasminOutput.getReturnValue());
+            assertEquals(sample, jasminOutput.getReturnValue(), classFileOutput.getReturnValue());
+            assertEquals(sample, jasminOutput.getStdOut(), classFileOutput.getStdOut());
+        }
+    }
+
+    @Test
+    public void testVerifiedClasses() throws ClassNotFoundException {
+        for (var sample : CLASSES) {
+            var result = toClassFile(sample, ollir(sample));
+
+            var loader = new SingleClassLoader(result.getClassFile());
+            loader.define(result.getClassName());
+
+            // initializing the class links it, which runs the verifier
+            Class.forName(result.getClassName(), true, loader);
+        }
+    }
+
+    private static OllirResult ollir(String sample) {
+        return new OllirResult(SpecsIo.getResource(SAMPLES_FOLDER + sample + ".ollir"), Collections.emptyMap());
+    }
+
+    private static ClassFileResult toClassFile(String sample, OllirResult ollirResult) {
+        var result = new ClassFileBackendImpl().toClassFile(ollirResult);
+        assertFalse(sample + ": " + result.getReports(), ReportUtils.anyError(result.getReports()));
+
+        return result;
+    }
+
+    private static class SingleClassLoader extends ClassLoader {
+
+        private final byte[] classFile;
+
+        SingleClassLoader(byte[] classFile) {
+            super(ClassLoader.getPlatformClassLoader());
+            this.classFile = classFile;
+        }
+
+        void define(String className) {
+            defineClass(className, classFile, 0, classFile.length);
+        }
+    }
+}
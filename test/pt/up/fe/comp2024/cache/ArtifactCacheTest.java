@@ -0,0 +1,238 @@
+package pt.up.fe.comp2024.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the keys, the eviction of least recently used entries, and that broken or concurrently changed entries are
+ * never read as valid ones.
+ */
+public class ArtifactCacheTest {
+
+    private static final String CODE = "class A { public int foo(int a) { return a; } }";
+
+    private Path folder;
+
+    @Before
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("cache");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(folder)) {
+            for (var file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Test
+    public void testKey() {
+        var key = ArtifactCache.getKey(CODE, Map.of());
+
+        assertEquals(key, ArtifactCache.getKey(CODE, Map.of()));
+        assertNotEquals(key, ArtifactCache.getKey(CODE + " ", Map.of()));
+        assertNotEquals(key, ArtifactCache.getKey(CODE, Map.of("optimize", "true")));
+        assertNotEquals(key, ArtifactCache.getKey(CODE, Map.of("registerAllocation", "2")));
+        assertNotEquals(key, ArtifactCache.getKey(CODE, Map.of("backend", "class")));
+        // options that do not change the generated code
+        assertEquals(key, ArtifactCache.getKey(CODE, Map.of("compactAst", "true")));
+    }
+
+    @Test
+    public void testPutGet() {
+        var cache = new ArtifactCache(folder.toFile(), Long.MAX_VALUE);
+        var key = ArtifactCache.getKey(CODE, Map.of());
+        var warning = new Report(ReportType.WARNING, Stage.SEMANTIC, 1, 2, "Unused variable");
+
+        cache.put(key, newEntry("A", 10, List.of(warning)));
+        var entry = cache.get(key).orElseThrow();
+
+        assertEquals("A", entry.getClassName());
+        assertEquals(".class A".repeat(10), entry.getJasminCode());
+        assertArrayEquals(new byte[]{1, 2, 3}, entry.getClassFile());
+        assertEquals(1, entry.getReports().size());
+        var report = entry.getReports().get(0);
+        assertEquals(ReportType.WARNING, report.getType());
+        assertEquals(Stage.SEMANTIC, report.getStage());
+        assertEquals(1, report.getLine());
+        assertEquals(2, report.getColumn());
+        assertEquals("Unused variable", report.getMessage());
+
+        assertTrue(cache.get(ArtifactCache.getKey(CODE + " ", Map.of())).isEmpty());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws IOException {
+        var cache = new ArtifactCache(folder.toFile(), 2500);
+        var keys = List.of("aa00", "aa01", "bb02", "bb03");
+        for (var key : keys) {
+            cache.put(key, newEntry("A", 120, List.of()));
+        }
+
+        // oldest first, then the oldest one is used again
+        long time = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1);
+        for (var key : keys) {
+            Files.setLastModifiedTime(getEntryFile(key), FileTime.fromMillis(time));
+            time += 10_000;
+        }
+        assertTrue(cache.get("aa00").isPresent());
+
+        cache.evict();
+
+        assertTrue(cache.get("aa00").isPresent());
+        assertTrue(cache.get("aa01").isEmpty());
+        assertTrue(cache.get("bb02").isEmpty());
+        assertTrue(cache.get("bb03").isPresent());
+        assertTrue(getSize() <= 2500);
+    }
+
+    @Test
+    public void testTruncatedEntryIsMiss() throws IOException {
+        var cache = new ArtifactCache(folder.toFile(), Long.MAX_VALUE);
+        cache.put("aa00", newEntry("A", 10, List.of(new Report(ReportType.WARNING, Stage.SEMANTIC, 1, 2, "W"))));
+
+        var file = getEntryFile("aa00");
+        var bytes = Files.readAllBytes(file);
+        for (int length : new int[]{0, 3, bytes.length / 2, bytes.length - 1}) {
+            Files.write(file, Arrays.copyOf(bytes, length));
+            assertTrue("Length " + length, cache.get("aa00").isEmpty());
+        }
+    }
+
+    @Test
+    public void testCorruptedEntryIsMiss() throws IOException {
+        var cache = new ArtifactCache(folder.toFile(), Long.MAX_VALUE);
+        cache.put("aa00", newEntry("A", 10, List.of(new Report(ReportType.WARNING, Stage.SEMANTIC, 1, 2, "W"))));
+
+        var file = getEntryFile("aa00");
+        var bytes = Files.readAllBytes(file);
+
+        // a length that does not fit in memory
+        var hugeLength = bytes.clone();
+        hugeLength[0] = 0x7f;
+        Files.write(file, hugeLength);
+        assertTrue(cache.get("aa00").isEmpty());
+
+        // a negative length
+        var negativeLength = bytes.clone();
+        negativeLength[0] = (byte) 0xff;
+        Files.write(file, negativeLength);
+        assertTrue(cache.get("aa00").isEmpty());
+
+        // a report type that does not exist, "WARNING" is written near the end of the entry
+        var unknownType = new String(bytes, StandardCharsets.ISO_8859_1).replace("WARNING", "WARNONG")
+                .getBytes(StandardCharsets.ISO_8859_1);
+        Files.write(file, unknownType);
+        assertTrue(cache.get("aa00").isEmpty());
+
+        // the entry is written again
+        cache.put("aa00", newEntry("A", 10, List.of()));
+        assertTrue(cache.get("aa00").isPresent());
+    }
+
+    @Test
+    public void testConcurrentPutGetEvict() throws Exception {
+        // room for a few of the entries, so that evict keeps removing them
+        var cache = new ArtifactCache(folder.toFile(), 5000);
+        var keys = new ArrayList<String>();
+        for (int i = 0; i < 20; i++) {
+            keys.add(String.format("%02x%02x", i % 4, i));
+        }
+
+        var stop = new AtomicBoolean(false);
+        var threads = Executors.newFixedThreadPool(5);
+        try {
+            var evictor = threads.submit(() -> {
+                while (!stop.get()) {
+                    cache.evict();
+                }
+            });
+
+            var tasks = new ArrayList<Callable<Integer>>();
+            for (int thread = 0; thread < 4; thread++) {
+                int seed = thread;
+                tasks.add(() -> {
+                    int hits = 0;
+                    for (int i = 0; i < 300; i++) {
+                        int index = (i * 7 + seed) % keys.size();
+                        var key = keys.get(index);
+                        cache.put(key, newEntry("C" + index, index + 1, List.of()));
+
+                        var entry = cache.get(keys.get((i + seed) % keys.size()));
+                        if (entry.isPresent()) {
+                            // never a mix of two entries
+                            var className = entry.get().getClassName();
+                            int repeat = Integer.parseInt(className.substring(1)) + 1;
+                            assertEquals((".class " + className).repeat(repeat), entry.get().getJasminCode());
+                            hits++;
+                        }
+                    }
+                    return hits;
+                });
+            }
+
+            for (var result : threads.invokeAll(tasks)) {
+                result.get();
+            }
+            stop.set(true);
+            evictor.get(10, TimeUnit.SECONDS);
+        } finally {
+            stop.set(true);
+            threads.shutdownNow();
+        }
+
+        cache.evict();
+        assertTrue(getSize() <= 5000);
+
+        // no temporary files are left behind
+        try (Stream<Path> files = Files.walk(folder)) {
+            assertFalse(files.anyMatch(file -> file.toString().endsWith(".tmp")));
+        }
+    }
+
+    private static CacheEntry newEntry(String className, int repeat, List<Report> reports) {
+        return new CacheEntry(className, "", (".class " + className).repeat(repeat), "", new byte[]{1, 2, 3},
+                reports);
+    }
+
+    private Path getEntryFile(String key) {
+        return folder.resolve(key.substring(0, 2)).resolve(key + ".entry");
+    }
+
+    private long getSize() throws IOException {
+        try (Stream<Path> files = Files.walk(folder)) {
+            return files.filter(file -> file.toString().endsWith(".entry"))
+                    .mapToLong(file -> file.toFile().length())
+                    .sum();
+        }
+    }
+}
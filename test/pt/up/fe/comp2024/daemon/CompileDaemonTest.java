@@ -0,0 +1,217 @@
+package pt.up.fe.comp2024.daemon;
+
+import org.junit.After;
+import org.junit.Test;
+import pt.up.fe.comp2024.CompilationResult;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.JmmCompiler;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the back-pressure of the daemon: full queues, timeouts, abandoned compilations and failed compilations.
+ */
+public class CompileDaemonTest {
+
+    private static final String VALID = "class A { public int foo(int a) { return a; } }";
+    private static final String BLOCK = "block";
+    private static final String FAIL = "fail";
+
+    private final BlockingCompiler compiler = new BlockingCompiler();
+    private final List<CompileDaemon> daemons = new ArrayList<>();
+
+    @After
+    public void tearDown() throws IOException {
+        compiler.release.countDown();
+        for (var daemon : daemons) {
+            daemon.close();
+        }
+    }
+
+    @Test
+    public void testCompile() throws IOException {
+        var client = start(1, 1, 10_000);
+
+        var response = client.compile(VALID, Map.of());
+
+        assertEquals(response.getReports().toString(), DaemonProtocol.STATUS_OK, response.getStatus());
+        assertEquals("A", response.getClassName());
+        assertNotNull(response.getClassFile());
+    }
+
+    @Test
+    public void testBusyWhenQueueIsFull() throws Exception {
+        var client = start(1, 1, 10_000);
+        var requests = Executors.newCachedThreadPool();
+        try {
+            // one compiling, one waiting in the queue
+            var compiling = requests.submit(() -> client.compile(BLOCK, Map.of()));
+            assertTrue(compiler.started.await(10, TimeUnit.SECONDS));
+            var queued = requests.submit(() -> client.compile(VALID, Map.of()));
+            waitForQueued(queued);
+
+            var rejected = client.compile(VALID, Map.of());
+            assertEquals(DaemonProtocol.STATUS_BUSY, rejected.getStatus());
+
+            compiler.release.countDown();
+            assertEquals(DaemonProtocol.STATUS_OK, compiling.get(10, TimeUnit.SECONDS).getStatus());
+            assertEquals(DaemonProtocol.STATUS_OK, queued.get(10, TimeUnit.SECONDS).getStatus());
+        } finally {
+            requests.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testAbandonedCompilationsAreBounded() throws Exception {
+        var client = start(1, 1, 200);
+
+        // the compilations do not stop when interrupted, each one is abandoned and keeps its slot
+        assertEquals(DaemonProtocol.STATUS_TIMEOUT, client.compile(BLOCK, Map.of()).getStatus());
+        assertEquals(DaemonProtocol.STATUS_TIMEOUT, client.compile(BLOCK, Map.of()).getStatus());
+        assertEquals(2, compiler.running());
+
+        var rejected = client.compile(VALID, Map.of());
+        assertEquals(DaemonProtocol.STATUS_BUSY, rejected.getStatus());
+        assertEquals(2, compiler.running());
+
+        // once the abandoned compilations end, their slots take requests again
+        compiler.release.countDown();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (compiler.running() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        DaemonClient.Response response = null;
+        while (System.currentTimeMillis() < deadline) {
+            response = client.compile(VALID, Map.of());
+            if (response.getStatus() != DaemonProtocol.STATUS_BUSY) {
+                break;
+            }
+            Thread.sleep(10);
+        }
+        assertEquals(DaemonProtocol.STATUS_OK, response.getStatus());
+    }
+
+    @Test
+    public void testFailedCompilation() throws IOException {
+        var client = start(1, 1, 10_000);
+
+        var response = client.compile(FAIL, Map.of());
+
+        assertEquals(DaemonProtocol.STATUS_ERRORS, response.getStatus());
+        assertEquals(1, response.getReports().size());
+        assertEquals("Exception during compilation", response.getReports().get(0).getMessage());
+
+        // the daemon still works
+        assertEquals(DaemonProtocol.STATUS_OK, client.compile(VALID, Map.of()).getStatus());
+    }
+
+    private DaemonClient start(int threads, int queueCapacity, long timeoutMs) throws IOException {
+        int port;
+        try (var socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        var config = CompilerConfig.parseArgs(new String[]{"-d=" + port, "-t=" + threads, "-q=" + queueCapacity,
+                "-w=" + timeoutMs});
+        var daemon = new CompileDaemon(config, compiler);
+        daemons.add(daemon);
+
+        var thread = new Thread(() -> {
+            try {
+                daemon.serve();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, "compile-daemon-test");
+        thread.setDaemon(true);
+        thread.start();
+
+        // waits for the daemon to listen, with a request that fails at once and does not keep a slot
+        var client = new DaemonClient(port);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            try {
+                client.compile(FAIL, Map.of());
+                return client;
+            } catch (SocketException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static void waitForQueued(Future<?> request) throws InterruptedException, ExecutionException {
+        // the request is queued once its connection is accepted, there is no way to see it from here
+        Thread.sleep(200);
+        if (request.isDone()) {
+            request.get();
+        }
+    }
+
+    /**
+     * Blocks on BLOCK until released, ignoring interrupts like a long compilation, and throws on FAIL.
+     */
+    private static class BlockingCompiler extends JmmCompiler {
+
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final Object lock = new Object();
+        private int running = 0;
+
+        @Override
+        public CompilationResult compile(String code, Map<String, String> config) {
+            if (code.equals(FAIL)) {
+                throw new IllegalStateException("Broken compiler");
+            }
+
+            if (!code.equals(BLOCK)) {
+                return super.compile(code, config);
+            }
+
+            synchronized (lock) {
+                running++;
+            }
+            started.countDown();
+
+            try {
+                boolean released = false;
+                while (!released) {
+                    try {
+                        release.await();
+                        released = true;
+                    } catch (InterruptedException e) {
+                        // a compilation does not check for interrupts
+                    }
+                }
+
+                return super.compile(VALID, config);
+            } finally {
+                synchronized (lock) {
+                    running--;
+                }
+            }
+        }
+
+        int running() {
+            synchronized (lock) {
+                return running;
+            }
+        }
+    }
+}
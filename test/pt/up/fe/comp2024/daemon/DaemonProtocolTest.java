@@ -0,0 +1,71 @@
+package pt.up.fe.comp2024.daemon;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class DaemonProtocolTest {
+
+    @Test
+    public void testConfigRoundTrip() throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        DaemonProtocol.writeConfig(new DataOutputStream(bytes), Map.of("o", "true", "r", "3"));
+
+        assertEquals(Map.of("o", "true", "r", "3"), DaemonProtocol.readConfig(input(bytes.toByteArray())));
+    }
+
+    @Test
+    public void testReportsRoundTrip() throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        var report = Report.newError(Stage.SEMANTIC, 2, 5, "Undeclared variable", null);
+        DaemonProtocol.writeReports(new DataOutputStream(bytes), List.of(report));
+
+        var reports = DaemonProtocol.readReports(input(bytes.toByteArray()));
+
+        assertEquals(1, reports.size());
+        assertEquals(Stage.SEMANTIC, reports.get(0).getStage());
+        assertEquals(2, reports.get(0).getLine());
+        assertEquals("Undeclared variable", reports.get(0).getMessage());
+    }
+
+    @Test
+    public void testInvalidCounts() throws IOException {
+        // a count from a malformed request fails before anything is allocated for it
+        for (int count : new int[]{Integer.MAX_VALUE, -1}) {
+            try {
+                DaemonProtocol.readConfig(count(count));
+                fail("Expected an invalid config count: " + count);
+            } catch (IOException e) {
+                // expected
+            }
+
+            try {
+                DaemonProtocol.readReports(count(count));
+                fail("Expected an invalid report count: " + count);
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    private static DataInputStream count(int count) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeInt(count);
+        return input(bytes.toByteArray());
+    }
+
+    private static DataInputStream input(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+}
@@ -0,0 +1,162 @@
+package pt.up.fe.comp2024.metrics;
+
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the names of nested stages, the threads metrics are collected in, and the JSON summary.
+ */
+public class CompilerMetricsTest {
+
+    @Test
+    public void testNestedStages() {
+        var metrics = new CompilerMetrics();
+
+        metrics.attach();
+        try {
+            var result = CompilerMetrics.measure("analysis", () -> {
+                CompilerMetrics.measure("symbolTable", () -> CompilerMetrics.measure("imports", () -> null));
+                CompilerMetrics.count("lookups");
+                CompilerMetrics.count("lookups");
+                return CompilerMetrics.measure("types", () -> 1);
+            });
+            CompilerMetrics.measure("ollir", () -> null);
+
+            assertEquals(Integer.valueOf(1), result);
+        } finally {
+            metrics.detach();
+        }
+
+        // stages are added when they end, so nested stages come before the stage around them
+        assertEquals(List.of("analysis/symbolTable/imports", "analysis/symbolTable", "analysis/types", "analysis",
+                "ollir"), getNames(metrics));
+        assertEquals(Long.valueOf(2), metrics.getCounters().get("lookups"));
+
+        var analysis = metrics.getStages().get(3);
+        var symbolTable = metrics.getStages().get(1);
+        assertTrue(analysis.getWallNanos() >= symbolTable.getWallNanos());
+    }
+
+    @Test
+    public void testFailedStage() {
+        var metrics = new CompilerMetrics();
+
+        metrics.attach();
+        try {
+            CompilerMetrics.measure("analysis", () -> CompilerMetrics.measure("symbolTable", () -> {
+                throw new IllegalStateException("Failed");
+            }));
+            fail("Expected the exception of the stage");
+        } catch (IllegalStateException e) {
+            assertEquals("Failed", e.getMessage());
+        }
+
+        // the failed stages are recorded and the next stage is not nested in them
+        CompilerMetrics.measure("ollir", () -> null);
+        metrics.detach();
+
+        assertEquals(List.of("analysis/symbolTable", "analysis", "ollir"), getNames(metrics));
+    }
+
+    @Test
+    public void testAttachAcrossThreads() throws Exception {
+        var metrics = new CompilerMetrics();
+        var threads = Executors.newFixedThreadPool(2);
+
+        try {
+            // a unit moves between the workers of the stages, each one attaches its metrics while running it
+            threads.submit(() -> {
+                metrics.attach();
+                try {
+                    CompilerMetrics.measure("parse", () -> null);
+                } finally {
+                    metrics.detach();
+                }
+                CompilerMetrics.measure("notAttached", () -> null);
+            }).get(10, TimeUnit.SECONDS);
+
+            threads.submit(() -> {
+                CompilerMetrics.measure("notAttached", () -> null);
+                metrics.attach();
+                try {
+                    CompilerMetrics.measure("analysis", () -> CompilerMetrics.measure("symbolTable", () -> null));
+                } finally {
+                    metrics.detach();
+                }
+            }).get(10, TimeUnit.SECONDS);
+        } finally {
+            threads.shutdownNow();
+        }
+
+        // the thread of the test never attached the metrics
+        CompilerMetrics.measure("notAttached", () -> null);
+        CompilerMetrics.count("notAttached");
+
+        assertEquals(List.of("parse", "analysis/symbolTable", "analysis"), getNames(metrics));
+        assertTrue(metrics.getCounters().isEmpty());
+    }
+
+    @Test
+    public void testJson() {
+        var first = new CompilerMetrics();
+        first.attach();
+        try {
+            CompilerMetrics.measure("analysis", () -> CompilerMetrics.measure("symbolTable", () -> null));
+            CompilerMetrics.count("cacheMiss");
+        } finally {
+            first.detach();
+        }
+
+        var second = new CompilerMetrics();
+        second.attach();
+        try {
+            CompilerMetrics.measure("parse", () -> null);
+        } finally {
+            second.detach();
+        }
+
+        var metrics = new LinkedHashMap<String, CompilerMetrics>();
+        metrics.put("A.jmm", first);
+        metrics.put("B.jmm", second);
+
+        var json = JsonParser.parseString(CompilerMetrics.toJson(metrics)).getAsJsonObject();
+        var files = json.getAsJsonArray("files");
+        assertEquals(2, files.size());
+
+        var fileA = files.get(0).getAsJsonObject();
+        assertEquals("A.jmm", fileA.get("file").getAsString());
+        var stages = fileA.getAsJsonArray("stages");
+        assertEquals(2, stages.size());
+        for (int i = 0; i < stages.size(); i++) {
+            var stage = stages.get(i).getAsJsonObject();
+            var metric = first.getStages().get(i);
+
+            assertEquals(metric.getName(), stage.get("name").getAsString());
+            assertEquals(metric.getWallNanos(), stage.get("wallNanos").getAsLong());
+            assertEquals(metric.getCpuNanos(), stage.get("cpuNanos").getAsLong());
+            assertEquals(metric.getAllocatedBytes(), stage.get("allocatedBytes").getAsLong());
+        }
+        assertEquals("analysis/symbolTable", stages.get(0).getAsJsonObject().get("name").getAsString());
+        assertEquals(1, fileA.getAsJsonObject("counters").get("cacheMiss").getAsLong());
+
+        // files without counters do not have the field
+        var fileB = files.get(1).getAsJsonObject();
+        assertEquals("B.jmm", fileB.get("file").getAsString());
+        assertEquals("parse", fileB.getAsJsonArray("stages").get(0).getAsJsonObject().get("name").getAsString());
+        assertFalse(fileB.has("counters"));
+    }
+
+    private static List<String> getNames(CompilerMetrics metrics) {
+        return metrics.getStages().stream().map(StageMetric::getName).toList();
+    }
+}
@@ -0,0 +1,105 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.junit.Test;
+import pt.up.fe.comp2024.JavammLexer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Checks that the fast path of {@link FastJavammLexer} produces exactly the tokens of the generated lexer.
+ */
+public class FastJavammLexerTest {
+
+    private static final List<String> EDGE_CASES = List.of(
+            "",
+            "   \n\t\r\f  ",
+            "int intx x1 $a _b a$1 main mainly length lengths new newer true this thisIs false falsey",
+            "0 00 0123 10 1234567890 12ab a12",
+            "a// comment\nb",
+            "a // comment at the end without new line",
+            "a /* multi \n line \n comment */ b",
+            "a /*/ not closed yet */ b",
+            "a /**/ b /***/ c",
+            "a /* not closed",
+            "a / b * c // x\n/ d",
+            "int[] a; int... b; a.length; a&&b; !a < b;",
+            "class A { int a; } # @ c",
+            "importa import extendsB extends String Strings");
+
+    @Test
+    public void testEdgeCases() {
+        for (var code : EDGE_CASES) {
+            assertSameTokens(code, code);
+        }
+    }
+
+    @Test
+    public void testWarmupCorpus() {
+        for (var code : ParserWarmup.getCorpus()) {
+            assertSameTokens("warm-up corpus", code);
+        }
+    }
+
+    @Test
+    public void testTestCorpus() throws IOException {
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(Paths.get("test"))) {
+            files = paths.filter(path -> path.toString().endsWith(".jmm")).sorted().collect(Collectors.toList());
+        }
+
+        assertFalse("Could not find the test corpus", files.isEmpty());
+
+        for (var file : files) {
+            assertSameTokens(file.toString(), Files.readString(file));
+        }
+    }
+
+    private static void assertSameTokens(String name, String code) {
+        var expected = lex(new JavammLexer(new ANTLRInputStream(code)));
+        var actual = lex(new FastJavammLexer(new ANTLRInputStream(code)));
+
+        assertEquals("Different tokens for " + name, expected, actual);
+    }
+
+    /**
+     * @return a description of all the tokens and errors of the lexer, one per line
+     */
+    private static String lex(Lexer lexer) {
+        var lines = new ArrayList<String>();
+
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                    int charPositionInLine, String msg, RecognitionException e) {
+                lines.add("error " + line + ":" + charPositionInLine + " " + msg);
+            }
+        });
+
+        Token token;
+        do {
+            token = lexer.nextToken();
+            lines.add(token.getType() + " '" + token.getText() + "' " + token.getLine() + ":"
+                    + token.getCharPositionInLine() + " [" + token.getStartIndex() + ", " + token.getStopIndex()
+                    + "] channel " + token.getChannel());
+        } while (token.getType() != Token.EOF);
+
+        return String.join("\n", lines);
+    }
+}
@@ -0,0 +1,136 @@
+package pt.up.fe.comp2024.parser;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that parsing a file, and parsing with unbuffered tokens, give the same trees as parsing a String.
+ */
+public class JmmParserImplTest {
+
+    private static final String CODE = "import io; class A { int x; public int foo(int a) { return a + x; } }";
+    private static final String SYNTAX_ERROR = "class C { int x public int foo() { return 1; } }";
+
+    @Test
+    public void testParseFile() throws IOException {
+        var file = write("// olá, ½\n" + CODE);
+
+        var fromFile = new JmmParserImpl().parse(file.toFile(), Map.of());
+        var fromString = new JmmParserImpl().parse("// olá, ½\n" + CODE, Map.of());
+
+        assertParsed(fromFile);
+        assertEquals(fromString.getRootNode().toTree(), fromFile.getRootNode().toTree());
+    }
+
+    @Test
+    public void testParseFileNotUtf8() throws IOException {
+        // 0xC3 starts a two byte sequence that 0x28 does not continue
+        var bytes = ("// " + CODE).getBytes(StandardCharsets.UTF_8);
+        bytes[1] = (byte) 0xC3;
+        bytes[2] = (byte) 0x28;
+        var file = Files.createTempFile("jmm", ".jmm");
+        file.toFile().deleteOnExit();
+        Files.write(file, bytes);
+
+        var result = new JmmParserImpl().parse(file.toFile(), Map.of());
+
+        assertNull(result.getRootNode());
+        assertEquals(1, result.getReports().size());
+        assertTrue(result.getReports().toString(),
+                result.getReports().get(0).getMessage().startsWith("Could not read input file"));
+    }
+
+    @Test
+    public void testParseMissingFile() {
+        var result = new JmmParserImpl().parse(new File("test/does/not/exist.jmm"), Map.of());
+
+        assertNull(result.getRootNode());
+        assertTrue(ReportUtils.anyError(result.getReports()));
+    }
+
+    @Test
+    public void testUnbufferedTokens() throws IOException {
+        int compared = 0;
+
+        for (var file : getClassFiles()) {
+            var buffered = new JmmParserImpl().parse(file.toFile(), Map.of());
+            var unbuffered = new JmmParserImpl().parse(file.toFile(), unbufferedConfig(file));
+
+            assertEquals(file.toString(), ReportUtils.anyError(buffered.getReports()),
+                    ReportUtils.anyError(unbuffered.getReports()));
+            if (buffered.getRootNode() == null) {
+                assertNull(file.toString(), unbuffered.getRootNode());
+                continue;
+            }
+
+            assertEquals(file.toString(), buffered.getRootNode().toTree(), unbuffered.getRootNode().toTree());
+            compared++;
+        }
+
+        // most of the classes of the tests are valid
+        assertTrue("Compared " + compared + " classes", compared > 20);
+    }
+
+    @Test
+    public void testUnbufferedLlFallback() throws IOException {
+        var file = write(SYNTAX_ERROR);
+        long fallbacks = JmmParserImpl.getLlFallbackCount();
+
+        var failed = new JmmParserImpl().parse(file.toFile(), unbufferedConfig(file));
+
+        assertEquals(fallbacks + 1, JmmParserImpl.getLlFallbackCount());
+        assertNull(failed.getRootNode());
+        assertTrue(ReportUtils.anyError(failed.getReports()));
+        var report = failed.getReports().get(0);
+        assertFalse(report.toString(), report.getMessage().startsWith("Exception during parsing"));
+
+        // the parser of the thread still works, in both modes
+        assertParsed(new JmmParserImpl().parse(write(CODE).toFile(), unbufferedConfig(file)));
+        assertParsed(new JmmParserImpl().parse(CODE, Map.of()));
+    }
+
+    private static Map<String, String> unbufferedConfig(Path file) {
+        var config = CompilerConfig.parseArgs(new String[]{"-i=" + file, "-k"});
+        assertTrue(CompilerConfig.isUnbufferedTokens(config));
+
+        return config;
+    }
+
+    private static Path write(String code) throws IOException {
+        var file = Files.createTempFile("jmm", ".jmm");
+        file.toFile().deleteOnExit();
+        Files.writeString(file, code, StandardCharsets.UTF_8);
+
+        return file;
+    }
+
+    private static void assertParsed(JmmParserResult result) {
+        assertFalse(result.getReports().toString(), ReportUtils.anyError(result.getReports()));
+        assertNotNull(result.getRootNode());
+    }
+
+    private static List<Path> getClassFiles() throws IOException {
+        try (var files = Files.walk(Path.of("test"))) {
+            return files.filter(file -> file.toString().endsWith(".jmm"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.junit.Test;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the outline of each Java-- class of the tests against the full parse of the same class.
+ */
+public class OutlineParserTest {
+
+    @Test
+    public void testSameTablesAsFullParse() throws IOException {
+        int compared = 0;
+
+        for (var file : getClassFiles()) {
+            var code = Files.readString(file);
+
+            var full = new JmmParserImpl().parse(code, Map.of());
+            if (ReportUtils.anyError(full.getReports()) || full.getRootNode() == null) {
+                // only valid programs have an outline to compare
+                continue;
+            }
+
+            var outline = OutlineParser.parse(new ANTLRInputStream(code), Map.of());
+            assertFalse(file + ": " + outline.getReports(), ReportUtils.anyError(outline.getReports()));
+
+            var fullTable = JmmSymbolTableBuilder.build(full.getRootNode());
+            var outlineTable = JmmSymbolTableBuilder.build(outline.getRootNode());
+            assertSameStructure(file.toString(), fullTable, outlineTable);
+            for (var method : outlineTable.getMethods()) {
+                assertTrue(file + ": " + method, outlineTable.getLocalVariables(method).isEmpty());
+            }
+
+            // parsing the bodies gives the locals of the full tree
+            var reports = OutlineParser.parseBodies(outline.getRootNode(), Map.of());
+            assertFalse(file + ": " + reports, ReportUtils.anyError(reports));
+            assertTrue(file.toString(), outline.getRootNode().getDescendants(Kind.METHOD_DECL).stream()
+                    .noneMatch(method -> method.hasAttribute(OutlineParser.BODY)));
+
+            var bodiesTable = JmmSymbolTableBuilder.build(outline.getRootNode());
+            assertSameStructure(file.toString(), fullTable, bodiesTable);
+            for (var method : fullTable.getMethods()) {
+                assertEquals(file + ": " + method, fullTable.getLocalVariables(method),
+                        bodiesTable.getLocalVariables(method));
+            }
+
+            compared++;
+        }
+
+        // most of the classes of the tests are valid
+        assertTrue("Compared " + compared + " classes", compared > 20);
+    }
+
+    @Test
+    public void testAnalysisParsesBodies() {
+        var code = "class A { int x; public int foo(int a) { int b; b = a + x; return b; } }";
+        var outline = OutlineParser.parse(new ANTLRInputStream(code), Map.of());
+        var method = outline.getRootNode().getDescendants(Kind.METHOD_DECL).get(0);
+        assertTrue(method.hasAttribute(OutlineParser.BODY));
+
+        var result = new JmmAnalysisImpl().semanticAnalysis(outline);
+
+        assertFalse(result.getReports().toString(), ReportUtils.anyError(result.getReports()));
+        assertEquals(1, result.getSymbolTable().getLocalVariables("foo").size());
+        var parsedMethod = result.getRootNode().getDescendants(Kind.METHOD_DECL).get(0);
+        assertFalse(parsedMethod.hasAttribute(OutlineParser.BODY));
+        assertFalse(parsedMethod.getDescendants(Kind.ASSIGN_STMT).isEmpty());
+    }
+
+    @Test
+    public void testBodyPositions() {
+        // the last method starts far into the file, and in the middle of a line
+        var code = new StringBuilder("class A { int x;\n");
+        for (int i = 0; i < 2000; i++) {
+            code.append("    public int foo").append(i).append("(int a) {\n        return a + ").append(i).append(";\n    }\n");
+        }
+        code.append("      public int last(int a) { int b;\n        b = a * x;\n        return b; }\n}\n");
+
+        var full = new JmmParserImpl().parse(code.toString(), Map.of());
+        var outline = OutlineParser.parse(new ANTLRInputStream(code.toString()), Map.of());
+        var reports = OutlineParser.parseBodies(outline.getRootNode(), Map.of());
+        assertFalse(reports.toString(), ReportUtils.anyError(reports));
+
+        var fullMethods = full.getRootNode().getDescendants(Kind.METHOD_DECL);
+        var parsedMethods = outline.getRootNode().getDescendants(Kind.METHOD_DECL);
+        var fullLast = fullMethods.get(fullMethods.size() - 1);
+        var parsedLast = parsedMethods.get(parsedMethods.size() - 1);
+        assertEquals("last", parsedLast.get("name"));
+        assertEquals("6002", parsedLast.get("lineStart"));
+        assertEquals("6", parsedLast.get("colStart"));
+
+        var fullNodes = fullLast.getDescendants();
+        var parsedNodes = parsedLast.getDescendants();
+        assertEquals(fullNodes.size(), parsedNodes.size());
+        for (int i = 0; i < fullNodes.size(); i++) {
+            var expected = fullNodes.get(i);
+            var actual = parsedNodes.get(i);
+            assertEquals(expected.toString(), expected.getKind(), actual.getKind());
+            for (var position : List.of(NodePosition.LINE_START, NodePosition.COL_START, NodePosition.LINE_END,
+                    NodePosition.COL_END)) {
+                assertEquals(expected + ": " + position, expected.get(position.getString()),
+                        actual.get(position.getString()));
+            }
+        }
+    }
+
+    @Test
+    public void testBodyErrorPosition() {
+        var code = "class A {\n    int x;\n    public int foo(int a) {\n        a = ;\n        return a; }\n}\n";
+        var outline = OutlineParser.parse(new ANTLRInputStream(code), Map.of());
+
+        var reports = OutlineParser.parseBodies(outline.getRootNode(), Map.of());
+
+        assertTrue(reports.toString(), ReportUtils.anyError(reports));
+        assertEquals(4, reports.get(0).getLine());
+        assertEquals(12, reports.get(0).getColumn());
+    }
+
+    private static void assertSameStructure(String message, SymbolTable expected, SymbolTable actual) {
+        assertEquals(message, expected.getClassName(), actual.getClassName());
+        assertEquals(message, expected.getSuper(), actual.getSuper());
+        assertEquals(message, expected.getImports(), actual.getImports());
+        assertEquals(message, expected.getFields(), actual.getFields());
+        assertEquals(message, expected.getMethods(), actual.getMethods());
+
+        for (var method : expected.getMethods()) {
+            assertEquals(message + ": " + method, expected.getReturnType(method), actual.getReturnType(method));
+            assertEquals(message + ": " + method, expected.getParameters(method), actual.getParameters(method));
+        }
+    }
+
+    private static List<Path> getClassFiles() throws IOException {
+        try (var files = Files.walk(Path.of("test"))) {
+            return files.filter(file -> file.toString().endsWith(".jmm"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
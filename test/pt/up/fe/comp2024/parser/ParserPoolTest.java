@@ -0,0 +1,124 @@
+package pt.up.fe.comp2024.parser;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the lexer and parser of a thread can be reused for any number of inputs.
+ */
+public class ParserPoolTest {
+
+    private static final String FIRST = "import io; class A { int x; public int foo(int a) { return a + x; } }";
+    private static final String SECOND = "class B extends A { boolean b; public static void main(String[] args) { } }";
+    // the SLL stage bails out on the syntax error, the LL stage parses again and reports it
+    private static final String SYNTAX_ERROR = "class C { int x public int foo() { return 1; } }";
+
+    @Test
+    public void testBackToBack() {
+        var first = parse(FIRST);
+        var second = parse(SECOND);
+        var firstAgain = parse(FIRST);
+
+        assertParsed(first, "A");
+        assertParsed(second, "B");
+        assertParsed(firstAgain, "A");
+    }
+
+    @Test
+    public void testLlFallbackAfterParse() {
+        // the parser keeps the state it ended the previous input in
+        assertParsed(parse(FIRST), "A");
+
+        testLlFallback();
+    }
+
+    @Test
+    public void testLlFallback() {
+        long fallbacks = JmmParserImpl.getLlFallbackCount();
+
+        var failed = parse(SYNTAX_ERROR);
+
+        assertEquals(fallbacks + 1, JmmParserImpl.getLlFallbackCount());
+        assertNull(failed.getRootNode());
+        assertTrue(ReportUtils.anyError(failed.getReports()));
+        // the error reported is the syntax error, not an exception of a broken parser
+        var report = failed.getReports().get(0);
+        assertFalse(report.toString(), report.getMessage().startsWith("Exception during parsing"));
+
+        // the parser of the thread still works after the fallback
+        assertParsed(parse(SECOND), "B");
+    }
+
+    @Test
+    public void testClearCaches() {
+        assertParsed(parse(FIRST), "A");
+        assertTrue(ParserPool.getCachedStates() > 0);
+
+        ParserPool.clearCaches();
+        assertEquals(0, ParserPool.getCachedStates());
+
+        // the parsers of all threads use the new caches
+        assertParsed(parse(FIRST), "A");
+        assertTrue(ParserPool.getCachedStates() > 0);
+    }
+
+    @Test
+    public void testClearCachesWhileParsing() throws Exception {
+        var parsed = new AtomicInteger();
+        var stop = new AtomicBoolean();
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var parses = executor.submit(() -> {
+                while (!stop.get()) {
+                    assertParsed(parse(FIRST), "A");
+                    assertParsed(parse(SECOND), "B");
+                    parsed.incrementAndGet();
+                }
+                return null;
+            });
+
+            // each clear waits for the parse in progress in the other thread, which then parses with the new caches
+            long deadline = System.currentTimeMillis() + 10_000;
+            int clears = 0;
+            while ((parsed.get() < 100 || clears < 100) && System.currentTimeMillis() < deadline) {
+                ParserPool.clearCaches();
+                clears++;
+                assertParsed(parse(SECOND), "B");
+            }
+
+            stop.set(true);
+            parses.get(10, TimeUnit.SECONDS);
+            assertTrue("Parsed " + parsed.get() + " times", parsed.get() >= 100);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static JmmParserResult parse(String code) {
+        return new JmmParserImpl().parse(code, "program", Map.of());
+    }
+
+    private static void assertParsed(JmmParserResult result, String className) {
+        assertFalse(result.getReports().toString(), ReportUtils.anyError(result.getReports()));
+        assertNotNull(result.getRootNode());
+
+        var classDecl = result.getRootNode().getChildren().stream()
+                .filter(child -> child.getKind().equals("ClassDecl"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(className, classDecl.get("name"));
+    }
+}
@@ -0,0 +1,68 @@
+package pt.up.fe.comp2024.parser;
+
+import org.junit.Test;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.JmmCompiler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParserWarmupTest {
+
+    private static final String PROGRAM = "import io; class A { int x; "
+            + "public int foo(int a) { int b; b = a + 1; return b; } "
+            + "public static void main(String[] args) { } }";
+
+    @Test
+    public void testCompileAfterWarmup() {
+        // warms up the parser of this thread, the compilation reuses it
+        assertEquals(2 * ParserWarmup.getCorpus().size(), ParserWarmup.warmUp(2));
+
+        var result = new JmmCompiler().compile(PROGRAM, CompilerConfig.getDefault());
+
+        assertFalse(result.getReports().toString(), result.hasErrors());
+        assertTrue(result.getJasminResult().isPresent());
+        assertEquals("A", result.getClassName().orElseThrow());
+    }
+
+    @Test
+    public void testWarmupFillsCaches() {
+        ParserPool.clearCaches();
+        assertEquals(0, ParserPool.getCachedStates());
+
+        ParserWarmup.warmUp(1);
+        int warmStates = ParserPool.getCachedStates();
+        assertTrue("Cached states: " + warmStates, warmStates > 0);
+
+        // the first round already found what the corpus needs
+        ParserWarmup.warmUp(1);
+        assertEquals(warmStates, ParserPool.getCachedStates());
+    }
+
+    @Test
+    public void testWarmupRounds() {
+        assertEquals(0, CompilerConfig.getWarmupRounds(Map.of()));
+        assertEquals(1, CompilerConfig.getWarmupRounds(Map.of("warmup", "true")));
+        assertEquals(3, CompilerConfig.getWarmupRounds(Map.of("warmup", "3")));
+    }
+
+    @Test
+    public void testInvalidWarmupRounds() {
+        var config = new HashMap<String, String>();
+        config.put("warmup", "abc");
+
+        try {
+            CompilerConfig.getWarmupRounds(config);
+            fail("Expected an invalid '-u' value");
+        } catch (NumberFormatException e) {
+            fail("Expected an option error, got " + e);
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("'-u'"));
+        }
+    }
+}
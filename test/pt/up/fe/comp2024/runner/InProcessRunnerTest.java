@@ -0,0 +1,88 @@
+package pt.up.fe.comp2024.runner;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.specs.util.system.ProcessOutputAsString;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class InProcessRunnerTest {
+
+    private static final InProcessRunner RUNNER = new InProcessRunner(
+            List.of(new File(TestUtils.getLibsClasspath()).getAbsoluteFile()));
+
+    @Test
+    public void testInputAndOutput() {
+        // reads two numbers with the io library, which only has package-private methods, and prints their sum
+        var output = run("Sum", ""
+                + "    invokestatic io/read()I\n"
+                + "    invokestatic io/read()I\n"
+                + "    iadd\n"
+                + "    invokestatic io/println(I)V\n"
+                + "    return\n", "2\n40\n");
+
+        assertEquals(0, output.getReturnValue());
+        assertEquals("42", output.getStdOut().strip());
+        assertEquals("", output.getStdErr());
+    }
+
+    @Test
+    public void testSeparateRuns() {
+        // the static state of the libraries, e.g. the input buffer of io, is not shared between runs
+        var code = ""
+                + "    invokestatic io/read()I\n"
+                + "    invokestatic io/println(I)V\n"
+                + "    return\n";
+
+        assertEquals("1", run("First", code, "1\n").getStdOut().strip());
+        assertEquals("2", run("Second", code, "2\n").getStdOut().strip());
+    }
+
+    @Test
+    public void testException() {
+        var output = run("Division", ""
+                + "    iconst_1\n"
+                + "    iconst_0\n"
+                + "    idiv\n"
+                + "    invokestatic io/println(I)V\n"
+                + "    return\n", null);
+
+        assertEquals(1, output.getReturnValue());
+        assertTrue(output.getStdErr(), output.getStdErr().contains("ArithmeticException"));
+    }
+
+    @Test
+    public void testTimeout() {
+        // blocked in sleep, so the interrupt stops it
+        var output = RUNNER.run(jasmin("Sleep", ""
+                + "Loop:\n"
+                + "    ldc2_w 1000\n"
+                + "    invokestatic java/lang/Thread/sleep(J)V\n"
+                + "    goto Loop\n"), Collections.emptyList(), null, 100);
+
+        assertEquals(-1, output.getReturnValue());
+        assertTrue(output.getStdErr(), output.getStdErr().contains("did not finish in 100ms"));
+    }
+
+    private static ProcessOutputAsString run(String className, String main, String input) {
+        return RUNNER.run(jasmin(className, main), Collections.emptyList(), input, 10_000);
+    }
+
+    private static JasminResult jasmin(String className, String main) {
+        var code = ".class public " + className + "\n"
+                + ".super java/lang/Object\n"
+                + ".method public static main([Ljava/lang/String;)V\n"
+                + "    .limit stack 4\n"
+                + "    .limit locals 1\n"
+                + main
+                + ".end method\n";
+
+        return new JasminResult(className, code, Collections.emptyList());
+    }
+}
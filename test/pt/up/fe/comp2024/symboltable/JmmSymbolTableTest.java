@@ -0,0 +1,131 @@
+package pt.up.fe.comp2024.symboltable;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class JmmSymbolTableTest {
+
+    private static final Type INT = new Type("int", false);
+    private static final Type BOOLEAN = new Type("boolean", false);
+
+    private static JmmSymbolTable table() {
+        return new JmmSymbolTable(
+                "Test",
+                null,
+                List.of("foo", "main"),
+                List.of("[io]", "[a, b, C]"),
+                List.of(new Symbol(INT, "x"), new Symbol(BOOLEAN, "x"), new Symbol(BOOLEAN, "y")),
+                Map.of("foo", INT, "main", new Type("void", false)),
+                Map.of("foo", List.of(new Symbol(INT, "a"), new Symbol(BOOLEAN, "b")), "main", List.of()),
+                Map.of("foo", List.of(new Symbol(INT, "tmp")), "main", List.of())
+        );
+    }
+
+    @Test
+    public void testLookups() {
+        var table = table();
+
+        assertTrue(table.hasMethod("foo"));
+        assertFalse(table.hasMethod("bar"));
+
+        assertTrue(table.hasImport("[io]"));
+        assertFalse(table.hasImport("[C]"));
+        assertTrue(table.isImportedClass("io"));
+        assertTrue(table.isImportedClass("C"));
+        assertFalse(table.isImportedClass("b"));
+
+        // the first of repeated names, like a search of the list
+        assertEquals(INT, table.getField("x").getType());
+        assertNull(table.getField("z"));
+
+        assertEquals(1, table.getParameterIndex("foo", "b"));
+        assertEquals(BOOLEAN, table.getParameter("foo", "b").getType());
+        assertEquals(-1, table.getParameterIndex("main", "b"));
+        assertNull(table.getParameter("bar", "a"));
+
+        assertEquals(INT, table.getLocalVariable("foo", "tmp").getType());
+        assertNull(table.getLocalVariable("main", "tmp"));
+    }
+
+    @Test
+    public void testLookupsById() {
+        var table = table();
+        var identifiers = table.getIdentifiers();
+        int foo = identifiers.getId("foo");
+        int b = identifiers.getId("b");
+
+        assertTrue(table.hasMethod(foo));
+        assertEquals(INT, table.getReturnType(foo));
+        assertEquals(1, table.getParameterIndex(foo, b));
+        assertSame(table.getParameter("foo", "b"), table.getParameter(foo, b));
+        assertSame(table.getLocalVariable("foo", "tmp"), table.getLocalVariable(foo, identifiers.getId("tmp")));
+
+        // the same as hasImport("[io]") and hasImport("[C]")
+        assertTrue(table.hasImport(identifiers.getId("io")));
+        assertFalse(table.hasImport(identifiers.getId("C")));
+        assertTrue(table.isImportedClass(identifiers.getId("C")));
+
+        // names that are not in the table have no id
+        assertEquals(-1, identifiers.getId("bar"));
+        assertFalse(table.hasMethod(-1));
+        assertNull(table.getField(-1));
+    }
+
+    @Test
+    public void testManyNames() {
+        var fields = new ArrayList<Symbol>();
+        for (int i = 0; i < 1000; i++) {
+            fields.add(new Symbol(i % 2 == 0 ? INT : BOOLEAN, "f" + i));
+        }
+        var table = new JmmSymbolTable("Test", null, List.of(), List.of(), fields, Map.of(), Map.of(), Map.of());
+
+        for (int i = 0; i < 1000; i++) {
+            assertSame(table.getFields().get(i), table.getField("f" + i));
+        }
+        assertNull(table.getField("f1000"));
+    }
+
+    @Test
+    public void testSharedTypes() {
+        var table = table();
+        var types = table.getTypes();
+
+        // equal types and symbols are the same object
+        assertSame(TypeRegistry.INT, table.getField("x").getType());
+        assertSame(TypeRegistry.INT, table.getReturnType("foo"));
+        assertSame(table.getField("x").getType(), table.getParameter("foo", "a").getType());
+        assertSame(types.getType("Test", false), types.getType(new Type("Test", false)));
+        assertNotSame(types.getType("Test", false), types.getType("Test", true));
+        assertSame(table.getField("y"), types.getSymbol(new Symbol(BOOLEAN, "y")));
+    }
+
+    @Test
+    public void testOf() {
+        var table = table();
+        assertSame(table, JmmSymbolTable.of(table));
+
+        // any other table is copied
+        var copy = JmmSymbolTable.of(new SymbolTable() {
+            public List<String> getImports() { return table.getImports(); }
+            public String getClassName() { return table.getClassName(); }
+            public String getSuper() { return table.getSuper(); }
+            public List<Symbol> getFields() { return table.getFields(); }
+            public List<String> getMethods() { return table.getMethods(); }
+            public Type getReturnType(String method) { return table.getReturnType(method); }
+            public List<Symbol> getParameters(String method) { return table.getParameters(method); }
+            public List<Symbol> getLocalVariables(String method) { return table.getLocalVariables(method); }
+        });
+        assertNotSame(table, copy);
+        assertTrue(copy.hasMethod("main"));
+        assertEquals(1, copy.getParameterIndex("foo", "b"));
+        assertTrue(copy.isImportedClass("C"));
+    }
+}
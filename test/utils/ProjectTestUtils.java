@@ -1,8 +1,10 @@
 package utils;
 
 import org.specs.comp.ollir.*;
+import pt.up.fe.comp.TestUtils;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.runner.InProcessRunner;
 import pt.up.fe.specs.util.SpecsCollections;
 import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsStrings;
@@ -14,6 +16,7 @@ import pt.up.fe.specs.util.utilities.LineStream;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.function.Predicate;
@@ -27,6 +30,8 @@ public class ProjectTestUtils {
 
     // private static final File RANDOM_TEST_FOLDER = SpecsIo.newRandomFolder();
 
+    private static InProcessRunner runner = null;
+
     public static File getRandomFolder() {
         var folder = SpecsIo.newRandomFolder();
         SpecsIo.deleteFolderContents(folder);
@@ -323,8 +328,25 @@ public class ProjectTestUtils {
         assertTrue("Expected code to match /" + regex + "/:\n" + code + "", matches);
     }
 
+    /**
+     * Runs the compiled Jasmin code in the current JVM, instead of starting a java process.
+     *
+     * @param jasminResult
+     * @param input        the standard input of the program, can be null
+     * @return
+     */
+    public static ProcessOutputAsString runInProcess(JasminResult jasminResult, String input) {
+        synchronized (ProjectTestUtils.class) {
+            if (runner == null) {
+                runner = new InProcessRunner(List.of(new File(TestUtils.getLibsClasspath()).getAbsoluteFile()));
+            }
+        }
+
+        return runner.run(jasminResult, Collections.emptyList(), input);
+    }
+
     public static void runJasmin(JasminResult jasminResult, String expected) {
-        var output = SpecsStrings.normalizeFileContents(jasminResult.run(), true);
+        var output = SpecsStrings.normalizeFileContents(runInProcess(jasminResult, null).getOutput(), true);
 
         // No expected output, just run test
         if (expected == null) {